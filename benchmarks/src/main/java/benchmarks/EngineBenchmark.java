@@ -0,0 +1,122 @@
+package benchmarks;
+
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import engine.engines.MinMaxDepthPruneEngine;
+import engine.models.CachedModel;
+import engine.models.ExperimentalHeuristic1;
+import engine.models.IncrementalHeuristic1;
+import engine.models.LinearModel;
+import engine.models.Model;
+import engine.models.NnueModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The evaluation function on its own, and a fixed-depth search with it. Every search starts
+ * with an empty transposition table (and an empty evaluation cache), so runs are repeatable.
+ * The evaluation is either computed from scratch ({@link ExperimentalHeuristic1}), updated from
+ * the squares that changed ({@link IncrementalHeuristic1}) or looked up first in a
+ * {@link CachedModel}, or it is the weighted sum of the features of a {@link LinearModel}, or
+ * the output of a {@link NnueModel} (with random weights, only the cost matters here).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({Positions.OPENING_5, Positions.MIDGAME_5, Positions.MIDGAME_6, Positions.MIDGAME_8})
+    public String position;
+
+    /**
+     * The depth of the search in moves of both players (so twice as many plies).
+     */
+    @Param({"1", "2"})
+    public int depth;
+
+    @Param({"full", "incremental", "cached", "linear", "nnue"})
+    public String evaluation;
+
+    private Tak tak;
+    private Model model;
+    private Move[] moves;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tak = Positions.get(position);
+        if (evaluation.equals("incremental")) {
+            model = new IncrementalHeuristic1();
+        } else if (evaluation.equals("cached")) {
+            model = new CachedModel(new ExperimentalHeuristic1(), 4);
+        } else if (evaluation.equals("linear")) {
+            model = new LinearModel();
+        } else if (evaluation.equals("nnue")) {
+            model = randomNetwork(tak.boardSize(), 128);
+        } else {
+            model = new ExperimentalHeuristic1();
+        }
+
+        moves = MoveFactory.allPossibleMovesList(tak).toArray(new Move[0]);
+    }
+
+    /**
+     * Evaluates the positions after each move of the position in turn, the way a search
+     * evaluates the leaves below a node.
+     */
+    @Benchmark
+    public double evaluate() {
+        Move move = moves[next];
+        next = next + 1 == moves.length ? 0 : next + 1;
+
+        Tak.Undo undo = tak.executeMove(move);
+        double score = model.evaluate(tak);
+        tak.undoMove(undo);
+        return score;
+    }
+
+    @Benchmark
+    public long solve() throws InterruptedException {
+        if (model instanceof CachedModel) {
+            ((CachedModel) model).clear();
+        }
+
+        MinMaxDepthPruneEngine engine = new MinMaxDepthPruneEngine(model, depth);
+        engine.solve(tak, 0, 0);
+        return engine.getNodeCount();
+    }
+
+    private static NnueModel randomNetwork(int size, int hidden) {
+        Random random = new Random(1);
+
+        short[] inputWeights = new short[NnueModel.inputs(size) * hidden];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(201) - 100);
+        }
+
+        short[] inputBias = new short[hidden];
+        short[] outputWeights = new short[hidden];
+        for (int h = 0; h < hidden; h++) {
+            inputBias[h] = (short) random.nextInt(64);
+            outputWeights[h] = (short) (random.nextInt(257) - 128);
+        }
+
+        return new NnueModel(size, hidden, inputWeights, inputBias, outputWeights, 0);
+    }
+}
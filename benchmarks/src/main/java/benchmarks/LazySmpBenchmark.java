@@ -0,0 +1,71 @@
+package benchmarks;
+
+import base.Tak;
+import engine.TranspositionTable;
+import engine.engines.LazySmpEngine;
+import engine.models.ExperimentalHeuristic1;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How {@link LazySmpEngine} scales with the amount of threads: the time to search a position to
+ * a fixed depth, every search starting with an empty transposition table. The time with one
+ * thread divided by the time with n threads is the speedup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazySmpBenchmark {
+
+    private static final int TABLE_SIZE = 64;
+
+    @Param({Positions.OPENING_5, Positions.OPENING_6})
+    public String position;
+
+    /**
+     * The depth of the search in moves of both players (so twice as many plies).
+     */
+    @Param({"2"})
+    public int depth;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private Tak tak;
+    private TranspositionTable table;
+    private LazySmpEngine engine;
+
+    @Setup
+    public void setUp() {
+        tak = Positions.get(position);
+        table = new TranspositionTable(TABLE_SIZE);
+        engine = new LazySmpEngine(new ExperimentalHeuristic1(), depth, threads, table);
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public long solve() throws InterruptedException {
+        table.clear();
+        engine.solve(tak, 0, 0);
+        return engine.getNodeCount();
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import base.Tak;
+import engine.engines.MonteCarloEngine;
+import engine.models.ExperimentalHeuristic1;
+import engine.rollouts.ModelRolloutPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the tree-parallel {@link MonteCarloEngine} scales with the amount of threads: the time of a
+ * search of {@code PLAYOUTS} playouts in a fresh tree. {@code PLAYOUTS} divided by the time is
+ * the amount of playouts per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonteCarloBenchmark {
+
+    private static final int PLAYOUTS = 20_000;
+    private static final int MAX_NODES = 2_000_000;
+
+    @Param({Positions.OPENING_5, Positions.OPENING_6})
+    public String position;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    private Tak tak;
+    private MonteCarloEngine engine;
+
+    @Setup
+    public void setUp() {
+        tak = Positions.get(position);
+        engine = new MonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()), PLAYOUTS,
+                MonteCarloEngine.DEFAULT_EXPLORATION, MAX_NODES, new Random(1), threads);
+    }
+
+    /**
+     * Forgets the tree of the last search, which {@code solve(...)} would otherwise keep growing
+     * because the position is the same.
+     */
+    @Setup(Level.Invocation)
+    public void clearTree() {
+        engine.getTreeHandler().clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public long solve() throws InterruptedException {
+        engine.solve(tak, 0, 0);
+        return engine.getPlayoutCount();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import base.Tak;
+import base.move.MoveFactory;
+
+/**
+ * The recorded positions the benchmarks run on: a start, an opening and a midgame on the common
+ * sizes, given as the moves (in PTN) that lead to them. Benchmarks take the name as a
+ * {@code @Param}, so each position is reported on its own.
+ */
+final class Positions {
+
+    static final String START_5 = "5:start";
+    static final String OPENING_5 = "5:opening";
+    static final String MIDGAME_5 = "5:midgame";
+    static final String OPENING_6 = "6:opening";
+    static final String MIDGAME_6 = "6:midgame";
+    static final String MIDGAME_8 = "8:midgame";
+
+    private Positions() {
+
+    }
+
+    /**
+     * @param name One of the names above
+     * @return A new instance of the position.
+     */
+    static Tak get(String name) {
+        switch (name) {
+            case START_5:
+                return play(5);
+            case OPENING_5:
+                return play(5, "a1", "e5", "c3", "c2", "d3", "b2", "Cb3", "1c2+1", "d2", "Cd4");
+            case MIDGAME_5:
+                return play(5, "a1", "e5", "c3", "c2", "d3", "b2", "Cb3", "1c2+1", "d2", "Cd4",
+                        "1b3+1", "1c3>1", "1c3<1", "d1", "1d2>1", "Sd2", "1b3>1", "2d3>2", "1c3<1", "1d4<1",
+                        "c1", "Sc3");
+            case OPENING_6:
+                return play(6, "a1", "f6", "c3", "d4", "c4", "d3", "Cc5", "Cd5", "b4", "e4",
+                        "1c4>1", "1d3+1", "c2", "Sb3");
+            case MIDGAME_6:
+                return play(6, "a1", "f6", "c3", "d4", "c4", "d3", "Cc5", "Cd5", "b4", "e4",
+                        "1c4>1", "1d3+1", "c2", "Sb3", "1c5<1", "1e4>1", "Sa5", "1b3-1", "1b5-1", "1d4-1",
+                        "2d4<2", "Se4", "1c2-1", "1d5-1", "1c4-1", "1b2+1");
+            case MIDGAME_8:
+                return play(8, "a1", "h8", "d4", "e5", "d5", "e4", "Cd6", "Ce6", "Sc5", "1e5<1",
+                        "1d4+1", "Sf5", "3d5-12", "c6", "Sf7", "1e4+1", "Sf1", "1f5<1", "1c5<1", "c5",
+                        "1d3+1", "2e5>2", "1d4<1", "1a1>1", "1b5-1", "1f5-1", "1f7-1", "Sb7", "1b4+1", "f8");
+            default:
+                throw new IllegalArgumentException("Unknown position " + name);
+        }
+    }
+
+    private static Tak play(int size, String... moves) {
+        Tak tak = new Tak(Tak.GameType.ofSize(size));
+        for (String str : moves) {
+            try {
+                tak.safeExecuteMove(MoveFactory.parseMove(str));
+            } catch (Tak.TakException e) {
+                throw new IllegalStateException("Invalid move " + str + " in a benchmark position", e);
+            }
+        }
+
+        return tak;
+    }
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import base.BitRoads;
+import base.RoadGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the road checks of {@link RoadGraph} (union-find groups) and {@link BitRoads}
+ * (flood fill on a bitmask) the way a search uses them: one square changes owner, then both
+ * players are asked for a road. The changes are a fixed random sequence that keeps about half
+ * of the board owned, so roads come and go.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoadCheckBenchmark {
+
+    private static final int CHANGES = 1 << 16;
+
+    @Param({"5", "6", "8"})
+    public int size;
+
+    private int[] squares;
+    private int[] owners;
+    private int next;
+
+    private RoadGraph graph;
+    private BitRoads roads;
+    private long[] bits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        squares = new int[CHANGES];
+        owners = new int[CHANGES];
+        for (int i = 0; i < CHANGES; i++) {
+            squares[i] = random.nextInt(size * size);
+            // one change in five leaves the square to no one
+            int owner = random.nextInt(5);
+            owners[i] = owner == 0 ? -1 : owner % 2;
+        }
+
+        graph = new RoadGraph(size);
+        roads = BitRoads.forSize(size);
+        bits = new long[2];
+        next = 0;
+    }
+
+    private int advance() {
+        int i = next;
+        next = (next + 1) & (CHANGES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public boolean roadGraph() {
+        int i = advance();
+        int square = squares[i];
+        graph.updateVertex(square % size, square / size, owners[i]);
+
+        return graph.isTopToBottom(0) || graph.isLeftToRight(0)
+                || graph.isTopToBottom(1) || graph.isLeftToRight(1);
+    }
+
+    @Benchmark
+    public boolean bitRoads() {
+        int i = advance();
+        long bit = 1L << squares[i];
+        bits[0] &= ~bit;
+        bits[1] &= ~bit;
+        if (owners[i] != -1) {
+            bits[owners[i]] |= bit;
+        }
+
+        return roads.isRoad(bits[0]) || roads.isRoad(bits[1]);
+    }
+
+    @Benchmark
+    public int bitRoadsDistance() {
+        int i = advance();
+        long bit = 1L << squares[i];
+        bits[0] &= ~bit;
+        bits[1] &= ~bit;
+        if (owners[i] != -1) {
+            bits[owners[i]] |= bit;
+        }
+
+        return roads.distanceToRoad(bits[0], ~(bits[0] | bits[1]));
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The operations of the rules engine every search node does: copying a position, executing
+ * (and undoing) a move, and enumerating the moves of a position, both with the iterator and
+ * into an int buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({Positions.OPENING_5, Positions.MIDGAME_5, Positions.MIDGAME_6, Positions.MIDGAME_8})
+    public String position;
+
+    private Tak tak;
+    private Move[] moves;
+    private int next;
+    private int[] buffer;
+
+    @Setup
+    public void setUp() {
+        tak = Positions.get(position);
+
+        List<Move> list = MoveFactory.allPossibleMovesList(tak);
+        moves = list.toArray(new Move[0]);
+        buffer = new int[MoveFactory.maxMoves(tak)];
+    }
+
+    @Benchmark
+    public Tak copy() {
+        return new Tak(tak);
+    }
+
+    /**
+     * Executes the moves of the position one after the other, each undone right away.
+     */
+    @Benchmark
+    public Tak.Undo executeAndUndo() {
+        Move move = moves[next];
+        next = next + 1 == moves.length ? 0 : next + 1;
+
+        Tak.Undo undo = tak.executeMove(move);
+        tak.undoMove(undo);
+        return undo;
+    }
+
+    @Benchmark
+    public void allPossibleMoves(Blackhole blackhole) {
+        for (Move move : MoveFactory.allPossibleMoves(tak)) {
+            blackhole.consume(move);
+        }
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        return MoveFactory.generateMoves(tak, buffer, 0);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import base.Tak;
+import engine.CompactGameTree;
+import engine.engines.CompactMonteCarloEngine;
+import engine.engines.MonteCarloEngine;
+import engine.models.ExperimentalHeuristic1;
+import engine.rollouts.ModelRolloutPolicy;
+
+import java.lang.ref.Reference;
+import java.util.Random;
+
+/**
+ * Compares the memory used per node by the {@link engine.GameTree} of {@link MonteCarloEngine} and
+ * the {@link CompactGameTree} of {@link CompactMonteCarloEngine}. Both engines search the 6x6
+ * opening of {@link Positions}; the heap in use (after a garbage collection) before and after the
+ * search, divided by the amount of nodes, is the cost of a node. JMH measures time and allocation
+ * rates, not what stays reachable, so this one is a plain program. <br> <br>
+ *
+ * Usage: <code>java -Xmx2g -cp benchmarks/target/benchmarks.jar benchmarks.TreeMemoryBenchmark [playouts]</code>,
+ * by default 200000 playouts. The heap has to fit both trees.
+ */
+public class TreeMemoryBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int playouts = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Tak tak = Positions.get(Positions.OPENING_6);
+
+        double compactNodesPerByte = measureCompactGameTree(tak, playouts);
+        double treeNodesPerByte = measureGameTree(tak, playouts);
+
+        System.out.printf("nodes per GB: %.0f vs %.0f (%.1fx)%n", 1e9 * treeNodesPerByte,
+                1e9 * compactNodesPerByte, compactNodesPerByte / treeNodesPerByte);
+    }
+
+    private static double measureGameTree(Tak tak, int playouts) throws InterruptedException {
+        long before = usedMemory();
+        MonteCarloEngine engine = new MonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()), playouts,
+                MonteCarloEngine.DEFAULT_EXPLORATION, Integer.MAX_VALUE, new Random(1));
+        engine.solve(tak, 0, 0);
+        long bytes = usedMemory() - before;
+        int nodes = engine.getTreeHandler().getNodeCount();
+
+        System.out.println("GameTree:        " + nodes + " nodes, " + bytes / nodes + " bytes/node ("
+                + engine.getPlayoutCount() + " playouts)");
+
+        // the tree must stay reachable until we measured it
+        Reference.reachabilityFence(engine);
+        return (double) nodes / bytes;
+    }
+
+    private static double measureCompactGameTree(Tak tak, int playouts) throws InterruptedException {
+        long before = usedMemory();
+        CompactMonteCarloEngine engine = new CompactMonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()),
+                playouts, MonteCarloEngine.DEFAULT_EXPLORATION, Integer.MAX_VALUE, new Random(1));
+        engine.solve(tak, 0, 0);
+        long bytes = usedMemory() - before;
+        int nodes = engine.getTree().size();
+
+        System.out.println("CompactGameTree: " + nodes + " nodes, " + bytes / nodes + " bytes/node ("
+                + engine.getPlayoutCount() + " playouts, " + CompactGameTree.BYTES_PER_NODE + " bytes/node in use)");
+
+        Reference.reachabilityFence(engine);
+        return (double) nodes / bytes;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,684 @@
+package base;
+
+import base.move.Move;
+import base.move.PlaceMove;
+import base.move.StackMove;
+import structures.Direction;
+
+/**
+ * A compact representation of a Tak position for boards up to 8x8. <br> <br>
+ *
+ * Instead of a 2D array of {@link Stack} objects, every square is a bit in a {@code long}
+ * (square index {@code x + size * y}, the same numbering as {@link RoadGraph}). For each player
+ * we keep three occupancy masks for the type of the stone on <em>top</em> of a square:
+ * flat, standing and cap. Since only the top stone of a stack can be anything but flat,
+ * the rest of a stack is fully described by who owns each stone: these are packed
+ * one bit per stone (0 for white, 1 for black, bottom stone first) into a primitive
+ * {@code long[]} with a fixed amount of words per square. <br> <br>
+ *
+ * The rules implemented here are exactly the rules of {@link Tak#executeMove(Move)} and
+ * {@link Tak#validateMove(Move)}, so the two representations can be converted into one
+ * another with {@link #fromTak(Tak)} and {@link #toTak()} at any point of a game.
+ */
+public class BitBoard {
+
+    private Tak.GameType gameType;
+    private int size;
+
+    private long boardMask;
+    private BitRoads roads;
+
+    private long[] flats = new long[2];
+    private long[] standing = new long[2];
+    private long[] caps = new long[2];
+
+    private int words;
+    private int[] heights;
+    private long[] stackBits;
+
+    private int[] sideStones = new int[2];
+    private int[] capStones = new int[2];
+
+    private Tak.GameResult result = Tak.GameResult.ONGOING;
+    private int currentPlayer = 0;
+    private boolean firstMove = true;
+
+    /**
+     * @param type The GameType that specifies the board size
+     *             and player stone amounts.
+     * @throws IllegalArgumentException If the board does not fit in a {@code long}.
+     */
+    public BitBoard(Tak.GameType type) {
+        if (type.size > 8) {
+            throw new IllegalArgumentException("BitBoard only supports boards up to 8x8.");
+        }
+
+        gameType = type;
+        size = type.size;
+
+        boardMask = size == 8 ? -1L : (1L << (size * size)) - 1;
+        roads = BitRoads.forSize(size);
+
+        words = (2 * (type.sideStones + type.capStones) + 63) / 64;
+        heights = new int[size * size];
+        stackBits = new long[size * size * words];
+
+        sideStones[0] = sideStones[1] = type.sideStones;
+        capStones[0] = capStones[1] = type.capStones;
+    }
+
+    /**
+     * Creates a deep copy of a BitBoard object.
+     * @param other The BitBoard object to copy.
+     */
+    public BitBoard(BitBoard other) {
+        gameType = other.gameType;
+        size = other.size;
+
+        boardMask = other.boardMask;
+        roads = other.roads;
+
+        flats = other.flats.clone();
+        standing = other.standing.clone();
+        caps = other.caps.clone();
+
+        words = other.words;
+        heights = other.heights.clone();
+        stackBits = other.stackBits.clone();
+
+        sideStones = other.sideStones.clone();
+        capStones = other.capStones.clone();
+
+        result = other.result;
+        currentPlayer = other.currentPlayer;
+        firstMove = other.firstMove;
+    }
+
+    /**
+     * @param tak The Tak instance to convert
+     * @return A {@code BitBoard} describing exactly the same position as {@code tak}.
+     */
+    public static BitBoard fromTak(Tak tak) {
+        BitBoard board = new BitBoard(tak.getGameType());
+
+        for (int x = 0; x < board.size; x++) {
+            for (int y = 0; y < board.size; y++) {
+                Stack stack = tak.getStackAt(x, y);
+                int sq = board.square(x, y);
+
+                for (int i = 1; i <= stack.size(); i++) {
+                    board.writeBits(sq, i - 1, 1, stack.ownerAt(i));
+                }
+                board.heights[sq] = stack.size();
+
+                if (!stack.isEmpty()) {
+                    board.setTop(sq, stack.topOwner(), stack.topType());
+                }
+            }
+        }
+
+        for (int p = 0; p < 2; p++) {
+            board.sideStones[p] = tak.getPlayer(p).sideStones;
+            board.capStones[p] = tak.getPlayer(p).capStones;
+        }
+
+        board.currentPlayer = tak.getCurrentPlayerIndex();
+        board.firstMove = tak.isFirstMove();
+        board.result = tak.getGameResult();
+
+        return board;
+    }
+
+    /**
+     * @return A new {@link Tak} instance describing exactly the same position as this board.
+     */
+    public Tak toTak() {
+        Tak tak = new Tak(gameType);
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int sq = square(x, y);
+                int height = heights[sq];
+
+                for (int i = 0; i < height; i++) {
+                    Stone.Type type = i == height - 1 ? topType(sq) : Stone.Type.FLAT;
+                    tak.getStackAt(x, y).push(ownerAt(sq, i), type);
+                }
+
+                tak.updateSquare(x, y);
+            }
+        }
+
+        for (int p = 0; p < 2; p++) {
+            tak.getPlayer(p).sideStones = sideStones[p];
+            tak.getPlayer(p).capStones = capStones[p];
+        }
+
+        tak.setState(currentPlayer, firstMove, result);
+
+        return tak;
+    }
+
+    /**
+     * @return The size of the board
+     */
+    public int boardSize() {
+        return size;
+    }
+
+    /**
+     * @return The {@code GameType} this board was created with.
+     */
+    public Tak.GameType getGameType() {
+        return gameType;
+    }
+
+    /**
+     * @return The player index whose turn it is.
+     */
+    public int getCurrentPlayerIndex() {
+        return currentPlayer;
+    }
+
+    /**
+     * @return true if it's the first move of the game, false otherwise.
+     */
+    public boolean isFirstMove() {
+        return firstMove;
+    }
+
+    /**
+     * @return The player index who "owns" the stone being played.
+     * (See {@link Tak#getStonePlayer()}.)
+     */
+    public int getStonePlayer() {
+        if (firstMove) {
+            return 1 - currentPlayer;
+        } else {
+            return currentPlayer;
+        }
+    }
+
+    /**
+     * @return {@code true} if and only if the game has ended, {@code false} otherwise.
+     */
+    public boolean isGameOver() {
+        return result != Tak.GameResult.ONGOING;
+    }
+
+    /**
+     * @return The {@code GameResult} of this position.
+     */
+    public Tak.GameResult getGameResult() {
+        return result;
+    }
+
+    /**
+     * @param player The player index
+     * @return The amount of side stones the player has left.
+     */
+    public int getSideStones(int player) {
+        return sideStones[player];
+    }
+
+    /**
+     * @param player The player index
+     * @return The amount of cap stones the player has left.
+     */
+    public int getCapStones(int player) {
+        return capStones[player];
+    }
+
+    /**
+     * @param player The player index
+     * @return The mask of squares with a flat stone of {@code player} on top.
+     */
+    public long getFlats(int player) {
+        return flats[player];
+    }
+
+    /**
+     * @param player The player index
+     * @return The mask of squares with a standing stone of {@code player} on top.
+     */
+    public long getStanding(int player) {
+        return standing[player];
+    }
+
+    /**
+     * @param player The player index
+     * @return The mask of squares with a cap stone of {@code player} on top.
+     */
+    public long getCaps(int player) {
+        return caps[player];
+    }
+
+    /**
+     * @return The mask of all squares with at least one stone.
+     */
+    public long getOccupied() {
+        return flats[0] | flats[1] | standing[0] | standing[1] | caps[0] | caps[1];
+    }
+
+    /**
+     * @param x The x coord
+     * @param y The y coord
+     * @return The number of stones at the square.
+     */
+    public int heightAt(int x, int y) {
+        return heights[square(x, y)];
+    }
+
+    /**
+     * @param x The x coord
+     * @param y The y coord
+     * @param index The index of the stone, 0 being the bottom stone.
+     * @return The player who owns the stone.
+     */
+    public int ownerAt(int x, int y, int index) {
+        return ownerAt(square(x, y), index);
+    }
+
+    /**
+     * @param x The x coord
+     * @param y The y coord
+     * @return The player who controls the square or -1 if it is empty.
+     */
+    public int topPlayer(int x, int y) {
+        int sq = square(x, y);
+        return heights[sq] == 0 ? -1 : ownerAt(sq, heights[sq] - 1);
+    }
+
+    /**
+     * @param x The x coord
+     * @param y The y coord
+     * @return The type of the top stone at the square ({@code FLAT} if it is empty,
+     * just like the sentinel stone of a {@link Stack}).
+     */
+    public Stone.Type topTypeAt(int x, int y) {
+        return topType(square(x, y));
+    }
+
+    /**
+     * @param n The variable to check
+     * @return {@code true} if and only if {@code 0 <= n < board size}.
+     */
+    public boolean inBounds(int n) {
+        return n >= 0 && n < size;
+    }
+
+    /**
+     * @param x The x coord
+     * @param y the y coord
+     * @return {@code true} if and only if {@code inBounds(x) && inBounds(y)}
+     */
+    public boolean inBounds(int x, int y) {
+        return inBounds(x) && inBounds(y);
+    }
+
+    /**
+     * Checks first if the move is valid before trying to execute the move.
+     * @param move The move to execute
+     * @throws Tak.TakException If the given move is invalid.
+     */
+    public void safeExecuteMove(Move move) throws Tak.TakException {
+        StringBuilder message = new StringBuilder();
+
+        if (!validateMove(move, message)) {
+            throw new Tak.TakException(message.toString());
+        }
+
+        if (isGameOver()) {
+            throw new Tak.TakException("Game is over.");
+        }
+
+        executeMove(move);
+    }
+
+    /**
+     * Executes the given move without checking for validity.
+     * Use <code>safeExecuteMove(...)</code> for checks.
+     * @param move The move to execute
+     */
+    public void executeMove(Move move) {
+        boolean endsFirstMove = firstMove && currentPlayer == 1;
+
+        if (move instanceof StackMove) {
+            executeStackMove((StackMove) move);
+        } else {
+            executePlaceMove((PlaceMove) move);
+        }
+
+        if (endsFirstMove) {
+            firstMove = false;
+        }
+
+        switch (checkWin()) {
+            case -1: currentPlayer = 1 - currentPlayer; break;
+            case 0: result = Tak.GameResult.WHITE; break;
+            case 1: result = Tak.GameResult.BLACK; break;
+            case 2: result = Tak.GameResult.TIE; break;
+        }
+    }
+
+    private void executePlaceMove(PlaceMove move) {
+        int sq = square(move.x, move.y);
+        int player = getStonePlayer();
+
+        writeBits(sq, heights[sq], 1, player);
+        heights[sq] += 1;
+        setTop(sq, player, move.type);
+
+        if (move.type == Stone.Type.CAP) {
+            capStones[currentPlayer] -= 1;
+        } else {
+            sideStones[currentPlayer] -= 1;
+        }
+    }
+
+    private void executeStackMove(StackMove move) {
+        int origin = square(move.x, move.y);
+        int delta = move.dir.dx + size * move.dir.dy;
+
+        Stone.Type carriedType = topType(origin);
+        int start = heights[origin] - move.pickup;
+        long carried = readBits(origin, start, move.pickup);
+
+        clearTop(origin);
+        writeBits(origin, start, move.pickup, 0);
+        heights[origin] = start;
+        if (start > 0) {
+            setTop(origin, ownerAt(origin, start - 1), Stone.Type.FLAT);
+        }
+
+        int sq = origin;
+        int dropped = 0;
+        for (int i = 0; i < move.dropCount(); i++) {
+            sq += delta;
+
+            if (i == move.dropCount() - 1 && heights[sq] > 0) {
+                int owner = ownerAt(sq, heights[sq] - 1);
+                clearTop(sq);
+                setTop(sq, owner, Stone.Type.FLAT);
+            }
+
+            int n = move.drop(i);
+            if (n == 0) {
+                continue;
+            }
+
+            writeBits(sq, heights[sq], n, carried);
+            carried >>>= n;
+            dropped += n;
+            heights[sq] += n;
+
+            clearTop(sq);
+            Stone.Type type = dropped == move.pickup ? carriedType : Stone.Type.FLAT;
+            setTop(sq, ownerAt(sq, heights[sq] - 1), type);
+        }
+    }
+
+    /**
+     * @return 0 if player 0 won, 1 if player 1 won, 2 if its a tie, or -1 if the game continues.
+     */
+    private int checkWin() {
+        // if either player won by road, we start with curr player in case of simultaneous win
+        int curr = currentPlayer;
+        for (int i = 0; i < 2; i++) {
+            if (isRoadWin(curr)) {
+                return curr;
+            }
+            curr = 1 - currentPlayer;
+        }
+
+        // if the current player does not have any stones remaining or if the board is filled
+        boolean hasStones = firstMove || sideStones[currentPlayer] > 0 || capStones[currentPlayer] > 0;
+        if (!hasStones || getOccupied() == boardMask) {
+            return flatStoneWin();
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param player The player to check the road win for
+     * @return {@code true} if and only if {@code player} has won by a road
+     * connection, {@code false} otherwise.
+     */
+    public boolean isRoadWin(int player) {
+        return roads.isRoad(flats[player] | caps[player]);
+    }
+
+    /**
+     * @param player The player
+     * @return The least amount of empty squares {@code player} has to place on to complete a road,
+     * 0 if the player has a road, {@code BitRoads.UNREACHABLE} if the empty squares are not enough.
+     */
+    public int distanceToRoad(int player) {
+        return roads.distanceToRoad(flats[player] | caps[player], ~getOccupied());
+    }
+
+    /**
+     * @return 0 if player 0 has more flat stones on top,
+     * 1 if player 1 has more flat stones on top,
+     * 2 if they have the same amount
+     */
+    private int flatStoneWin() {
+        int result = Long.bitCount(flats[1]) - Long.bitCount(flats[0]);
+
+        if (result < 0) {
+            return 0;
+        } else if (result > 0) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    /**
+     * @param move The move to validate
+     * @return {@code false} if the move is invalid for any reason
+     * (not the players turn to play, invalid move), {@code true} otherwise
+     */
+    public boolean validateMove(Move move) {
+        return validateMove(move, new StringBuilder());
+    }
+
+    /**
+     * Same checks as {@code Tak.validateMove(...)}, except that a stack move
+     * running off the board is reported as invalid instead of throwing.
+     *
+     * @param move The move to validate
+     * @param message An empty message container that will contain specific
+     *                error messages if this method returns false.
+     * @return {@code false} if the move is invalid for any reason, {@code true} otherwise
+     */
+    private boolean validateMove(Move move, StringBuilder message) {
+        if (!inBounds(move.x, move.y)) {
+            message.append("Move location is out of bounds.");
+            return false;
+        }
+
+        //first move should place a flat stone
+        if (firstMove) {
+            if (!(move instanceof PlaceMove)
+                    || !((PlaceMove) move).type.equals(Stone.Type.FLAT)) {
+                message.append("First moves should place a flat stone.");
+                return false;
+            }
+        }
+
+        if (move instanceof StackMove) {
+            return validateStackMove((StackMove) move, message);
+        } else {
+            return validatePlaceMove((PlaceMove) move, message);
+        }
+    }
+
+    private boolean validatePlaceMove(PlaceMove move, StringBuilder message) {
+        message.append("Cannot place stone, ");
+
+        //the tile which a piece is going on better be empty
+        if (heights[square(move.x, move.y)] != 0) {
+            message.append("square already occupied.");
+            return false;
+        }
+
+        //they also should have sufficient pieces
+        if (move.type.equals(Stone.Type.CAP)) {
+            if (capStones[getStonePlayer()] <= 0) {
+                message.append("out of capstones!");
+                return false;
+            }
+        } else {
+            if (sideStones[getStonePlayer()] <= 0) {
+                message.append("out of sidestones!");
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean validateStackMove(StackMove move, StringBuilder message) {
+        message.append("Cannot execute stack move, ");
+
+        int origin = square(move.x, move.y);
+
+        // current player must own the stack they are trying to move
+        if (heights[origin] == 0 || currentPlayer != ownerAt(origin, heights[origin] - 1)) {
+            message.append("player does not control stack.");
+            return false;
+        }
+
+        // pickup amount must be less than or equal to the amount of stones at the point
+        if (move.pickup > heights[origin]) {
+            message.append("not enough stones to pickup.");
+            return false;
+        }
+
+        Direction dir = move.dir;
+        int tempX = move.x;
+        int tempY = move.y;
+        int remainingStones = move.pickup;
+
+        for (int i = 0; i < move.dropCount() - 1; i++) {
+            // should have enough stones to drop down
+            if (remainingStones <= 0) {
+                message.append("not enough stones to drop down.");
+                return false;
+            }
+
+            tempX += dir.dx;
+            tempY += dir.dy;
+            if (!inBounds(tempX, tempY)) {
+                message.append("stack runs off the board.");
+                return false;
+            }
+
+            // everything except the last move should have a flat stone on top
+            if (topType(square(tempX, tempY)) != Stone.Type.FLAT) {
+                message.append("stone in the path is not flat!");
+                return false;
+            }
+
+            remainingStones -= move.drop(i);
+        }
+
+        tempX += dir.dx;
+        tempY += dir.dy;
+        if (!inBounds(tempX, tempY)) {
+            message.append("stack runs off the board.");
+            return false;
+        }
+
+        // if the last stone is not flat, it better be a standing stone, and there
+        // should only be one remaining piece to drop which should be a cap stone
+        Stone.Type last = topType(square(tempX, tempY));
+        if (last != Stone.Type.FLAT) {
+            if (!(last == Stone.Type.STANDING
+                    && topType(origin) == Stone.Type.CAP
+                    && move.drop(move.dropCount() - 1) == 1)) {
+
+                message.append("stone in the path is not flat!");
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int square(int x, int y) {
+        return x + size * y;
+    }
+
+    private Stone.Type topType(int sq) {
+        long bit = 1L << sq;
+        if (((standing[0] | standing[1]) & bit) != 0) {
+            return Stone.Type.STANDING;
+        } else if (((caps[0] | caps[1]) & bit) != 0) {
+            return Stone.Type.CAP;
+        } else {
+            return Stone.Type.FLAT;
+        }
+    }
+
+    private void setTop(int sq, int player, Stone.Type type) {
+        long bit = 1L << sq;
+        switch (type) {
+            case FLAT: flats[player] |= bit; break;
+            case STANDING: standing[player] |= bit; break;
+            case CAP: caps[player] |= bit; break;
+        }
+    }
+
+    private void clearTop(int sq) {
+        long bit = ~(1L << sq);
+        for (int p = 0; p < 2; p++) {
+            flats[p] &= bit;
+            standing[p] &= bit;
+            caps[p] &= bit;
+        }
+    }
+
+    private int ownerAt(int sq, int index) {
+        return (int) (stackBits[sq * words + (index >>> 6)] >>> (index & 63)) & 1;
+    }
+
+    /**
+     * @param sq The square
+     * @param from The index of the first stone to read (0 being the bottom)
+     * @param n The amount of stones to read, at most 64
+     * @return The owners of the stones, the lowest stone in the lowest bit.
+     */
+    private long readBits(int sq, int from, int n) {
+        int word = sq * words + (from >>> 6);
+        int offset = from & 63;
+
+        long bits = stackBits[word] >>> offset;
+        if (offset + n > 64) {
+            bits |= stackBits[word + 1] << (64 - offset);
+        }
+
+        return n == 64 ? bits : bits & ((1L << n) - 1);
+    }
+
+    /**
+     * @param sq The square
+     * @param from The index of the first stone to write (0 being the bottom)
+     * @param n The amount of stones to write, at most 64
+     * @param bits The owners of the stones, the lowest stone in the lowest bit.
+     */
+    private void writeBits(int sq, int from, int n, long bits) {
+        int word = sq * words + (from >>> 6);
+        int offset = from & 63;
+        long mask = n == 64 ? -1L : (1L << n) - 1;
+        bits &= mask;
+
+        stackBits[word] = (stackBits[word] & ~(mask << offset)) | (bits << offset);
+        if (offset + n > 64) {
+            long highMask = mask >>> (64 - offset);
+            stackBits[word + 1] = (stackBits[word + 1] & ~highMask) | (bits >>> (64 - offset));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package base;
+
+/**
+ * Road checks on a board given as a {@code long} bitmask, one bit per square (square index
+ * {@code x + size * y}, the same numbering as {@link RoadGraph} and {@link BitBoard}), which fits
+ * every board up to 8x8. <br> <br>
+ *
+ * A road is found by flood filling: starting from the road squares on one edge, we add every road
+ * square next to the squares reached so far (with a shift and a mask per direction) until we reach
+ * the opposite edge or nothing changes. The same fill, allowed to also step onto squares that could
+ * still be claimed, gives the amount of squares a player is short of a road. <br> <br>
+ *
+ * Instances only hold the edge masks of a size and never change, <code>forSize(...)</code> shares
+ * one per size.
+ */
+public final class BitRoads {
+
+    /**
+     * The distance to a road that can't be completed.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final BitRoads[] BY_SIZE = new BitRoads[9];
+
+    static {
+        for (int size = 1; size <= 8; size++) {
+            BY_SIZE[size] = new BitRoads(size);
+        }
+    }
+
+    private final int size;
+    private final long boardMask;
+    private final long topRow;
+    private final long bottomRow;
+    private final long leftColumn;
+    private final long rightColumn;
+
+    private BitRoads(int size) {
+        this.size = size;
+
+        boardMask = size == 8 ? -1L : (1L << (size * size)) - 1;
+        bottomRow = (1L << size) - 1;
+        topRow = bottomRow << (size * (size - 1));
+
+        long left = 0;
+        for (int y = 0; y < size; y++) {
+            left |= 1L << (size * y);
+        }
+        leftColumn = left;
+        rightColumn = left << (size - 1);
+    }
+
+    /**
+     * @param size The size of the board, 1 to 8
+     * @return The road checker of that size.
+     * @throws IllegalArgumentException If the board does not fit in a {@code long}.
+     */
+    public static BitRoads forSize(int size) {
+        if (size < 1 || size > 8) {
+            throw new IllegalArgumentException("Roads can only be checked on boards up to 8x8.");
+        }
+
+        return BY_SIZE[size];
+    }
+
+    /**
+     * @param road The road-eligible squares (flats and caps) of a player
+     * @return True if the squares connect the top and bottom rows. False otherwise.
+     */
+    public boolean isTopToBottom(long road) {
+        return connects(road, bottomRow, topRow);
+    }
+
+    /**
+     * @param road The road-eligible squares (flats and caps) of a player
+     * @return True if the squares connect the left and right columns. False otherwise.
+     */
+    public boolean isLeftToRight(long road) {
+        return connects(road, leftColumn, rightColumn);
+    }
+
+    /**
+     * @param road The road-eligible squares (flats and caps) of a player
+     * @return True if the squares connect two opposite edges.
+     */
+    public boolean isRoad(long road) {
+        return isTopToBottom(road) || isLeftToRight(road);
+    }
+
+    private boolean connects(long road, long from, long to) {
+        long reached = road & from;
+        if (reached == 0 || (road & to) == 0) {
+            return false;
+        }
+
+        while (true) {
+            long grown = grow(reached) & road;
+
+            if ((grown & to) != 0) {
+                return true;
+            } else if (grown == reached) {
+                return false;
+            }
+
+            reached = grown;
+        }
+    }
+
+    /**
+     * @param road The road-eligible squares (flats and caps) of a player
+     * @param square The index of a square of {@code road}
+     * @return The squares of {@code road} connected to the square, the square included.
+     */
+    public long group(long road, int square) {
+        return fill(road, 1L << square);
+    }
+
+    /**
+     * @return The squares in {@code squares} and the squares next to them.
+     */
+    private long grow(long squares) {
+        return (squares | (squares << size) | (squares >>> size)
+                | ((squares & ~rightColumn) << 1) | ((squares & ~leftColumn) >>> 1)) & boardMask;
+    }
+
+    /**
+     * @return The squares of {@code road} connected to {@code seed}, and {@code seed} itself.
+     */
+    private long fill(long road, long seed) {
+        road |= seed;
+        long reached = seed;
+
+        while (true) {
+            long grown = grow(reached) & road;
+            if (grown == reached) {
+                return reached;
+            }
+
+            reached = grown;
+        }
+    }
+
+    /**
+     * @param road The road-eligible squares (flats and caps) of a player
+     * @param open The squares the player could still make road-eligible (e.g. the empty squares)
+     * @return The least amount of squares of {@code open} the player needs to complete a road
+     * in either direction, 0 if the player has a road, {@code UNREACHABLE} if there is no way.
+     */
+    public int distanceToRoad(long road, long open) {
+        return Math.min(distance(road, open, bottomRow, topRow), distance(road, open, leftColumn, rightColumn));
+    }
+
+    /**
+     * Grows the squares reachable with at most {@code d} squares of {@code open} one layer
+     * at a time, every layer filled through the squares of {@code road} for free.
+     */
+    private int distance(long road, long open, long from, long to) {
+        road &= boardMask;
+        open &= boardMask & ~road;
+
+        long reached = fill(road, road & from);
+        for (int d = 0; ; d++) {
+            if ((reached & to) != 0) {
+                return d;
+            }
+
+            long next = fill(road, reached | ((grow(reached) | from) & open));
+            if (next == reached) {
+                return UNREACHABLE;
+            }
+
+            reached = next;
+        }
+    }
+}
@@ -1,30 +1,24 @@
 package base;
 
-import jdk.jshell.execution.DirectExecutionControl;
-import structures.Direction;
-import structures.Point;
-
-import java.util.List;
-import java.util.ArrayList;
-import java.util.ArrayDeque;
-import java.util.Queue;
 import java.util.Arrays;
 
 /**
- * Used for a naive implementation to check for road wins. <br> <br>
+ * Keeps track of who owns what square for road wins and of the groups of connected squares each
+ * player owns. <br> <br>
  *
  * We keep track of who owns what square with the vertices array
  * (i.e. vertices[i] = 0 if player 0 owns it, 1 if player 1 owns it,
- * or -1 if no one owns it or it is a standing stone). We also create
- * four {@link VirtualNode} objects TOP, BOTTOM, LEFT, RIGHT, whose neighbors are
- * all TOP vertices, all BOTTOM vertices, etc. To prevent "backwash"
- * (say, that TOP and RIGHT are connected via two corners and BOTTOM),
- * TOP and LEFT have directed edges <em>to</em> the board and
- * BOTTOM and RIGHT have directed edges <em>from</em> the board.
- * So, TOP has neighbors ALL_TOP_NODES and LEFT has neighbors
- * ALL_LEFT_NODES. BOTTOM and RIGHT have no neighbors, but
- * any right vertex has RIGHT as a neighbor, and any bottom vertex
- * has BOTTOM as a neighbor. <br> <br>
+ * or -1 if no one owns it or it is a standing stone). The squares of a player that are connected
+ * form a group in a union-find structure: every square points to a parent square of the same
+ * group, the root of the group records which edges of the board (top, bottom, left, right) the
+ * group touches. A player has a road as soon as one group touches two opposite edges. <br> <br>
+ *
+ * A square a player gains joins the groups of its neighbors right away. A square a player loses
+ * may split its group, which union-find cannot undo: the squares of the former group are found
+ * again by flood filling the squares of the player (as a {@link BitRoads} bitmask) from each
+ * neighbor of the lost square, and every part becomes a group of its own. Both only touch the
+ * group of the square, so executing and undoing moves never goes over the whole board, and
+ * "does this player have a road" is answered in constant time. <br> <br>
  *
  * The invariant that vertices[i] = 0 if player 0 owns it, 1 if player 1 owns it,
  * and -1 if no one owns it or it is a standing stone must be kept in other classes
@@ -32,39 +26,39 @@ import java.util.Arrays;
  */
 public class RoadGraph {
 
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+    private static final int LEFT = 4;
+    private static final int RIGHT = 8;
+
     private int[] vertices;
     private int size;
-    private List<Integer> ALL_LEFT_NODES;
-    private List<Integer> ALL_TOP_NODES;
+    private BitRoads roads;
 
-    private VirtualNode TOP;
-    private VirtualNode BOTTOM;
-    private VirtualNode LEFT;
-    private VirtualNode RIGHT;
+    // the union-find structure of the groups, shared by both players since a square has one owner
+    private int[] parent;
+    private int[] edges;
+
+    // per player: the squares as a bitmask, and the roads of the groups
+    private long[] owned = new long[2];
+    private boolean[] topToBottom = new boolean[2];
+    private boolean[] leftToRight = new boolean[2];
 
     /**
      * Initialize the Road Graph with no one owning anything.
      * @param size The boardSize of the board
+     * @throws IllegalArgumentException If the board is larger than 8x8.
      */
     public RoadGraph(int size) {
         this.size = size;
-        vertices = new int[size * size + 4];
+        roads = BitRoads.forSize(size);
+        vertices = new int[size * size];
+        parent = new int[size * size];
+        edges = new int[size * size];
 
         Arrays.fill(vertices, -1);
-
-        TOP = new VirtualNode(size * size);
-        BOTTOM = new VirtualNode(size * size + 1);
-        LEFT = new VirtualNode(size * size + 2);
-        RIGHT = new VirtualNode(size * size + 3);
-
-        ALL_LEFT_NODES = new ArrayList<>(size);
-        ALL_TOP_NODES = new ArrayList<>(size);
-        for (int i = 0; i <= size * size - size; i += size) {
-            ALL_LEFT_NODES.add(i);
-        }
-
-        for (int i = size * size - size; i < size * size; i += 1) {
-            ALL_TOP_NODES.add(i);
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
         }
     }
 
@@ -74,24 +68,29 @@ public class RoadGraph {
      */
     public RoadGraph(RoadGraph graph) {
         this.size = graph.size;
-        vertices = new int[graph.vertices.length];
-        System.arraycopy(graph.vertices, 0, vertices, 0, vertices.length);
-
-        TOP = graph.TOP;
-        BOTTOM = graph.BOTTOM;
-        LEFT = graph.LEFT;
-        RIGHT = graph.RIGHT;
-
-        ALL_LEFT_NODES = graph.ALL_LEFT_NODES;
-        ALL_TOP_NODES = graph.ALL_TOP_NODES;
+        roads = graph.roads;
+        vertices = graph.vertices.clone();
+        parent = graph.parent.clone();
+        edges = graph.edges.clone();
+
+        owned = graph.owned.clone();
+        topToBottom = graph.topToBottom.clone();
+        leftToRight = graph.leftToRight.clone();
     }
 
     private int pointToVertex(int x, int y) {
         return x + size * y;
     }
 
-    private Point vertexToPoint(int n) {
-        return new Point(n % size, n / size);
+    /**
+     * @return The edges of the board the vertex is on.
+     */
+    private int edgesOf(int n) {
+        int x = n % size;
+        int y = n / size;
+
+        return (y == size - 1 ? TOP : 0) | (y == 0 ? BOTTOM : 0)
+                | (x == 0 ? LEFT : 0) | (x == size - 1 ? RIGHT : 0);
     }
 
     /**
@@ -100,54 +99,164 @@ public class RoadGraph {
      * @param player The player who owns the stack at x, y
      */
     public void updateVertex(int x, int y, int player) {
-        vertices[pointToVertex(x, y)] = player;
+        int n = pointToVertex(x, y);
+        int previous = vertices[n];
+        if (previous == player) {
+            return;
+        }
+
+        vertices[n] = player;
+
+        if (previous != -1) {
+            owned[previous] &= ~(1L << n);
+            remove(n, previous);
+        }
+
+        if (player != -1) {
+            owned[player] |= 1L << n;
+            add(n, player);
+        }
     }
 
     /**
-     * @param player The player to check road win from left to right
-     * @return True if player has a road from left to right. False otherwise.
+     * Splits the former group of the vertex, which the player no longer owns, into the groups
+     * of its neighbors.
      */
-    public boolean isLeftToRight(int player) {
-        return isConnected(LEFT, RIGHT, player);
+    private void remove(int n, int player) {
+        long regrouped = 0;
+
+        int x = n % size;
+        if (x > 0) {
+            regrouped |= regroup(n - 1, player, regrouped);
+        }
+
+        if (x < size - 1) {
+            regrouped |= regroup(n + 1, player, regrouped);
+        }
+
+        if (n >= size) {
+            regrouped |= regroup(n - size, player, regrouped);
+        }
+
+        if (n < size * size - size) {
+            regrouped |= regroup(n + size, player, regrouped);
+        }
+
+        // only the lost square can have broken a road
+        if (topToBottom[player]) {
+            topToBottom[player] = roads.isTopToBottom(owned[player]);
+        }
+
+        if (leftToRight[player]) {
+            leftToRight[player] = roads.isLeftToRight(owned[player]);
+        }
     }
 
     /**
-     * @param player The player to check road win from top to bottom
-     * @return True if player has a road from top to bottom. False otherwise.
+     * Makes the squares of the player connected to the vertex a group with the vertex as root,
+     * unless the vertex is not the player's or already in {@code regrouped}.
+     *
+     * @return The squares of the new group, 0 if there is none.
      */
-    public boolean isTopToBottom(int player) {
-        return isConnected(TOP, BOTTOM, player);
+    private long regroup(int n, int player, long regrouped) {
+        if (vertices[n] != player || (regrouped & (1L << n)) != 0) {
+            return 0;
+        }
+
+        long group = roads.group(owned[player], n);
+        int mask = 0;
+        for (long rest = group; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            parent[square] = n;
+            mask |= edgesOf(square);
+        }
+
+        edges[n] = mask;
+        return group;
     }
 
     /**
-     * Performs a depth first search from start to end, considering only vertices
-     * owned by the player and not already visited.
-     *
-     * @param start The virtual node to start at (either TOP or LEFT)
-     * @param end The virtual node to end at (either BOTTOM or RIGHT)
-     * @param player The player whose road may connect start and end
-     * @return True if there is a path from start to end, False otherwise.
+     * Makes the vertex a group of its own and joins it with the groups of its neighbors.
      */
-    private boolean isConnected(VirtualNode start, VirtualNode end, int player) {
-        Queue<Integer> toVisit = new ArrayDeque<>(neighborsOf(start, player));
-        boolean[] visited = new boolean[size * size];
-
-        while (!toVisit.isEmpty()) {
-            int node = toVisit.remove();
-            if (node == end.value) {
-                return true;
-            }
-            else if (node >= size * size){
-                continue;
-            }
-            else {
-                visited[node] = true;
-            }
+    private void add(int n, int player) {
+        parent[n] = n;
+        edges[n] = edgesOf(n);
+        recordRoad(n, player);
+
+        int x = n % size;
+        if (x > 0) {
+            join(n, n - 1, player);
+        }
+
+        if (x < size - 1) {
+            join(n, n + 1, player);
+        }
+
+        if (n >= size) {
+            join(n, n - size, player);
+        }
+
+        if (n < size * size - size) {
+            join(n, n + size, player);
+        }
+    }
+
+    /**
+     * Joins the groups of two neighboring vertices if the player owns both.
+     */
+    private void join(int a, int b, int player) {
+        if (vertices[b] != player) {
+            return;
+        }
+
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+
+        parent[rootB] = rootA;
+        edges[rootA] |= edges[rootB];
+        recordRoad(rootA, player);
+    }
+
+    /**
+     * @return The root of the group of the vertex.
+     */
+    private int find(int n) {
+        while (parent[n] != n) {
+            parent[n] = parent[parent[n]]; // path halving
+            n = parent[n];
+        }
+
+        return n;
+    }
+
+    private void recordRoad(int root, int player) {
+        int mask = edges[root];
+        if ((mask & (TOP | BOTTOM)) == (TOP | BOTTOM)) {
+            topToBottom[player] = true;
+        }
 
-            toVisit.addAll(neighborsOf(node, visited, player));
+        if ((mask & (LEFT | RIGHT)) == (LEFT | RIGHT)) {
+            leftToRight[player] = true;
         }
+    }
+
+    /**
+     * @param player The player to check road win from left to right
+     * @return True if player has a road from left to right. False otherwise.
+     */
+    public boolean isLeftToRight(int player) {
+        return leftToRight[player];
+    }
 
-        return false;
+    /**
+     * @param player The player to check road win from top to bottom
+     * @return True if player has a road from top to bottom. False otherwise.
+     */
+    public boolean isTopToBottom(int player) {
+        return topToBottom[player];
     }
 
     /**
@@ -185,90 +294,4 @@ public class RoadGraph {
 
         return stringBuilder.toString();
     }
-
-    /**
-     * @param n The vertex
-     * @param visited boolean array, telling if we have visited a vertex
-     * @param player Two vertices are neighbors if they share the same player
-     * @return A list of neighbors of n, if we haven't visited them before, and
-     * if they belong to the same player
-     */
-    private List<Integer> neighborsOf(int n, boolean[] visited, int player) {
-        List<Integer> result = new ArrayList<>(size - 1);
-
-        for (Direction dir : Direction.values()) {
-            //we avoid checking off the board
-            if (n % size == 0 && dir.equals(Direction.LEFT)
-                || n % size == (size - 1) && dir.equals(Direction.RIGHT)) {
-                continue;
-            }
-
-            int val = pointToVertex(dir.dx, dir.dy);
-            int pNeighbor = n + val;
-
-            if (pNeighbor >= 0 && pNeighbor < size * size
-                    && !visited[pNeighbor]
-                    && vertices[pNeighbor] == vertices[n] && vertices[n] == player) {
-                result.add(pNeighbor);
-            }
-        }
-
-        Point p = vertexToPoint(n);
-        if (p.x == size - 1) {
-            result.add(RIGHT.value);
-        }
-
-        if (p.y == 0) {
-            result.add(BOTTOM.value);
-        }
-
-        return result;
-    }
-
-    /**
-     * We also create four {@link VirtualNode} objects TOP, BOTTOM, LEFT, RIGHT, whose
-     * neighbors are all TOP vertices, all BOTTOM vertices, etc. To prevent
-     * "backwash"(say, that TOP and RIGHT are connected via two corners and
-     * BOTTOM), TOP and LEFT have directed edges <em>to</em> the board and
-     * BOTTOM and RIGHT have directed edges <em>from</em> the board.
-     * So, TOP has neighbors ALL_TOP_NODES and LEFT has neighbors
-     * ALL_LEFT_NODES. BOTTOM and RIGHT have no neighbors, but
-     * any right vertex has RIGHT as a neighbor, and any bottom vertex
-     * has BOTTOM as a neighbor.
-     * @param n The virtual node to check for neighbors
-     * @return A list of neighbors as specified above, filtering out
-     * those that no player owns.
-     */
-    private List<Integer> neighborsOf(VirtualNode n, int player) {
-        ArrayList<Integer> result = new ArrayList<>();
-        if (n.equals(LEFT)) {
-            result = new ArrayList<>(ALL_LEFT_NODES);
-        } else if (n.equals(TOP)) {
-            result = new ArrayList<>(ALL_TOP_NODES);
-        }
-
-        result.removeIf(i -> vertices[i] != player);
-
-        return result;
-    }
-
-    /**
-     * We have 4 {@code VirtualNode} objects TOP, BOTTOM, LEFT, RIGHT, whose
-     * neighbors are all TOP vertices, all BOTTOM vertices, etc. To prevent
-     * "backwash"(say, that TOP and RIGHT are connected via two corners and
-     * BOTTOM), TOP and LEFT have directed edges <em>to</em> the board and
-     * BOTTOM and RIGHT have directed edges <em>from</em> the board.
-     * So, TOP has neighbors ALL_TOP_NODES and LEFT has neighbors
-     * ALL_LEFT_NODES. BOTTOM and RIGHT have no neighbors, but
-     * any right vertex has RIGHT as a neighbor, and any bottom vertex
-     * has BOTTOM as a neighbor.
-     */
-    private static class VirtualNode {
-
-        int value;
-
-        VirtualNode(int v) {
-            value = v;
-        }
-    }
 }
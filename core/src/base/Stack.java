@@ -1,45 +1,52 @@
 package base;
 
-import java.util.Iterator;
-import java.util.Vector;
 import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * A <code>Stack</code> is a collection of {@link Stone} objects.
+ * A <code>Stack</code> is a pile of player-owned stones on one square.
  * <br><br>
  *
- * We maintain the invariant that at index 0 of this vector is always
- * a sentinel stone of type <code>FLAT</code>, owned by player -1.
+ * Only the top stone of a stack can be standing or a cap stone, every stone below it is flat.
+ * So a stack is stored as its height, the type of its top stone and one owner bit per stone
+ * (bit <code>k</code> of <code>low</code>, then <code>high</code>, is the owner of the
+ * <code>k</code>-th stone from the bottom). The 128 bits hold every stone of an 8x8 game, copying
+ * a stack copies four fields and stack moves split and append the owner bits of several stones
+ * at once. <br><br>
+ *
+ * Stones are indexed from 1 (the bottom stone) to <code>size()</code> (the top stone). Index 0 is
+ * a sentinel stone of type <code>FLAT</code>, owned by player -1, which is also what
+ * <code>peek()</code> returns on an empty stack. <code>peek()</code>, <code>get(...)</code> and
+ * <code>stoneIterator(...)</code> describe the stones with shared {@link Stone} objects, for
+ * callers that do not need the bits.
  */
-public class Stack extends Vector<Stone> {
+public class Stack {
 
     /**
-     * Creates an "empty" Stack with initial capacity
-     * (as specified by the Vector class).
+     * The most stones a stack can hold.
      */
-    public Stack(int initialCapacity, int capacityIncrement) {
-        super(initialCapacity, capacityIncrement);
-        add(new Stone(-1, Stone.Type.FLAT));
-    }
+    public static final int MAX_HEIGHT = 128;
 
-    public Stack(Stack stack) {
-        for (Stone stone : stack) {
-            add(new Stone(stone));
-        }
-    }
+    private long low;
+    private long high;
+    private int height;
+    private Stone.Type top = Stone.Type.FLAT;
 
     /**
-     * Looks at the stone at the top of this stack without removing it.
-     *
-     * @return  the stone at the top of this stack.
+     * Creates an empty Stack.
      */
-    public synchronized Stone peek() {
-        int len = tSize();
+    public Stack() {
+    }
 
-        if (len == 0) {
-            throw new EmptyStackException();
-        }
-        return elementAt(len - 1);
+    /**
+     * @param stack The stack to copy
+     */
+    public Stack(Stack stack) {
+        low = stack.low;
+        high = stack.high;
+        height = stack.height;
+        top = stack.top;
     }
 
     /**
@@ -48,46 +55,170 @@ public class Stack extends Vector<Stone> {
      * @return  {@code true} if and only if this stack contains
      *          no player-owned stones; {@code false} otherwise.
      */
-    @Override
     public boolean isEmpty() {
-        return this.size() == 0;
+        return height == 0;
+    }
+
+    /**
+     * See <code>tSize()</code> if looking for the "technical"
+     * boardSize of this stack, i.e. including the sentinel stone.
+     * @return The number of player-owned stones in this stack.
+     */
+    public int size() {
+        return height;
     }
 
     /**
      * Will always be >= 1 because of the sentinel stone.
-     * Identical to <code>Vector.size()</code>. See
-     * <code>Stack.size()</code> for the number of
+     * See <code>size()</code> for the number of
      * player-owned stones in this stack.
      * @return The "technical" boardSize of this stack.
      */
     public int tSize() {
-        return super.size();
+        return height + 1;
     }
 
     /**
-     * See <code>tSize()</code> if looking for the "technical"
-     * boardSize of this stack, i.e. including the sentinel stone.
-     * @return The number of player-owned stones in this stack.
+     * @param index The index of the stone, 1 for the bottom stone up to <code>size()</code>
+     * @return The player owning the stone, -1 for the sentinel stone (index 0).
      */
-    @Override
-    public int size() {
-        return this.tSize() - 1;
+    public int ownerAt(int index) {
+        if (index == 0) {
+            return -1;
+        }
+
+        int k = index - 1;
+        return (int) ((k < 64 ? low >>> k : high >>> (k - 64)) & 1);
     }
 
     /**
-     * Removes stones starting from <code>fromIndex</code>, inclusive, all the way to
-     * <code>toIndex</code>, exclusive. Removes <code>toIndex</code> - <code>fromIndex</code>
-     * stones. (Note <code>fromIndex</code> can never be 0, we cannot remove the sentinel stone.)
-     * @param fromIndex index of first element to remove, inclusive.
-     * @param toIndex index of last element to remove, exclusive.
-     * @throws IllegalArgumentException if <code>fromIndex</code> is 0.
+     * @return The player owning the top stone, -1 if the stack is empty.
      */
-    @Override
-    public void removeRange(int fromIndex, int toIndex) {
-        if (fromIndex == 0) {
+    public int topOwner() {
+        return ownerAt(height);
+    }
+
+    /**
+     * @return The type of the top stone, <code>FLAT</code> if the stack is empty.
+     */
+    public Stone.Type topType() {
+        return top;
+    }
+
+    /**
+     * @param from The index of the lowest stone, 1 for the bottom stone
+     * @param count The amount of stones, at most 64
+     * @return The owner bits of the stones, the stone at <code>from</code> in bit 0.
+     */
+    public long ownerBits(int from, int count) {
+        int k = from - 1;
+        long bits = k >= 64 ? high >>> (k - 64) : k == 0 ? low : (low >>> k) | (high << (64 - k));
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+
+    /**
+     * Puts a stone on top of this stack. The stone it covers becomes flat.
+     *
+     * @param player The player owning the stone
+     * @param type The type of the stone
+     */
+    public void push(int player, Stone.Type type) {
+        append(player, 1, type);
+    }
+
+    /**
+     * Puts a copy of stones of <code>source</code> on top of this stack, the lowest of them first.
+     * The stone they cover becomes flat, the new top stone is of the type it has in
+     * <code>source</code>. <code>source</code> is left as it is.
+     *
+     * @param source The stack to copy the stones from
+     * @param from The index in <code>source</code> of the lowest stone to copy
+     * @param count The amount of stones to copy
+     */
+    public void appendFrom(Stack source, int from, int count) {
+        Stone.Type type = from + count - 1 == source.height ? source.top : Stone.Type.FLAT;
+        append(source.ownerBits(from, count), count, type);
+    }
+
+    private void append(long bits, int count, Stone.Type type) {
+        if (height + count > MAX_HEIGHT) {
+            throw new IllegalStateException("A stack holds at most " + MAX_HEIGHT + " stones.");
+        }
+
+        if (height < 64) {
+            low |= bits << height;
+            if (height > 0 && height + count > 64) {
+                high |= bits >>> (64 - height);
+            }
+        } else {
+            high |= bits << (height - 64);
+        }
+
+        height += count;
+        top = type;
+    }
+
+    /**
+     * Removes the top <code>count</code> stones. The new top stone is flat.
+     *
+     * @param count The amount of stones to remove
+     * @throws IllegalArgumentException If the stack has less than <code>count</code> stones.
+     */
+    public void removeTop(int count) {
+        if (count > height) {
             throw new IllegalArgumentException("Cannot remove sentinel stone.");
         }
-        super.removeRange(fromIndex, toIndex);
+
+        height -= count;
+        if (height < 64) {
+            low &= (1L << height) - 1;
+            high = 0;
+        } else {
+            high &= (1L << (height - 64)) - 1;
+        }
+
+        top = Stone.Type.FLAT;
+    }
+
+    /**
+     * Makes the top stone of type <code>FLAT</code>.
+     */
+    public void flattenTop() {
+        top = Stone.Type.FLAT;
+    }
+
+    /**
+     * @param type The new type of the top stone
+     * @throws EmptyStackException If the stack is empty.
+     */
+    public void setTopType(Stone.Type type) {
+        if (height == 0) {
+            throw new EmptyStackException();
+        }
+
+        top = type;
+    }
+
+    /**
+     * Looks at the stone at the top of this stack without removing it.
+     *
+     * @return  the stone at the top of this stack, the sentinel stone if it is empty.
+     */
+    public Stone peek() {
+        return Stone.of(topOwner(), top);
+    }
+
+    /**
+     * @param index The index of the stone, 0 for the sentinel stone up to <code>size()</code>
+     * @return The stone at <code>index</code>.
+     * @throws IndexOutOfBoundsException If there is no stone at <code>index</code>.
+     */
+    public Stone get(int index) {
+        if (index < 0 || index > height) {
+            throw new IndexOutOfBoundsException("No stone at " + index + " in a stack of " + height + ".");
+        }
+
+        return Stone.of(ownerAt(index), index == height ? top : Stone.Type.FLAT);
     }
 
     /**
@@ -101,6 +232,12 @@ public class Stack extends Vector<Stone> {
         return stoneIterator(n, false);
     }
 
+    /**
+     * @param n the number of stones from the top
+     * @param reversed Whether to go from the top stone down instead
+     * @return An iterator over the last n stones
+     * @throws IllegalArgumentException if n > <code>size()</code>.
+     */
     public Iterator<Stone> stoneIterator(int n, boolean reversed) {
         if (n > size()) {
             throw new IllegalArgumentException("Not enough player stones to iterate over.");
@@ -110,37 +247,49 @@ public class Stack extends Vector<Stone> {
     }
 
     private class StoneIterator implements Iterator<Stone> {
-        int n;
+        int index;
+        int remaining;
         boolean reversed;
 
         StoneIterator(int n, boolean reversed) {
-            if (reversed) {
-                this.n = tSize() - 1;
-            } else {
-                this.n = tSize() - n;
-            }
+            this.index = reversed ? height : height - n + 1;
+            this.remaining = n;
             this.reversed = reversed;
         }
 
         @Override
         public boolean hasNext() {
-            if (reversed) {
-                return n > 0;
-            } else {
-                return n < tSize();
-            }
+            return remaining > 0;
         }
 
         @Override
         public Stone next() {
-            if (reversed) {
-                return elementAt(n--);
-            } else {
-                return elementAt(n++);
+            if (remaining == 0) {
+                throw new NoSuchElementException();
             }
+
+            remaining--;
+            Stone stone = get(index);
+            index += reversed ? -1 : 1;
+            return stone;
         }
     }
 
-    /** use serialVersionUID from JDK 1.0.2 for interoperability */
-    private static final long serialVersionUID = 1224463164541339165L;
+    /**
+     * @return True if <code>o</code> is a stack of the same stones. False otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Stack)) {
+            return false;
+        }
+
+        Stack other = (Stack) o;
+        return height == other.height && top == other.top && low == other.low && high == other.high;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low * 31 + high) * 31 + height * 3 + top.ordinal();
+    }
 }
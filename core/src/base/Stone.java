@@ -3,12 +3,25 @@ package base;
 /**
  * Core piece of the Tak game. Stones are owned by players
  * and can be of any one of the three {@link Type}: <code>FLAT</code>,
- * <code>STANDING</code>, or <code>CAP</code>.
+ * <code>STANDING</code>, or <code>CAP</code>. <br><br>
+ *
+ * Stones never change, so a {@link Stack} hands out the shared instances of <code>of(...)</code>.
  */
 public class Stone {
 
-    public Type type;
-    public int player;
+    private static final Type[] TYPES = Type.values();
+    private static final Stone[] SHARED = new Stone[3 * TYPES.length];
+
+    static {
+        for (int player = -1; player <= 1; player++) {
+            for (Type type : TYPES) {
+                SHARED[(player + 1) * TYPES.length + type.ordinal()] = new Stone(player, type);
+            }
+        }
+    }
+
+    public final Type type;
+    public final int player;
 
     /**
      * @param player The player that owns the stone
@@ -20,18 +33,12 @@ public class Stone {
     }
 
     /**
-     * @return A copy of this stone.
-     */
-    public Stone(Stone stone) {
-        type = stone.type;
-        player = stone.player;
-    }
-
-    /**
-     * Make this stone of type <code>FLAT</code>.
+     * @param player The player that owns the stone, -1 for the sentinel stone of a stack
+     * @param type The type of the stone
+     * @return The shared stone of that player and type.
      */
-    public void flatten() {
-        type = Type.FLAT;
+    public static Stone of(int player, Type type) {
+        return SHARED[(player + 1) * TYPES.length + type.ordinal()];
     }
 
     public enum Type {
@@ -1,10 +1,10 @@
 package base;
 
 import base.move.Move;
-import base.move.MoveFactory;
 import base.move.PlaceMove;
 import base.move.StackMove;
 
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 
 /**
@@ -23,6 +23,9 @@ import java.util.ConcurrentModificationException;
  */
 public class Tak {
 
+    private static final int EMPTY = -1;
+    private static final int NOT_FLAT = 2;
+
     private GameType gameType;
     private Player[] players;
     private Stack[][] board;
@@ -33,6 +36,19 @@ public class Tak {
     private RoadGraph roadGraph;
     private boolean isLocked = false;
 
+    private long boardKey = 0;
+    private long[] squareKeys;
+
+    // what is on top of every square (see topOf(...)), the amount of empty squares
+    // and the amount of flat stones on top per player, kept up to date by updateSquare(...)
+    private int[] tops;
+    private int emptySquares;
+    private int[] flatCounts = new int[2];
+
+    // when every square last changed, on a clock that only moves forward (see getSquareVersion(...))
+    private long[] versions;
+    private long clock;
+
     /**
      * @param type The GameType that specifies the board boardSize
      *             and player stone amounts.
@@ -43,7 +59,7 @@ public class Tak {
         board = new Stack[gameType.size][gameType.size];
         for (int i = 0; i < gameType.size; i++) {
             for (int j = 0; j < gameType.size; j++) {
-                board[i][j] = new Stack(gameType.size, gameType.size / 2);
+                board[i][j] = new Stack();
             }
         }
 
@@ -51,6 +67,13 @@ public class Tak {
                                 new Player(gameType.sideStones, gameType.capStones)};
 
         roadGraph = new RoadGraph(gameType.size);
+        squareKeys = new long[gameType.size * gameType.size];
+
+        tops = new int[gameType.size * gameType.size];
+        Arrays.fill(tops, EMPTY);
+        emptySquares = tops.length;
+
+        versions = new long[gameType.size * gameType.size];
     }
 
     /**
@@ -72,6 +95,15 @@ public class Tak {
         firstMove = other.firstMove;
 
         roadGraph = new RoadGraph(other.roadGraph);
+        boardKey = other.boardKey;
+        squareKeys = other.squareKeys.clone();
+
+        tops = other.tops.clone();
+        emptySquares = other.emptySquares;
+        flatCounts = other.flatCounts.clone();
+
+        versions = other.versions.clone();
+        clock = other.clock;
 
         result = other.result;
         isLocked = false;
@@ -113,6 +145,21 @@ public class Tak {
         return players[getCurrentPlayerIndex()];
     }
 
+    /**
+     * @param index The player index (0 for white, 1 for black).
+     * @return The player with the given index.
+     */
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    /**
+     * @return The {@code GameType} this game was created with.
+     */
+    public GameType getGameType() {
+        return gameType;
+    }
+
     /**
      * @return true if it's the move of the game, false otherwise.
      */
@@ -120,6 +167,85 @@ public class Tak {
         return firstMove;
     }
 
+    /**
+     * The 64-bit Zobrist key of this position (see {@link Zobrist}). The board part
+     * is maintained incrementally as moves are executed and undone, so this is cheap.
+     * Equal positions always have equal keys.
+     *
+     * @return The Zobrist key of this position.
+     */
+    public long zobristKey() {
+        return boardKey ^ Zobrist.stateKey(players, currentPlayer, firstMove, result);
+    }
+
+    /**
+     * Two Tak instances are equal if they describe the same position:
+     * same game type, stacks, stone reserves, player to move, first move phase
+     * and result. Compares the Zobrist keys first, then everything else in case of
+     * a collision. (Note that a {@code Tak} instance is mutable, so it should not be
+     * modified while it is used as a key in a hash based collection.)
+     *
+     * @param o The object to compare with
+     * @return {@code true} if and only if {@code o} is a Tak instance with the same position.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof Tak)) {
+            return false;
+        }
+
+        Tak other = (Tak) o;
+        if (gameType != other.gameType || zobristKey() != other.zobristKey()) {
+            return false;
+        }
+
+        if (currentPlayer != other.currentPlayer || firstMove != other.firstMove || result != other.result) {
+            return false;
+        }
+
+        for (int p = 0; p < 2; p++) {
+            if (players[p].sideStones != other.players[p].sideStones
+                    || players[p].capStones != other.players[p].capStones) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < gameType.size; i++) {
+            for (int j = 0; j < gameType.size; j++) {
+                if (!board[i][j].equals(other.board[i][j])) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return A hash code derived from {@code zobristKey()}.
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristKey());
+    }
+
+    /**
+     * Overwrites the bookkeeping of whose turn it is, whether we are still
+     * in the opening phase and the result. Used by other board representations
+     * in this package to convert back into a {@code Tak} instance.
+     *
+     * @param currentPlayer The player index whose turn it is
+     * @param firstMove Whether the first moves are still being played
+     * @param result The result of the game
+     */
+    void setState(int currentPlayer, boolean firstMove, GameResult result) {
+        this.currentPlayer = currentPlayer;
+        this.firstMove = firstMove;
+        this.result = result;
+    }
+
     /**
      * Locks the current state of the <code>Tak</code> instance.
      * Locking a tak instance, then trying to execute a move will
@@ -181,8 +307,9 @@ public class Tak {
         }
 
         // if the current player does not have any stones remaining or if the board is filled
-        MoveFactory.PlaceMoveIterator pIter = new MoveFactory.PlaceMoveIterator(this);
-        if (!pIter.hasNext()) {
+        Player player = players[currentPlayer];
+        boolean hasStones = firstMove || player.sideStones > 0 || player.capStones > 0;
+        if (!hasStones || emptySquares == 0) {
             return flatStoneWin();
         }
 
@@ -215,20 +342,7 @@ public class Tak {
      * 2 if they have the same amount
      */
     private int flatStoneWin() {
-        int result = 0;
-
-        for (int i = 0; i < gameType.size; i++) {
-            for (int j = 0; j < gameType.size; j++) {
-                Stone s = getStackAt(i, j).peek();
-                if (s.type.equals(Stone.Type.FLAT)) {
-                    if (s.player == 0) {
-                        result -= 1;
-                    } else {
-                        result += 1;
-                    }
-                }
-            }
-        }
+        int result = flatCounts[1] - flatCounts[0];
 
         if (result < 0) {
             return 0;
@@ -239,6 +353,22 @@ public class Tak {
         }
     }
 
+    /**
+     * @param player The player index (0 for white, 1 for black).
+     * @return The amount of flat stones of the player on top of a stack,
+     * what decides the game when the board fills up or a player runs out of stones.
+     */
+    public int getFlatCount(int player) {
+        return flatCounts[player];
+    }
+
+    /**
+     * @return The amount of squares without stones.
+     */
+    public int getEmptySquareCount() {
+        return emptySquares;
+    }
+
     /**
      * Checks first if the move is valid before trying to execute the move.
      * Recommended if there is any uncertainty that the move may be invalid.
@@ -264,14 +394,18 @@ public class Tak {
      * Executes the given move without checking for validity.
      * Use <code>safeExecuteMove(...)</code> for checks.
      * @param move The move to execute
+     * @return The {@link Undo} record that takes this position back
+     * to the state before the move with {@code undoMove(...)}.
      *
      * @throws ConcurrentModificationException If a move iterator is iterating over this Tak instance.
      */
-    public void executeMove(Move move) {
+    public Undo executeMove(Move move) {
         if (isLocked) {
             throw new ConcurrentModificationException("An iterator is currently using this Tak instance.");
         }
 
+        Undo undo = new Undo(move, currentPlayer, firstMove, result, coveredType(move));
+
         if (firstMove && currentPlayer == 1) {
             move.action(this);
             firstMove = false;
@@ -285,6 +419,82 @@ public class Tak {
             case 1: result = GameResult.BLACK; break;
             case 2: result = GameResult.TIE; break;
         }
+
+        return undo;
+    }
+
+    /**
+     * Takes back the move that returned {@code undo} from {@code executeMove(...)}.
+     * Moves have to be undone in the reverse order they were executed in,
+     * the position is then restored exactly (stacks, road graph, stone counts,
+     * whose turn it is and the result).
+     *
+     * @param undo The record of the last executed move
+     *
+     * @throws ConcurrentModificationException If a move iterator is iterating over this Tak instance.
+     */
+    public void undoMove(Undo undo) {
+        if (isLocked) {
+            throw new ConcurrentModificationException("An iterator is currently using this Tak instance.");
+        }
+
+        Move move = undo.move;
+
+        if (move instanceof StackMove) {
+            StackMove stackMove = (StackMove) move;
+            Stack origin = getStackAt(move.x, move.y);
+            int transX = move.x;
+            int transY = move.y;
+
+            // the first square got the bottom stones, so collecting them
+            // square by square puts the stack back together in order
+            for (int i = 0; i < stackMove.dropCount(); i++) {
+                transX += stackMove.dir.dx;
+                transY += stackMove.dir.dy;
+
+                Stack stack = getStackAt(transX, transY);
+                origin.appendFrom(stack, stack.size() - stackMove.drop(i) + 1, stackMove.drop(i));
+                stack.removeTop(stackMove.drop(i));
+
+                // removing the stones left a flat on top, put back what the move flattened
+                if (i == stackMove.dropCount() - 1 && undo.getCoveredType() != Stone.Type.FLAT) {
+                    stack.setTopType(undo.getCoveredType());
+                }
+
+                updateSquare(transX, transY);
+            }
+
+            updateSquare(move.x, move.y);
+        } else {
+            getStackAt(move.x, move.y).removeTop(1);
+
+            if (((PlaceMove) move).type == Stone.Type.CAP) {
+                players[undo.getCurrentPlayer()].capStones += 1;
+            } else {
+                players[undo.getCurrentPlayer()].sideStones += 1;
+            }
+
+            updateSquare(move.x, move.y);
+        }
+
+        currentPlayer = undo.getCurrentPlayer();
+        firstMove = undo.isFirstMove();
+        result = undo.getResult();
+    }
+
+    /**
+     * @param move The move about to be executed
+     * @return The type of the top stone on the last square of a stack move
+     * (which the move flattens), {@code FLAT} for place moves.
+     */
+    private Stone.Type coveredType(Move move) {
+        if (!(move instanceof StackMove)) {
+            return Stone.Type.FLAT;
+        }
+
+        StackMove stackMove = (StackMove) move;
+        int length = stackMove.dropCount();
+        return getStackAt(move.x + length * stackMove.dir.dx, move.y + length * stackMove.dir.dy).topType();
     }
 
     /**
@@ -387,7 +597,7 @@ public class Tak {
         message.append("Cannot execute stack move, ");
 
         // current player must own the stack they are trying to move
-        if (currentPlayer != getStackAt(move.x, move.y).peek().player) {
+        if (currentPlayer != getStackAt(move.x, move.y).topOwner()) {
             message.append("player does not control stack.");
             return false;
         }
@@ -402,7 +612,7 @@ public class Tak {
         int tempY = move.y;
         int remainingStones = move.pickup;
 
-        for (int i = 0; i < move.vals.length - 1; i++) {
+        for (int i = 0; i < move.dropCount() - 1; i++) {
             // should have enough stones to drop down
             if (remainingStones <= 0) {
                 message.append("not enough stones to drop down.");
@@ -413,12 +623,12 @@ public class Tak {
             tempY += move.dir.dy;
 
             // everything except the last move should have a flat stone on top
-            if (!getStackAt(tempX, tempY).peek().type.equals(Stone.Type.FLAT)) {
+            if (!getStackAt(tempX, tempY).topType().equals(Stone.Type.FLAT)) {
                 message.append("stone in the path is not flat!");
                 return false;
             }
 
-            remainingStones -= move.vals[i];
+            remainingStones -= move.drop(i);
         }
 
         tempX += move.dir.dx;
@@ -426,11 +636,11 @@ public class Tak {
 
         // if the last stone is not flat, it better be a standing stone, and there
         // should only be one remaining piece to drop which should be a cap stone
-        if (!getStackAt(tempX, tempY).isEmpty() && !getStackAt(tempX, tempY).peek().type.equals(Stone.Type.FLAT)) {
+        if (!getStackAt(tempX, tempY).isEmpty() && !getStackAt(tempX, tempY).topType().equals(Stone.Type.FLAT)) {
 
-            if (!(getStackAt(tempX, tempY).peek().type.equals(Stone.Type.STANDING)
-                    && getStackAt(move.x, move.y).peek().type.equals(Stone.Type.CAP)
-                    && move.vals[move.vals.length - 1] == 1)) {
+            if (!(getStackAt(tempX, tempY).topType().equals(Stone.Type.STANDING)
+                    && getStackAt(move.x, move.y).topType().equals(Stone.Type.CAP)
+                    && move.drop(move.dropCount() - 1) == 1)) {
 
                 message.append("stone in the path is not flat!");
                 return false;
@@ -449,6 +659,66 @@ public class Tak {
         return roadGraph.toString();
     }
 
+    /**
+     * Has to be called after the stack at the point was modified:
+     * updates the road graph and the Zobrist key of the square.
+     *
+     * @param x The x coord of the stack
+     * @param y The y coord of the stack
+     */
+    public void updateSquare(int x, int y) {
+        updateRoadGraph(x, y);
+
+        int square = x + gameType.size * y;
+        Stack stack = getStackAt(x, y);
+        long key = Zobrist.squareKey(square, stack);
+        boardKey ^= squareKeys[square] ^ key;
+        squareKeys[square] = key;
+
+        int top = topOf(stack);
+        count(tops[square], -1);
+        count(top, 1);
+        tops[square] = top;
+
+        versions[square] = ++clock;
+    }
+
+    /**
+     * The version of a square changes every time the stack on it changes (undoing a move
+     * included) and never takes a value it had before on this instance. So as long as the
+     * version of a square is the same, the stack on the square is the same, which lets
+     * evaluations reuse what they computed about the square. <br> <br>
+     *
+     * A copy starts with the versions of the original, from there on both count on their own:
+     * versions only compare within one instance.
+     *
+     * @param x The x coord of the square
+     * @param y The y coord of the square
+     * @return The version of the square, 0 if it never changed.
+     */
+    public long getSquareVersion(int x, int y) {
+        return versions[x + gameType.size * y];
+    }
+
+    /**
+     * @return {@code EMPTY}, the player owning the flat stone on top or {@code NOT_FLAT}.
+     */
+    private static int topOf(Stack stack) {
+        if (stack.isEmpty()) {
+            return EMPTY;
+        }
+
+        return stack.topType() == Stone.Type.FLAT ? stack.topOwner() : NOT_FLAT;
+    }
+
+    private void count(int top, int delta) {
+        if (top == EMPTY) {
+            emptySquares += delta;
+        } else if (top != NOT_FLAT) {
+            flatCounts[top] += delta;
+        }
+    }
+
     /**
      * Updates the road graph representation at the point.
      * Sets ownership to the player if the stone is flat,
@@ -458,8 +728,9 @@ public class Tak {
      * @param y The y coord of the stack
      */
     public void updateRoadGraph(int x, int y) {
-        if (getStackAt(x, y).peek().type.equals(Stone.Type.FLAT) || getStackAt(x, y).peek().type.equals(Stone.Type.CAP)) {
-            roadGraph.updateVertex(x, y, getStackAt(x, y).peek().player);
+        Stack stack = getStackAt(x, y);
+        if (stack.topType() != Stone.Type.STANDING) {
+            roadGraph.updateVertex(x, y, stack.topOwner());
         } else {
             roadGraph.updateVertex(x, y, -1);
         }
@@ -516,11 +787,35 @@ public class Tak {
      */
     public enum GameType {
 
+        /**
+         * 3x3 board with 10 side stones and no cap stone.
+         */
+        THREE(10, 0, 3),
+
+        /**
+         * 4x4 board with 15 side stones and no cap stone.
+         */
+        FOUR(15, 0, 4),
+
         /**
          * 5x5 board with 21 side stones and 1 cap stone.
          */
         FIVE(21, 1, 5),
-        SIX(30, 1, 6);
+
+        /**
+         * 6x6 board with 30 side stones and 1 cap stone.
+         */
+        SIX(30, 1, 6),
+
+        /**
+         * 7x7 board with 40 side stones and 2 cap stones.
+         */
+        SEVEN(40, 2, 7),
+
+        /**
+         * 8x8 board with 50 side stones and 2 cap stones.
+         */
+        EIGHT(50, 2, 8);
 
         int sideStones;
         int capStones;
@@ -531,6 +826,33 @@ public class Tak {
             this.capStones = capStones;
             this.size = size;
         }
+
+        /**
+         * @param size The size of the board, 3 to 8
+         * @return The standard {@code GameType} of that size.
+         * @throws IllegalArgumentException If there is no game type of that size.
+         */
+        public static GameType ofSize(int size) {
+            for (GameType type : values()) {
+                if (type.size == size) {
+                    return type;
+                }
+            }
+
+            throw new IllegalArgumentException("No game type of size " + size + ".");
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getSideStones() {
+            return sideStones;
+        }
+
+        public int getCapStones() {
+            return capStones;
+        }
     }
 
     /**
@@ -542,8 +864,8 @@ public class Tak {
 
         WHITE("White Wins!", 1),
         BLACK("Black Wins!", 0),
-        ONGOING("The game is ongoing.", 1 / 2),
-        TIE("Game was a tie!", 1 / 2);
+        ONGOING("The game is ongoing.", 0.5),
+        TIE("Game was a tie!", 0.5);
 
         private String message;
         private double whitePayoff;
@@ -571,6 +893,51 @@ public class Tak {
         }
     }
 
+    /**
+     * Everything {@code Tak.undoMove(...)} needs to take back a move that the
+     * move itself does not tell us: whose turn it was, whether it was
+     * the opening phase, the result before the move and the type of the
+     * stone a stack move flattened. The scalars are packed into one int.
+     */
+    public static final class Undo {
+        private static final GameResult[] RESULTS = GameResult.values();
+        private static final Stone.Type[] TYPES = Stone.Type.values();
+
+        private final Move move;
+        private final int state;
+
+        Undo(Move move, int currentPlayer, boolean firstMove, GameResult result, Stone.Type coveredType) {
+            this.move = move;
+            this.state = currentPlayer
+                    | (firstMove ? 2 : 0)
+                    | result.ordinal() << 2
+                    | coveredType.ordinal() << 4;
+        }
+
+        /**
+         * @return The move this record takes back.
+         */
+        public Move getMove() {
+            return move;
+        }
+
+        int getCurrentPlayer() {
+            return state & 1;
+        }
+
+        boolean isFirstMove() {
+            return (state & 2) != 0;
+        }
+
+        GameResult getResult() {
+            return RESULTS[(state >>> 2) & 3];
+        }
+
+        Stone.Type getCoveredType() {
+            return TYPES[(state >>> 4) & 3];
+        }
+    }
+
     public static class TakException extends Exception {
         TakException(String msg) {
             super(msg);
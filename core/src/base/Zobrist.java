@@ -0,0 +1,109 @@
+package base;
+
+import java.util.Random;
+
+/**
+ * Random keys for <a href="https://en.wikipedia.org/wiki/Zobrist_hashing">Zobrist hashing</a>
+ * of {@link Tak} positions. <br> <br>
+ *
+ * The key of a position is the XOR of the keys of each square and the key of the
+ * game state (stone reserves, side to move, first move phase and result).
+ * The key of a square covers the owner of each of its top {@code HASHED_HEIGHT}
+ * stones, the type of the top stone and the height of the stack (heights above
+ * {@code HASHED_HEIGHT} share a key). Stacks taller than that can collide, which
+ * is why {@code Tak.equals(...)} falls back to comparing the full position. <br> <br>
+ *
+ * {@code HASHED_HEIGHT} is read from the system property {@code tak.zobrist.height}
+ * (default 12). The keys are generated from a fixed seed, so the key of a position
+ * is the same from run to run as long as the height does not change.
+ */
+public final class Zobrist {
+
+    /**
+     * The amount of stones from the top of a stack that are hashed.
+     */
+    public static final int HASHED_HEIGHT = Math.max(1, Integer.getInteger("tak.zobrist.height", 12));
+
+    private static final int MAX_SQUARES = 64;
+    private static final int MAX_RESERVE = 64;
+
+    private static final long[] STONES = new long[MAX_SQUARES * HASHED_HEIGHT * 2];
+    private static final long[] TOPS = new long[MAX_SQUARES * 3];
+    private static final long[] HEIGHTS = new long[MAX_SQUARES * (HASHED_HEIGHT + 2)];
+    private static final long[] SIDE_STONES = new long[2 * MAX_RESERVE];
+    private static final long[] CAP_STONES = new long[2 * MAX_RESERVE];
+    private static final long[] RESULTS = new long[Tak.GameResult.values().length];
+    private static final long BLACK_TO_MOVE;
+    private static final long FIRST_MOVE;
+
+    static {
+        Random random = new Random(0x54616bL);
+
+        fill(random, STONES);
+        fill(random, TOPS);
+        fill(random, HEIGHTS);
+        fill(random, SIDE_STONES);
+        fill(random, CAP_STONES);
+        fill(random, RESULTS);
+        BLACK_TO_MOVE = random.nextLong();
+        FIRST_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+
+    }
+
+    private static void fill(Random random, long[] keys) {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param square The square index ({@code x + size * y})
+     * @param stack The stack on the square
+     * @return The key of the square, 0 if the stack is empty.
+     */
+    public static long squareKey(int square, Stack stack) {
+        int height = stack.size();
+        if (height == 0) {
+            return 0;
+        }
+
+        long key = HEIGHTS[square * (HASHED_HEIGHT + 2) + Math.min(height, HASHED_HEIGHT + 1)]
+                ^ TOPS[square * 3 + stack.topType().ordinal()];
+
+        int hashed = Math.min(height, HASHED_HEIGHT);
+        for (int k = 0; k < hashed; k++) {
+            key ^= STONES[(square * HASHED_HEIGHT + k) * 2 + stack.ownerAt(height - k)];
+        }
+
+        return key;
+    }
+
+    /**
+     * @param players The two players of the game
+     * @param currentPlayer The player index whose turn it is
+     * @param firstMove Whether the first moves are still being played
+     * @param result The result of the game
+     * @return The key of everything but the board.
+     */
+    static long stateKey(Tak.Player[] players, int currentPlayer, boolean firstMove, Tak.GameResult result) {
+        long key = RESULTS[result.ordinal()];
+
+        for (int p = 0; p < 2; p++) {
+            key ^= SIDE_STONES[p * MAX_RESERVE + Math.floorMod(players[p].sideStones, MAX_RESERVE)];
+            key ^= CAP_STONES[p * MAX_RESERVE + Math.floorMod(players[p].capStones, MAX_RESERVE)];
+        }
+
+        if (currentPlayer == 1) {
+            key ^= BLACK_TO_MOVE;
+        }
+
+        if (firstMove) {
+            key ^= FIRST_MOVE;
+        }
+
+        return key;
+    }
+}
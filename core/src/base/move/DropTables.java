@@ -0,0 +1,140 @@
+package base.move;
+
+import java.util.Arrays;
+
+/**
+ * Every legal drop sequence of a stack move, computed once when the class is loaded. A drop
+ * sequence is encoded as in {@code MoveFactory.encodeMove(Move)}: picking up {@code n} stones
+ * is {@code (1 << (n - 1)) | pattern} where bit {@code i} of {@code pattern} is set if a drop
+ * ends right after the {@code (i + 1)}th stone. <br> <br>
+ *
+ * The sequences are grouped by the distance to the nearest stop (a standing stone, cap stone or
+ * the edge of the board) and, within one distance, sorted by pickup count. So all sequences of
+ * picking up 1 to {@code carry} stones are one contiguous range of indices:
+ * {@code start(distance)} (inclusive) to {@code end(carry, distance)} (exclusive). <br> <br>
+ *
+ * The sequences where a cap stone alone flattens the standing stone right after the stop are kept
+ * apart, in the same layout, under {@code smashStart(...)} and {@code smashEnd(...)}. <br> <br>
+ *
+ * The tables cover every board from 3x3 to 8x8 and never change, so any amount of threads
+ * can read them.
+ */
+public final class DropTables {
+
+    /**
+     * The largest carry limit (and board size) in the tables.
+     */
+    public static final int MAX_CARRY = 8;
+
+    /**
+     * The largest distance to a stop in the tables.
+     */
+    public static final int MAX_DISTANCE = MAX_CARRY - 1;
+
+    private static final int[] SEQUENCES;
+    private static final int[] ENDS;
+
+    private static final int[] SMASH_SEQUENCES;
+    private static final int[] SMASH_ENDS;
+
+    static {
+        ENDS = new int[(MAX_DISTANCE + 1) * (MAX_CARRY + 1)];
+        SEQUENCES = build(false, ENDS);
+
+        SMASH_ENDS = new int[(MAX_DISTANCE + 1) * (MAX_CARRY + 1)];
+        SMASH_SEQUENCES = build(true, SMASH_ENDS);
+    }
+
+    private DropTables() {
+
+    }
+
+    /**
+     * Lists the sequences distance by distance, then pickup by pickup, and records in
+     * {@code ends[distance * (MAX_CARRY + 1) + carry]} where the sequences of picking up at most
+     * {@code carry} stones end.
+     */
+    private static int[] build(boolean smash, int[] ends) {
+        int[] sequences = new int[(MAX_DISTANCE + 1) * (1 << MAX_CARRY)];
+        int count = 0;
+
+        for (int distance = 0; distance <= MAX_DISTANCE; distance++) {
+            ends[distance * (MAX_CARRY + 1)] = count;
+
+            for (int n = 1; n <= MAX_CARRY; n++) {
+                int high = 1 << (n - 1);
+
+                for (int pattern = 0; pattern < high; pattern++) {
+                    if (smash ? isSmash(n, pattern, distance) : Integer.bitCount(pattern) < distance) {
+                        sequences[count++] = high | pattern;
+                    }
+                }
+
+                ends[distance * (MAX_CARRY + 1) + n] = count;
+            }
+        }
+
+        return Arrays.copyOf(sequences, count);
+    }
+
+    /**
+     * Dropping on every flat up to the stop and then the cap stone alone on the standing stone:
+     * exactly {@code distance + 1} drops, the last one of a single stone.
+     */
+    private static boolean isSmash(int n, int pattern, int distance) {
+        boolean capAlone = n == 1 || (pattern & (1 << (n - 2))) != 0;
+        return capAlone && Integer.bitCount(pattern) == distance;
+    }
+
+    /**
+     * @param distance The amount of squares before the nearest stop (0 to {@code MAX_DISTANCE})
+     * @return The index of the first sequence dropping on at most {@code distance} squares.
+     */
+    public static int start(int distance) {
+        return ENDS[distance * (MAX_CARRY + 1)];
+    }
+
+    /**
+     * @param carry The most stones to pick up (0 to {@code MAX_CARRY})
+     * @param distance The amount of squares before the nearest stop (0 to {@code MAX_DISTANCE})
+     * @return The index after the last sequence picking up at most {@code carry} stones and
+     * dropping on at most {@code distance} squares.
+     */
+    public static int end(int carry, int distance) {
+        return ENDS[distance * (MAX_CARRY + 1) + carry];
+    }
+
+    /**
+     * @param index An index from {@code start(...)} to {@code end(...)}
+     * @return The drop sequence at that index.
+     */
+    public static int sequence(int index) {
+        return SEQUENCES[index];
+    }
+
+    /**
+     * @param distance The amount of squares before the standing stone (0 to {@code MAX_DISTANCE})
+     * @return The index of the first sequence that flattens the standing stone.
+     */
+    public static int smashStart(int distance) {
+        return SMASH_ENDS[distance * (MAX_CARRY + 1)];
+    }
+
+    /**
+     * @param carry The most stones to pick up (0 to {@code MAX_CARRY})
+     * @param distance The amount of squares before the standing stone (0 to {@code MAX_DISTANCE})
+     * @return The index after the last sequence picking up at most {@code carry} stones that
+     * flattens the standing stone.
+     */
+    public static int smashEnd(int carry, int distance) {
+        return SMASH_ENDS[distance * (MAX_CARRY + 1) + carry];
+    }
+
+    /**
+     * @param index An index from {@code smashStart(...)} to {@code smashEnd(...)}
+     * @return The drop sequence at that index.
+     */
+    public static int smashSequence(int index) {
+        return SMASH_SEQUENCES[index];
+    }
+}
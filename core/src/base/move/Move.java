@@ -5,12 +5,17 @@ import base.Tak;
 /**
  * Represents an abstract move in the game. Subclassed by PlaceMove
  * and StackMove. To execute on a {@link Tak} instance, call {@code Tak.safeExecuteMove(this)}
- * or {@code Tak.executeMove(this)} to remove checks.
+ * or {@code Tak.executeMove(this)} to remove checks. <br><br>
+ *
+ * Moves never change and are identified by their encoding (see {@code MoveFactory.encodeMove(Move)}):
+ * two moves are equal if and only if they have the same encoding, which is also their hash code.
+ * {@code MoveFactory} hands out one shared instance per encoding, so moves can be compared,
+ * used as map keys and kept in tables without allocating.
  */
 public abstract class Move {
 
-    public int x;
-    public int y;
+    public final int x;
+    public final int y;
 
     /**
      * @param x The x coord of the move
@@ -31,6 +36,24 @@ public abstract class Move {
      */
     public abstract void action(Tak tak);
 
+    /**
+     * @return The encoding of this move, see {@code MoveFactory.encodeMove(Move)}.
+     */
+    public abstract int encoding();
+
+    /**
+     * @return True if <code>o</code> is a move with the same encoding. False otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Move && ((Move) o).encoding() == encoding();
+    }
+
+    @Override
+    public int hashCode() {
+        return encoding();
+    }
+
     @Override
     public String toString() {
         return MoveFactory.moveToString(this);
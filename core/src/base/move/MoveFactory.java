@@ -1,5 +1,6 @@
 package base.move;
 
+import base.Stack;
 import base.Stone;
 import base.Tak;
 import structures.Direction;
@@ -19,20 +20,53 @@ public final class MoveFactory {
 
     }
 
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Stone.Type[] TYPES = Stone.Type.values();
+
     /**
-     * A map of [number of pieces --> a map of (number of spaces --> list of all permutations)]
-     * Used so we don't have to compute stack permutations all the time.
+     * The move buffer of every thread that draws random moves, grown to the largest board it saw.
      */
-    private static Map<Integer, Map<Integer, List<int[]>>> allStackVals = new HashMap<>();
+    private static final ThreadLocal<int[]> RANDOM_BUFFERS = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * Every move of a board up to 8x8, indexed by encoding ({@code null} where no move has that
+     * encoding). Stack moves with the same drop sequence share their array of drops.
+     */
+    private static final Move[] MOVES = new Move[1 << 16];
+
+    static {
+        int[][] drops = new int[1 << 8][];
+        for (int sequence = 1; sequence < drops.length; sequence++) {
+            drops[sequence] = dropsOf(sequence);
+        }
+
+        for (int square = 0; square < 64; square++) {
+            int x = square & 7;
+            int y = square >>> 3;
+
+            for (Stone.Type type : TYPES) {
+                MOVES[square | type.ordinal() << 6] = new PlaceMove(x, y, type);
+            }
+
+            for (Direction dir : DIRECTIONS) {
+                for (int sequence = 1; sequence < drops.length; sequence++) {
+                    int code = square | dir.ordinal() << 6 | sequence << 8;
+                    int pickup = 32 - Integer.numberOfLeadingZeros(sequence);
+                    MOVES[code] = new StackMove(x, y, dir, pickup, drops[sequence], code);
+                }
+            }
+        }
+    }
 
     /**
      * @param x The x coord of the move
      * @param y The y coord of the move
      * @param type The type of stone to place
      * @return The {@code PlaceMove} object as specified
+     * @throws IllegalArgumentException If the move is off an 8x8 board.
      */
     public static PlaceMove placeMove(int x, int y, Stone.Type type) {
-        return new PlaceMove(x, y, type);
+        return (PlaceMove) MOVES[encodePlaceMove(x, y, type)];
     }
 
     /**
@@ -42,9 +76,11 @@ public final class MoveFactory {
      * @param pickup The amount to pick up
      * @param vals The amount to drop down at each step, going on for <code>vals.length</code>
      * @return The {@code StackMove} object as specified
+     * @throws IllegalArgumentException If the move cannot be encoded (the drops do not add up
+     * to the pickup, or the move is off an 8x8 board).
      */
     public static StackMove stackMove(int x, int y, Direction dir, int pickup, int[] vals) {
-        return new StackMove(x, y, dir, pickup, vals);
+        return (StackMove) MOVES[encodeStackMove(x, y, dir, pickup, vals)];
     }
 
     /**
@@ -52,12 +88,15 @@ public final class MoveFactory {
      * <a href="https://www.reddit.com/r/Tak/wiki/portable_tak_notation">Portable Tak Notation</a>.
      * @param str The string to parse in PTN notation.
      * @return The associated {@code Move} object.
-     * @throws IllegalArgumentException if the string given is not a valid move.
+     * @throws IllegalArgumentException if the string given is not a valid move
+     * (including drops that do not add up to the pickup).
      */
     public static Move parseMove(String str) {
         char[] chars = str.toCharArray();
 
-        if (Character.isDigit(chars[0])) { // stack move
+        if (chars.length == 0) {
+            throw new IllegalArgumentException("Error in parsing move.");
+        } else if (Character.isDigit(chars[0])) { // stack move
             if (chars.length <= 4) {
                 throw new IllegalArgumentException("Error in parsing move.");
             }
@@ -72,10 +111,15 @@ public final class MoveFactory {
                 vals[i - 4] = Character.getNumericValue(chars[i]);
             }
 
-            return new StackMove(
+            Direction dir = charToDirection(chars[3]);
+            if (dir == null) {
+                throw new IllegalArgumentException("Error in parsing move.");
+            }
+
+            return stackMove(
                     charToFile(chars[1]),
                     charToRow(chars[2]),
-                    charToDirection(chars[3]),
+                    dir,
                     Character.getNumericValue(chars[0]),
                     vals);
         } else if (Character.isLowerCase(chars[0])) { // implicit flat stone place
@@ -88,7 +132,7 @@ public final class MoveFactory {
                     charToRow(chars[1]),
                     Stone.Type.FLAT);
         } else if (Character.isAlphabetic(chars[0])) { // regular stone place
-            if (chars.length >= 4) {
+            if (chars.length != 3 || charToStoneType(chars[0]) == null) {
                 throw new IllegalArgumentException("Error in parsing move.");
             }
 
@@ -182,15 +226,103 @@ public final class MoveFactory {
             StackMove stackMove = (StackMove) m;
             char cDir = directionToChar(stackMove.dir);
 
-            sMove.insert(0, stackMove.pickup);
-            for (int i = 0; i < stackMove.vals.length; i++) {
-                sMove.append(cDir).append(stackMove.vals[i]);
+            sMove.insert(0, stackMove.pickup).append(cDir);
+            for (int i = 0; i < stackMove.dropCount(); i++) {
+                sMove.append(stackMove.drop(i));
             }
         }
 
         return sMove.toString();
     }
 
+    /**
+     * Encodes a move into 16 bits: <br>
+     * bits 0-5: the square {@code x + 8 * y}, <br>
+     * bits 6-7: the stone type of a place move or the direction of a stack move, <br>
+     * bits 8-15: 0 for place moves, the drop sequence for stack moves. <br> <br>
+     *
+     * The drop sequence of picking up {@code n} stones is {@code (1 << (n - 1)) | pattern}
+     * where bit {@code i} of {@code pattern} is set if and only if a drop ends right after
+     * the {@code (i + 1)}th stone. E.g. {@code 3a1>21} has drop sequence {@code 0b110}.
+     * Every board up to 8x8 (with a carry limit of at most 8) fits.
+     *
+     * @param m The move to encode
+     * @return The encoding of the move, see {@code decodeMove(int)}.
+     */
+    public static int encodeMove(Move m) {
+        return m.encoding();
+    }
+
+    /**
+     * @return The encoding of the place move, see {@code encodeMove(Move)}.
+     * @throws IllegalArgumentException If the move is off an 8x8 board.
+     */
+    static int encodePlaceMove(int x, int y, Stone.Type type) {
+        if (x < 0 || x >= 8 || y < 0 || y >= 8) {
+            throw new IllegalArgumentException("Cannot encode move " + fileToChar(x) + (y + 1) + ".");
+        }
+
+        return x + 8 * y | type.ordinal() << 6;
+    }
+
+    /**
+     * @return The encoding of the stack move, see {@code encodeMove(Move)}.
+     * @throws IllegalArgumentException If the move cannot be encoded (the drops
+     * do not add up to the pickup or the move is off an 8x8 board).
+     */
+    static int encodeStackMove(int x, int y, Direction dir, int pickup, int[] vals) {
+        if (x < 0 || x >= 8 || y < 0 || y >= 8 || pickup < 1 || pickup > 8) {
+            throw new IllegalArgumentException("Cannot encode move " + pickup + fileToChar(x) + (y + 1) + ".");
+        }
+
+        int sequence = 1 << (pickup - 1);
+        int dropped = 0;
+        for (int i = 0; i < vals.length; i++) {
+            if (vals[i] <= 0) {
+                throw new IllegalArgumentException("Cannot encode a drop of " + vals[i] + " stones.");
+            }
+
+            dropped += vals[i];
+            if (i < vals.length - 1 && dropped < pickup) {
+                sequence |= 1 << (dropped - 1);
+            }
+        }
+
+        if (dropped != pickup) {
+            throw new IllegalArgumentException("Drops of " + dropped + " stones do not add up to the pickup of " + pickup + ".");
+        }
+
+        return x + 8 * y | dir.ordinal() << 6 | sequence << 8;
+    }
+
+    /**
+     * @param code A move encoded by {@code encodeMove(Move)}
+     * @return The corresponding move, the same instance for every call.
+     */
+    public static Move decodeMove(int code) {
+        return MOVES[code & 0xFFFF];
+    }
+
+    /**
+     * @param sequence A drop sequence, see {@code encodeMove(Move)}
+     * @return The amount of stones dropped at each step.
+     */
+    private static int[] dropsOf(int sequence) {
+        int pickup = 32 - Integer.numberOfLeadingZeros(sequence);
+        int[] vals = new int[Integer.bitCount(sequence)];
+
+        int part = 0;
+        int last = 0;
+        for (int i = 0; i < pickup; i++) {
+            if ((sequence & (1 << i)) != 0) {
+                vals[part++] = i + 1 - last;
+                last = i + 1;
+            }
+        }
+
+        return vals;
+    }
+
     /**
      * @param tak The tak instance to generate moves over.
      * @return An iterator over all the possible moves for the
@@ -200,6 +332,145 @@ public final class MoveFactory {
         return new MoveIterator(tak);
     }
 
+    /**
+     * @param tak The tak instance to generate moves over.
+     * @return A list of all the possible moves for the current player.
+     * Unlike iterating over {@code allPossibleMoves(tak)}, the tak instance
+     * is not locked once this returns, so each move can be executed
+     * (and undone) on it in turn.
+     */
+    public static List<Move> allPossibleMovesList(Tak tak) {
+        int[] buffer = new int[maxMoves(tak)];
+        int count = generateMoves(tak, buffer, 0);
+
+        List<Move> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(decodeMove(buffer[i]));
+        }
+
+        return moves;
+    }
+
+    /**
+     * @param tak The tak instance to generate moves over.
+     * @return An upper bound on the amount of moves {@code generateMoves(...)} writes for a
+     * position of the size of {@code tak}.
+     */
+    public static int maxMoves(Tak tak) {
+        int squares = tak.boardSize() * tak.boardSize();
+
+        // every (square, direction) has at most one move per drop sequence
+        // and there are less than 2^carry drop sequences
+        return (int) Math.min(1 << 16, squares * TYPES.length + squares * 4L * ((1L << tak.boardSize()) - 1));
+    }
+
+    /**
+     * @param tak The tak instance to draw a move for.
+     * @param random The source of randomness to use
+     * @return One of the possible moves for the current player, drawn uniformly. The moves are
+     * generated into a buffer of the calling thread, so nothing but that buffer is ever allocated.
+     */
+    public static Move randomMove(Tak tak, Random random) {
+        int[] buffer = RANDOM_BUFFERS.get();
+        if (buffer.length < maxMoves(tak)) {
+            buffer = new int[maxMoves(tak)];
+            RANDOM_BUFFERS.set(buffer);
+        }
+
+        int count = generateMoves(tak, buffer, 0);
+        return decodeMove(buffer[random.nextInt(count)]);
+    }
+
+    /**
+     * Writes all the possible moves for the current player (the same moves as
+     * {@code allPossibleMoves(tak)}, though not in the same order) into a buffer, encoded
+     * as by {@code encodeMove(Move)}. Nothing is allocated and the tak instance
+     * is not locked, so this is what searches should use.
+     *
+     * @param tak The tak instance to generate moves over.
+     * @param buffer The buffer to write the moves to, it needs room for {@code maxMoves(tak)}
+     *               moves from {@code offset} on.
+     * @param offset The index of the buffer to write the first move to.
+     * @return The amount of moves written.
+     */
+    public static int generateMoves(Tak tak, int[] buffer, int offset) {
+        int count = offset;
+        int size = tak.boardSize();
+        int player = tak.getCurrentPlayerIndex();
+
+        // place moves
+        boolean side;
+        boolean cap;
+        if (tak.isFirstMove()) {
+            side = false;
+            cap = false;
+        } else {
+            side = tak.getCurrentPlayer().sideStones > 0;
+            cap = tak.getCurrentPlayer().capStones > 0;
+        }
+
+        boolean flat = tak.isFirstMove() || side;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (!tak.getStackAt(x, y).isEmpty()) {
+                    continue;
+                }
+
+                int square = x + 8 * y;
+                if (flat) {
+                    buffer[count++] = square | Stone.Type.FLAT.ordinal() << 6;
+                }
+
+                if (side) {
+                    buffer[count++] = square | Stone.Type.STANDING.ordinal() << 6;
+                }
+
+                if (cap) {
+                    buffer[count++] = square | Stone.Type.CAP.ordinal() << 6;
+                }
+            }
+        }
+
+        if (tak.isFirstMove()) {
+            return count - offset;
+        }
+
+        // stack moves
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                Stack stack = tak.getStackAt(x, y);
+                if (stack.topOwner() != player) {
+                    continue;
+                }
+
+                int carry = Math.min(stack.size(), size);
+                boolean capOnTop = stack.topType() == Stone.Type.CAP;
+
+                for (Direction dir : DIRECTIONS) {
+                    int stop = lengthToNearestStop(tak, x, y, dir);
+                    int base = x + 8 * y | dir.ordinal() << 6;
+
+                    for (int i = DropTables.start(stop), end = DropTables.end(carry, stop); i < end; i++) {
+                        buffer[count++] = base | DropTables.sequence(i) << 8;
+                    }
+
+                    // a cap stone alone can flatten the standing stone right after the stop
+                    if (capOnTop && isStandingAt(tak, x + (stop + 1) * dir.dx, y + (stop + 1) * dir.dy)) {
+                        for (int i = DropTables.smashStart(stop), end = DropTables.smashEnd(carry, stop); i < end; i++) {
+                            buffer[count++] = base | DropTables.smashSequence(i) << 8;
+                        }
+                    }
+                }
+            }
+        }
+
+        return count - offset;
+    }
+
+    private static boolean isStandingAt(Tak tak, int x, int y) {
+        return tak.inBounds(x, y) && tak.getStackAt(x, y).topType() == Stone.Type.STANDING;
+    }
+
     /**
      * @param tak The tak instance
      * @param x The x coordinate
@@ -216,7 +487,7 @@ public final class MoveFactory {
             y += dir.dy;
 
             if (!tak.inBounds(x, y) ||
-                    !tak.getStackAt(x, y).peek().type.equals(Stone.Type.FLAT)) {
+                    !tak.getStackAt(x, y).topType().equals(Stone.Type.FLAT)) {
                 return i;
             }
         }
@@ -357,7 +628,8 @@ public final class MoveFactory {
     }
 
     /**
-     * An iterator over all possible StackMoves given a Tak instance
+     * An iterator over all possible StackMoves given a Tak instance.
+     * The drop sequences come from the shared {@link DropTables}.
      */
     private static class StackMoveIterator implements Iterator<StackMove> {
         Tak tak;
@@ -365,11 +637,11 @@ public final class MoveFactory {
         // d keeps track of the 4 directions
         int d;
 
-        // n keeps track of pickup val
-        int n;
-
-        // StackValsIterator Iterator keeps track of ways to sum to n
-        StackValsIterator vIter;
+        // index, end keep track of the drop sequences for the current direction,
+        // first the regular ones then, if the cap stone can flatten a standing stone, the smashes
+        int index;
+        int end;
+        boolean smashes;
 
         // u,v keeps track of each square
         int u;
@@ -382,14 +654,12 @@ public final class MoveFactory {
 
             // init to trigger reset
             d = Direction.values().length - 1;
+            smashes = true;
 
             // see findNewStack()
             u = 0;
             v = -1;
 
-            n = 0;
-            vIter = new StackValsIterator(0, 0, 0);
-
             if (tak.isFirstMove()) {
                 return;
             }
@@ -398,15 +668,27 @@ public final class MoveFactory {
         }
 
         void prepareStack() {
-            while (!vIter.hasNext()) {
-                if (vIter.spaces == 0 // boxed in for this direction
-                        || n >= tak.getStackAt(u, v).size() || n >= tak.boardSize()) { // done with all pickups
-                    d += 1; // move on to next direction
-                    n = 1;
-                } else { // done with picking up n
-                    n += 1;
+            while (index >= end) {
+                if (!smashes) { // done with the regular drops for this direction
+                    smashes = true;
+
+                    Stack stack = tak.getStackAt(u, v);
+                    Direction dir = Direction.values()[d];
+                    int stop = lengthToNearestStop(tak, u, v, dir);
+
+                    // if the top stone of the pickup is a cap stone, and
+                    // the piece that stopped us is a standing stone
+                    if (stack.topType().equals(Stone.Type.CAP)
+                            && isStandingAt(tak, u + (stop + 1) * dir.dx, v + (stop + 1) * dir.dy)) {
+                        int carry = Math.min(stack.size(), tak.boardSize());
+                        index = DropTables.smashStart(stop);
+                        end = DropTables.smashEnd(carry, stop);
+                    }
+
+                    continue;
                 }
 
+                d += 1; // move on to next direction
                 if (d == Direction.values().length) {
                     if (!findNextStack()) {
                         stackHasNext = false;
@@ -414,28 +696,14 @@ public final class MoveFactory {
                     }
 
                     d = 0;
-                    n = 1;
                 }
 
-                // vIter = new StackValsIterator(n, lengthToNearestStop(tak, u, v, Direction.values()[d]));
-                Direction dir = Direction.values()[d];
-                int stop = lengthToNearestStop(tak, u, v, dir);
-
-                // if the top stone of the pickup is a cap stone, and
-                // we got stopped by a piece (not the end of the board), and
-                // we can reach the piece that stopped us, and
-                // the piece that stopped us is a standing stone
-                if (tak.getStackAt(u, v).peek().type.equals(Stone.Type.CAP)
-                        && stop + 1 < tak.boardSize()
-                        && n >= stop + 1
-                        && tak.inBounds(u + (stop + 1) * dir.dx, v + (stop + 1) * dir.dy)
-                        && tak.getStackAt(u + (stop + 1) * dir.dx, v + (stop + 1) * dir.dy)
-                        .peek().type.equals(Stone.Type.STANDING)) {
-                    // special capstone iterator
-                    vIter = new StackValsCapIterator(n, stop);
-                } else {
-                    vIter = new StackValsIterator(n, stop);
-                }
+                Stack stack = tak.getStackAt(u, v);
+                int stop = lengthToNearestStop(tak, u, v, Direction.values()[d]);
+                int carry = Math.min(stack.size(), tak.boardSize());
+                index = DropTables.start(stop);
+                end = DropTables.end(carry, stop);
+                smashes = false;
             }
             stackHasNext = true;
         }
@@ -448,7 +716,7 @@ public final class MoveFactory {
             for (int i = u; i < tak.boardSize(); i++) {
                 v += 1; // increment v to keep on moving
                 for (int j = v; j < tak.boardSize(); j++) {
-                    if (tak.getStackAt(i, j).peek().player == tak.getCurrentPlayerIndex()) {
+                    if (tak.getStackAt(i, j).topOwner() == tak.getCurrentPlayerIndex()) {
                         u = i;
                         v = j;
                         return true;
@@ -468,215 +736,12 @@ public final class MoveFactory {
 
         @Override
         public StackMove next() {
-            StackMove move = stackMove(u, v, Direction.values()[d], n, vIter.next());
+            int sequence = smashes ? DropTables.smashSequence(index) : DropTables.sequence(index);
+            index += 1;
+
+            StackMove move = (StackMove) decodeMove(u + 8 * v | d << 6 | sequence << 8);
             prepareStack();
             return move;
         }
     }
-
-    /**
-     * Iterates through all possible splitting of a stack of boardSize {@code n}
-     * for splits ranging from {@code minSize} to {@code boardSize} (inclusive).
-     * (Default for {@code minSize} is 1.)
-     */
-    private static class StackValsIterator implements Iterator<int[]> {
-
-        /**
-         * Fixed stack, variable spaces.
-         * Map of number of spaces --> List of all permutations
-         */
-        Map<Integer, List<int[]>> FSVS;
-        Iterator<int[]> currIter = Collections.emptyIterator();
-
-        int spaces;
-        int minSpaces;
-        int n;
-
-        /**
-         * Iterates through all possible splitting of a stack of size {@code n}
-         * for splits ranging from {@code minSpaces} to {@code spaces} (inclusive).
-         * (Default for {@code minSpaces} is 1.) This constructor is exactly the same
-         * as calling {@code StackValsIterator(n, 1, spaces)}.
-         *
-         * @param n The stack pickup amount
-         * @param spaces The max amount of spaces to partition up to
-         */
-        StackValsIterator(int n, int spaces) {
-            this(n, 1, spaces);
-        }
-
-        /**
-         * Iterates through all possible splitting of a stack of boardSize {@code n}
-         * for splits ranging from {@code minSpaces} to {@code spaces} (inclusive).
-         *
-         * @param n The stack pickup amount
-         * @param minSpaces The min amount of spaces to partition from
-         * @param spaces The max amount of spaces to partition up to
-         */
-        StackValsIterator(int n, int minSpaces, int spaces) {
-            this.n = n;
-            this.spaces = spaces;
-            this.minSpaces = minSpaces;
-
-            if (n == 0) {
-                return;
-            }
-
-            if (!allStackVals.containsKey(n)) {
-                allStackVals.put(n, new HashMap<>());
-            }
-
-            FSVS = allStackVals.get(n);
-
-            prepareStackVals();
-        }
-
-        void prepareStackVals() {
-            if (!currIter.hasNext() && minSpaces <= spaces && minSpaces <= n) {
-                if (!FSVS.containsKey(minSpaces)) {
-                    ArrayList<int[]> partitions = new ArrayList<>();
-                    FSVS.put(minSpaces, partitions);
-
-                    Set<Integer> alreadySeen = new HashSet<>(); // hashcode of arrays computed differently
-                    // compute partitions adding to n using exactly minSize partitions
-                    List<int[]> uniquePartitions = getPartitions(n, minSpaces, n - minSpaces + 1);
-                    for (int[] vals : uniquePartitions) {
-                        for (int[] permutation : getPermutations(vals)) {
-                            if (!alreadySeen.contains(Arrays.hashCode(permutation))) {
-                                partitions.add(permutation);
-                                alreadySeen.add(Arrays.hashCode(permutation));
-                            }
-                        }
-                    }
-
-                    partitions.trimToSize(); // save memory
-                }
-
-                currIter = FSVS.get(minSpaces).iterator();
-                minSpaces += 1;
-            }
-        }
-
-        /**
-         * @param n The number to sum to
-         * @param k The exact number of summands
-         * @param m The maximum an element can be in the partition
-         * @return A unique (up to rearrangement) list of all the partitions
-         * that sum to n using k parts.
-         */
-        List<int[]> getPartitions(int n, int k, int m) {
-            List<int[]> result = new ArrayList<>();
-            if (k == 0) {
-                if (n == 0) {
-                    result.add(new int[0]);
-                }
-                return result;
-            }
-
-            for (int i = 1; i <= m; i++) {
-                for (int[] vals : getPartitions(n - i, k - 1, i)) {
-                    int[] temp = new int[vals.length + 1];
-                    System.arraycopy(vals, 0, temp, 1, vals.length);
-                    temp[0] = i;
-
-                    result.add(temp);
-                }
-            }
-
-            return result;
-        }
-
-        /**
-         * @param vals The array to compute the permutations of
-         * @return A list of all unique permutations of the given array
-         */
-        List<int[]> getPermutations(int[] vals) {
-            List<int[]> result = new ArrayList<>();
-
-            // only one way to permute 1 element
-            if (vals.length == 1) {
-                result.add(vals);
-                return result;
-            }
-
-            // We take out the first element and then consider
-            // every permutation of the remaining elements.
-            // We then place the first element in every position
-            // ranging from 1 to length of the original list
-            // for every such permutation.
-            int[] temp = new int[vals.length - 1];
-            System.arraycopy(vals, 1, temp, 0, temp.length);
-
-            HashSet<int[]> unique = new HashSet<>();
-            for (int[] myInts : getPermutations(temp)) {
-                for (int i = 0; i < vals.length; i++) {
-                    int[] foo = new int[vals.length];
-
-                    System.arraycopy(myInts, 0, foo, 0, i);
-                    foo[i] = vals[0];
-                    System.arraycopy(myInts, i, foo, i + 1, vals.length - i - 1);
-
-                    unique.add(foo);
-                }
-            }
-
-            result.addAll(unique);
-            return result;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return currIter.hasNext();
-        }
-
-        @Override
-        public int[] next() {
-            int[] vals = currIter.next();
-            prepareStackVals();
-            return vals;
-        }
-    }
-
-    /**
-     * Special case of {@code StackValsIterator} with a cap stone flattening a standing stone.
-     * Includes a regular stack iterator of everything up to but not including the
-     * standing stone, plus a regular stack iterator of {@code minSize} boardSize minus a piece so
-     * we can append a 1 to resulting vals array to flatten the standing stone.
-     */
-    private static class StackValsCapIterator extends StackValsIterator {
-
-        Iterator<int[]> specialIter = Collections.emptyIterator();
-
-        StackValsCapIterator(int n, int space) {
-            super(n, space); // the regular iterator
-
-            if (space == 0) { // we can only move the cap stone to flatten the stone
-                specialIter = Collections.singleton(new int[]{}).iterator();
-            } else if (n > 1) {
-                specialIter = new StackValsIterator(n - 1, space, space);
-            }
-        }
-
-        @Override
-        public boolean hasNext() {
-            return super.hasNext() || specialIter.hasNext();
-        }
-
-        @Override
-        public int[] next() {
-            if (super.hasNext()) {
-                return super.next();
-            } else if (specialIter.hasNext()) {
-                int[] tVals = specialIter.next();
-                int[] vals = new int[tVals.length + 1];
-                System.arraycopy(tVals, 0, vals, 0, tVals.length);
-
-                vals[vals.length - 1] = 1;
-
-                return vals;
-            } else {
-                throw new NoSuchElementException("No more items in the iterator");
-            }
-        }
-    }
 }
@@ -0,0 +1,198 @@
+package base.move;
+
+import base.Tak;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the move sequences of a given length from a position ("perft"), which checks
+ * {@code MoveFactory.generateMoves(...)} against known counts and measures its speed. A finished
+ * game has no moves, so sequences that end the game early are not counted. <br> <br>
+ *
+ * The last ply is not played out, the amount of moves generated there is the amount of leaves
+ * ("bulk counting"). <code>divide(...)</code> gives the count below every move of the position,
+ * which narrows a wrong count down to a move; <code>parallelPerft(...)</code> splits the moves of
+ * the position across a {@link ForkJoinPool}. <br> <br>
+ *
+ * Usage: <code>Perft size depth [divide | parallel] [moves...]</code>, counting from the position
+ * after the given moves (in PTN) on a board of the given size.
+ */
+public final class Perft {
+
+    private final int[][] buffers;
+
+    /**
+     * @param maxDepth The deepest count this instance will do
+     */
+    public Perft(int maxDepth) {
+        buffers = new int[Math.max(1, maxDepth) + 1][];
+    }
+
+    /**
+     * Counts on the given position, executing and undoing moves on it.
+     *
+     * @param tak The position, it is the same position again once this returns
+     * @param depth The length of the move sequences, at most the {@code maxDepth} of this instance
+     * @return The amount of move sequences of length {@code depth}.
+     */
+    public long count(Tak tak, int depth) {
+        if (depth == 0) {
+            return 1;
+        } else if (tak.isGameOver()) {
+            return 0;
+        }
+
+        int[] moves = buffer(tak, depth);
+        int count = MoveFactory.generateMoves(tak, moves, 0);
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            Tak.Undo undo = tak.executeMove(MoveFactory.decodeMove(moves[i]));
+            nodes += count(tak, depth - 1);
+            tak.undoMove(undo);
+        }
+
+        return nodes;
+    }
+
+    private int[] buffer(Tak tak, int depth) {
+        if (buffers[depth] == null || buffers[depth].length < MoveFactory.maxMoves(tak)) {
+            buffers[depth] = new int[MoveFactory.maxMoves(tak)];
+        }
+
+        return buffers[depth];
+    }
+
+    /**
+     * @param tak The position (not modified)
+     * @param depth The length of the move sequences
+     * @return The amount of move sequences of length {@code depth}.
+     */
+    public static long perft(Tak tak, int depth) {
+        return new Perft(depth).count(new Tak(tak), depth);
+    }
+
+    /**
+     * @param tak The position (not modified)
+     * @param depth The length of the move sequences, at least 1
+     * @return For every move of the position (as a string, in the order they are generated),
+     * the amount of move sequences of length {@code depth} starting with it.
+     */
+    public static Map<String, Long> divide(Tak tak, int depth) {
+        Tak position = new Tak(tak);
+        Perft perft = new Perft(depth);
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Move move : MoveFactory.allPossibleMovesList(position)) {
+            Tak.Undo undo = position.executeMove(move);
+            counts.put(move.toString(), perft.count(position, depth - 1));
+            position.undoMove(undo);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Counts the move sequences below every move of the position in a task of its own.
+     *
+     * @param tak The position (not modified)
+     * @param depth The length of the move sequences
+     * @param pool The pool to count in
+     * @return The amount of move sequences of length {@code depth}.
+     */
+    public static long parallelPerft(Tak tak, int depth, ForkJoinPool pool) {
+        if (depth <= 1 || tak.isGameOver()) {
+            return perft(tak, depth);
+        }
+
+        return pool.invoke(new RootTask(new Tak(tak), depth));
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Tak tak;
+        private final int depth;
+
+        RootTask(Tak tak, int depth) {
+            this.tak = tak;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            List<MoveTask> tasks = new ArrayList<>();
+            for (Move move : MoveFactory.allPossibleMovesList(tak)) {
+                Tak position = new Tak(tak);
+                position.executeMove(move);
+                tasks.add(new MoveTask(position, depth - 1));
+            }
+
+            long nodes = 0;
+            for (MoveTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+
+            return nodes;
+        }
+    }
+
+    private static class MoveTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Tak tak;
+        private final int depth;
+
+        MoveTask(Tak tak, int depth) {
+            this.tak = tak;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return new Perft(depth).count(tak, depth);
+        }
+    }
+
+    public static void main(String[] args) throws Tak.TakException {
+        if (args.length < 2) {
+            System.out.println("Usage: Perft size depth [divide | parallel] [moves...]");
+            return;
+        }
+
+        Tak tak = new Tak(Tak.GameType.ofSize(Integer.parseInt(args[0])));
+        int depth = Integer.parseInt(args[1]);
+
+        String mode = args.length > 2 && (args[2].equals("divide") || args[2].equals("parallel")) ? args[2] : "";
+        for (int i = mode.isEmpty() ? 2 : 3; i < args.length; i++) {
+            tak.safeExecuteMove(MoveFactory.parseMove(args[i]));
+        }
+
+        long start = System.nanoTime();
+        long nodes;
+        if (mode.equals("divide")) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : divide(tak, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else if (mode.equals("parallel")) {
+            nodes = parallelPerft(tak, depth, ForkJoinPool.commonPool());
+        } else {
+            nodes = perft(tak, depth);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("nodes: %d, %.1f ms, %.0f nodes/sec%n", nodes, elapsed / 1e6, nodes / (elapsed / 1e9));
+    }
+}
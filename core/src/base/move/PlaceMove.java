@@ -9,27 +9,35 @@ import base.Tak;
  */
 public class PlaceMove extends Move {
 
-    public Stone.Type type;
+    public final Stone.Type type;
+    private final int code;
 
     /**
      * @param x The x coord of the move
      * @param y The y coord of the move
      * @param type The type of stone to place
+     * @throws IllegalArgumentException If the move is off an 8x8 board.
      */
     public PlaceMove(int x, int y, Stone.Type type) {
         super(x, y);
         this.type = type;
+        this.code = MoveFactory.encodePlaceMove(x, y, type);
     }
 
     @Override
     public void action(Tak tak) {
-        tak.getStackAt(x, y).addElement(new Stone(tak.getStonePlayer(), type));
+        tak.getStackAt(x, y).push(tak.getStonePlayer(), type);
         if (type == Stone.Type.FLAT || type == Stone.Type.STANDING) {
             tak.getCurrentPlayer().sideStones -= 1;
         } else {
             tak.getCurrentPlayer().capStones -= 1;
         }
 
-        tak.updateRoadGraph(x, y);
+        tak.updateSquare(x, y);
+    }
+
+    @Override
+    public int encoding() {
+        return code;
     }
 }
@@ -1,21 +1,20 @@
 package base.move;
 
-import base.Stone;
+import base.Stack;
 import base.Tak;
 import structures.Direction;
 
-import java.util.Iterator;
-
 /**
  * Pick ups a stack of boardSize <code>pickup</code> at specified point, then
- * drops the bottom <code>vals[i]</code> one square at a time in {@link Direction}
- * <code>dir</code>, for i in length vals.
+ * drops the bottom <code>drop(i)</code> one square at a time in {@link Direction}
+ * <code>dir</code>, for i in <code>dropCount()</code>.
  */
 public class StackMove extends Move {
 
-    public Direction dir;
-    public int[] vals;
-    public int pickup;
+    public final Direction dir;
+    public final int pickup;
+    private final int[] vals;
+    private final int code;
 
     /**
      * @param x The x coord to pickup stones
@@ -23,36 +22,70 @@ public class StackMove extends Move {
      * @param dir The direction to drop stones
      * @param pickup The amount to pick up
      * @param vals The amount to drop down at each step, going on for <code>vals.length</code>
+     * @throws IllegalArgumentException If the move cannot be encoded (the drops do not add up
+     * to the pickup, or the move is off an 8x8 board).
      */
     public StackMove(int x, int y, Direction dir, int pickup, int[] vals) {
+        this(x, y, dir, pickup, vals.clone(), MoveFactory.encodeStackMove(x, y, dir, pickup, vals));
+    }
+
+    /**
+     * Shares <code>vals</code>, for the moves of the intern table.
+     */
+    StackMove(int x, int y, Direction dir, int pickup, int[] vals, int code) {
         super(x, y);
         this.dir = dir;
         this.vals = vals;
         this.pickup = pickup;
+        this.code = code;
+    }
+
+    /**
+     * @return The amount of squares the stones are dropped on.
+     */
+    public int dropCount() {
+        return vals.length;
+    }
+
+    /**
+     * @param i The step, 0 for the first square next to the stack
+     * @return The amount of stones dropped at step <code>i</code>.
+     */
+    public int drop(int i) {
+        return vals[i];
+    }
+
+    /**
+     * @return A copy of the amounts dropped at each step.
+     */
+    public int[] getVals() {
+        return vals.clone();
     }
 
     @Override
     public void action(Tak tak) {
-        Iterator<Stone> trans = tak.getStackAt(x, y).stoneIterator(pickup);
+        Stack origin = tak.getStackAt(x, y);
+        int from = origin.size() - pickup + 1;
         int transX = x;
         int transY = y;
 
+        // appending flattens the stone the dropped stones cover
         for (int i = 0; i < vals.length; i++) {
             transX += dir.dx;
             transY += dir.dy;
 
-            if (i == vals.length - 1) {
-                tak.getStackAt(transX, transY).peek().flatten();
-            }
-
-            for (int j = 0; j < vals[i]; j++) {
-                tak.getStackAt(transX, transY).add(trans.next());
-            }
+            tak.getStackAt(transX, transY).appendFrom(origin, from, vals[i]);
+            from += vals[i];
 
-            tak.updateRoadGraph(transX, transY);
+            tak.updateSquare(transX, transY);
         }
 
-        tak.getStackAt(x, y).removeRange(tak.getStackAt(x, y).tSize() - pickup, tak.getStackAt(x, y).tSize());
-        tak.updateRoadGraph(x, y);
+        origin.removeTop(pickup);
+        tak.updateSquare(x, y);
+    }
+
+    @Override
+    public int encoding() {
+        return code;
     }
 }
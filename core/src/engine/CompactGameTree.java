@@ -0,0 +1,194 @@
+package engine;
+
+import base.Tak;
+import base.move.MoveFactory;
+
+import java.util.Arrays;
+
+/**
+ * A Monte Carlo search tree that stores its nodes in parallel primitive arrays instead of
+ * {@link GameTree} objects. A node is an index into the arrays, which hold its parent, its first
+ * child, its amount of children, the move that led to it (as encoded by {@code MoveFactory.encodeMove(...)}),
+ * its visit count and the points white scored in its playouts. That is {@code BYTES_PER_NODE} bytes
+ * per node and no objects at all. <br> <br>
+ *
+ * Positions are not stored: the search executes the moves from the root down to a node (and undoes
+ * them afterwards) to get its position. The children of a node are created all at once and stored
+ * next to each other, so they are found by their first index and count alone. <br> <br>
+ *
+ * The arrays grow as needed up to a maximum amount of nodes. Unlike <code>GameTree</code>
+ * this tree is meant to be searched by one thread.
+ */
+public class CompactGameTree {
+
+    /**
+     * The index of the root node.
+     */
+    public static final int ROOT = 0;
+
+    /**
+     * The index standing in for a node that does not exist.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The memory used by one node: parent, first child, child count,
+     * move, visits (4 bytes each) and the points of white (8 bytes).
+     */
+    public static final int BYTES_PER_NODE = 5 * Integer.BYTES + Double.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxNodes;
+    private int size;
+
+    private int[] parent;
+    private int[] firstChild;
+    private int[] childCount;
+    private int[] move;
+    private int[] visits;
+    private double[] favorsWhite;
+    private int[] scratch = new int[0];
+
+    /**
+     * @param maxNodes The maximum amount of nodes in the tree (at least 1)
+     */
+    public CompactGameTree(int maxNodes) {
+        this.maxNodes = Math.max(1, maxNodes);
+
+        int capacity = Math.min(this.maxNodes, INITIAL_CAPACITY);
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        move = new int[capacity];
+        visits = new int[capacity];
+        favorsWhite = new double[capacity];
+
+        clear();
+    }
+
+    /**
+     * Removes all nodes but a new root.
+     */
+    public void clear() {
+        size = 1;
+        parent[ROOT] = NONE;
+        firstChild[ROOT] = NONE;
+        childCount[ROOT] = 0;
+        move[ROOT] = NONE;
+        visits[ROOT] = 0;
+        favorsWhite[ROOT] = 0;
+    }
+
+    /**
+     * Creates all children of a node.
+     *
+     * @param node The node to expand, which must not be expanded yet
+     * @param position The position of the node
+     * @return Whether the children were created, {@code false} if they don't fit in the tree.
+     */
+    public boolean expand(int node, Tak position) {
+        if (scratch.length < MoveFactory.maxMoves(position)) {
+            scratch = new int[MoveFactory.maxMoves(position)];
+        }
+
+        int count = MoveFactory.generateMoves(position, scratch, 0);
+
+        if (count == 0 || size + count > maxNodes) {
+            return false;
+        }
+
+        ensureCapacity(size + count);
+
+        int first = size;
+        for (int i = 0; i < count; i++) {
+            int child = first + i;
+            parent[child] = node;
+            firstChild[child] = NONE;
+            childCount[child] = 0;
+            move[child] = scratch[i];
+            visits[child] = 0;
+            favorsWhite[child] = 0;
+        }
+
+        firstChild[node] = first;
+        childCount[node] = count;
+        size += count;
+
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= parent.length) {
+            return;
+        }
+
+        int newCapacity = (int) Math.min(maxNodes, Math.max(capacity, 2L * parent.length));
+        parent = Arrays.copyOf(parent, newCapacity);
+        firstChild = Arrays.copyOf(firstChild, newCapacity);
+        childCount = Arrays.copyOf(childCount, newCapacity);
+        move = Arrays.copyOf(move, newCapacity);
+        visits = Arrays.copyOf(visits, newCapacity);
+        favorsWhite = Arrays.copyOf(favorsWhite, newCapacity);
+    }
+
+    /**
+     * Counts a playout through a node.
+     *
+     * @param node The node
+     * @param whitePayoff The points white scored in the playout
+     */
+    public void addPlayout(int node, double whitePayoff) {
+        visits[node]++;
+        favorsWhite[node] += whitePayoff;
+    }
+
+    /**
+     * @return Whether the children of the node have been created.
+     */
+    public boolean isExpanded(int node) {
+        return firstChild[node] != NONE;
+    }
+
+    /**
+     * @return The amount of nodes in the tree.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * @return The index of the first child, {@code NONE} if the node is not expanded.
+     * The other children follow it.
+     */
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    /**
+     * @return The encoded move that led to the node, {@code NONE} for the root.
+     */
+    public int getMove(int node) {
+        return move[node];
+    }
+
+    public int getVisits(int node) {
+        return visits[node];
+    }
+
+    public double getFavorsWhite(int node) {
+        return favorsWhite[node];
+    }
+}
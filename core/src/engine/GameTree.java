@@ -8,64 +8,287 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+/**
+ * A node of the search tree of a Monte Carlo search. Every node counts the playouts that went
+ * through it (<code>getTimesVisited()</code>) and the points white scored in them
+ * (<code>getFavorsWhite()</code>, a tie is half a point). <br> <br>
+ *
+ * Children are created lazily, one per call to <code>expand()</code>, in move generation order.
+ * A node only keeps its position while it still has moves to expand (or while it is a leaf
+ * a playout can start from); once the last child is created the position is released. <br> <br>
+ *
+ * The tree can be searched by many threads at once without locks. The counters are updated
+ * atomically, and <code>expand()</code> hands every move to exactly one thread: the moves are
+ * generated once (if two threads race, both use the array that was published first) and each
+ * thread claims the next index with an atomic increment before it creates that child. A claimed
+ * child is visible to other threads once it is created; until then <code>getChild(...)</code>
+ * returns {@code null} for its index.
+ */
 public class GameTree implements Serializable {
 
-    public Tak tak;
-    private List<GameTree> children;
-    private Iterator<GameTree> childrenGenerator;
-    public int timesVisited = 0;
-    public int favorsWhite = 0;
+    private static final AtomicIntegerFieldUpdater<GameTree> VISITS =
+            AtomicIntegerFieldUpdater.newUpdater(GameTree.class, "timesVisited");
+    private static final AtomicLongFieldUpdater<GameTree> FAVORS_WHITE =
+            AtomicLongFieldUpdater.newUpdater(GameTree.class, "favorsWhiteBits");
+    private static final AtomicIntegerFieldUpdater<GameTree> NEXT_CHILD =
+            AtomicIntegerFieldUpdater.newUpdater(GameTree.class, "nextChild");
+    private static final AtomicIntegerFieldUpdater<GameTree> CREATED =
+            AtomicIntegerFieldUpdater.newUpdater(GameTree.class, "created");
+    private static final AtomicReferenceFieldUpdater<GameTree, Expansion> EXPANSION =
+            AtomicReferenceFieldUpdater.newUpdater(GameTree.class, Expansion.class, "expansion");
+
+    public volatile Tak tak;
+    public final Move move;
+    public final Tak.GameResult result;
+    public final boolean whiteToMove;
+
+    private volatile Expansion expansion;
+    private volatile int nextChild = 0;
+    private volatile int created = 0;
+
+    private volatile int timesVisited = 0;
+    private volatile long favorsWhiteBits = Double.doubleToRawLongBits(0);
 
     public GameTree(Tak tak) {
+        this(tak, null);
+    }
+
+    /**
+     * @param tak The position of this node, which is owned by the node from now on
+     * @param move The move that led to this position, {@code null} for a root
+     */
+    public GameTree(Tak tak, Move move) {
         this.tak = tak;
-        childrenGenerator = new ChildIterator(MoveFactory.allPossibleMoves(tak));
+        this.move = move;
+        this.result = tak.getGameResult();
+        this.whiteToMove = tak.getCurrentPlayerIndex() == 0;
+
+        // there is nothing to expand after the game is over
+        if (isTerminal()) {
+            releaseResources();
+        }
+    }
+
+    /**
+     * @return The amount of playouts that went through this node (including running ones).
+     */
+    public int getTimesVisited() {
+        return timesVisited;
+    }
+
+    /**
+     * @return The points white scored in the playouts through this node.
+     */
+    public double getFavorsWhite() {
+        return Double.longBitsToDouble(favorsWhiteBits);
     }
 
     public double getPercentFavorsWhite() {
-        return ( (double) favorsWhite) / timesVisited;
+        return getFavorsWhite() / timesVisited;
     }
 
     public double getPercentFavorsBlack() {
         return 1 - getPercentFavorsWhite();
     }
 
+    /**
+     * Counts a playout through this node.
+     *
+     * @param whitePayoff The points white scored in it
+     */
+    public void addPlayout(double whitePayoff) {
+        VISITS.incrementAndGet(this);
+        addFavorsWhite(whitePayoff);
+    }
+
+    /**
+     * Counts a playout that has not finished yet as a loss for the player who chose this node
+     * ("virtual loss"), so other threads are steered away from it until it finishes.
+     */
+    public void addVirtualLoss(boolean whiteChose) {
+        addPlayout(whiteChose ? 0 : 1);
+    }
+
+    /**
+     * Replaces the virtual loss of a playout by its actual result.
+     *
+     * @param whiteChose The same as was given to <code>addVirtualLoss(...)</code>
+     * @param whitePayoff The points white scored in the playout
+     */
+    public void revertVirtualLoss(boolean whiteChose, double whitePayoff) {
+        addFavorsWhite(whitePayoff - (whiteChose ? 0 : 1));
+    }
+
+    private void addFavorsWhite(double delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        long bits;
+        do {
+            bits = favorsWhiteBits;
+        } while (!FAVORS_WHITE.compareAndSet(this, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + delta)));
+    }
+
+    /**
+     * @return Whether the game is over in this position.
+     */
+    public boolean isTerminal() {
+        return result != Tak.GameResult.ONGOING;
+    }
+
+    /**
+     * @return Whether every child of this node has been claimed by a call to <code>expand()</code>.
+     */
+    public boolean isFullyExpanded() {
+        Expansion e = expansion;
+        return isTerminal() || e != null && nextChild >= e.moves.length;
+    }
+
+    /**
+     * @return The amount of children claimed so far. Use <code>getChild(...)</code> to get them.
+     */
+    public int getChildCount() {
+        Expansion e = expansion;
+        return e == null ? 0 : Math.min(nextChild, e.moves.length);
+    }
+
+    /**
+     * @param index The index of the child, smaller than <code>getChildCount()</code>
+     * @return The child, or {@code null} if another thread is still creating it.
+     */
+    public GameTree getChild(int index) {
+        return expansion.children.get(index);
+    }
+
+    /**
+     * @return The children created so far, in the order they were claimed.
+     */
+    public List<GameTree> getChildren() {
+        int count = getChildCount();
+        List<GameTree> list = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            GameTree child = getChild(i);
+            if (child != null) {
+                list.add(child);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Creates the next child of this node. The position is released once the last child is created.
+     *
+     * @return The new child, or {@code null} if this node is already fully expanded.
+     */
+    public GameTree expand() {
+        Tak position = tak;
+        if (position == null) {
+            return null;
+        }
+
+        Expansion e = expansion;
+        if (e == null) {
+            // if another thread beats us to it, we use its moves
+            EXPANSION.compareAndSet(this, null, new Expansion(MoveFactory.allPossibleMovesList(position)));
+            e = expansion;
+        }
+
+        if (nextChild >= e.moves.length) {
+            return null;
+        }
+
+        int index = NEXT_CHILD.getAndIncrement(this);
+        if (index >= e.moves.length) {
+            return null;
+        }
+
+        Tak nextTak = new Tak(position);
+        nextTak.executeMove(e.moves[index]);
+
+        GameTree child = new GameTree(nextTak, e.moves[index]);
+        e.children.set(index, child);
+
+        if (CREATED.incrementAndGet(this) == e.moves.length) {
+            releaseResources();
+        }
+
+        return child;
+    }
+
     public void releaseResources() {
         tak = null;
-        childrenGenerator = null;
     }
 
+    /**
+     * @return An iterator over all children of this node, which creates
+     * the children that don't exist yet as it goes. Other threads may expand the node
+     * at the same time, the iterator still returns every child exactly once (waiting
+     * for a child another thread claimed but did not finish creating yet).
+     */
     public Iterator<GameTree> getChildrenIterator() {
-        if (children.isEmpty()) {
-            children = new ArrayList<>();
-            return childrenGenerator;
-        } else {
-            return children.iterator();
-        }
+        return new ChildIterator();
     }
 
-    private class ChildIterator implements Iterator<GameTree> {
+    /**
+     * The moves of a node and the children created for them, published together.
+     */
+    private static final class Expansion implements Serializable {
+        private static final long serialVersionUID = 1L;
 
-        Iterator<Move> moveIterator;
+        final Move[] moves;
+        final AtomicReferenceArray<GameTree> children;
 
-        ChildIterator(Iterator<Move> moveIterator) {
-            this.moveIterator = moveIterator;
+        Expansion(List<Move> moves) {
+            this.moves = moves.toArray(new Move[0]);
+            this.children = new AtomicReferenceArray<>(this.moves.length);
         }
+    }
+
+    private class ChildIterator implements Iterator<GameTree> {
+
+        int index = 0;
+        GameTree next;
 
         @Override
         public boolean hasNext() {
-            return moveIterator.hasNext();
+            // the child expand() creates need not be the one at index (other threads claim
+            // children too), so it is only returned once the loop reaches its index
+            while (next == null) {
+                if (index < getChildCount()) {
+                    GameTree child = getChild(index);
+                    if (child == null) {
+                        // claimed by another thread that is still creating it
+                        Thread.onSpinWait();
+                    } else {
+                        next = child;
+                        index++;
+                    }
+                } else if (expand() == null && index >= getChildCount()) {
+                    return false;
+                }
+            }
+
+            return true;
         }
 
         @Override
         public GameTree next() {
-            Tak nextTak = new Tak(tak);
-            nextTak.executeMove(moveIterator.next());
-            GameTree tree = new GameTree(nextTak);
-
-            children.add(tree);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
 
-            return tree;
+            GameTree child = next;
+            next = null;
+            return child;
         }
     }
 }
@@ -2,15 +2,143 @@ package engine;
 
 import base.Tak;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Owns the {@link GameTree} of a Monte Carlo search between searches. It limits the amount of
+ * nodes in the tree and, when asked to search a position reached from the previous root by one or
+ * two moves (our move and the opponent's answer), keeps the subtree of that position rather than
+ * starting over. <br> <br>
+ *
+ * <code>expand(...)</code> and <code>hasRoom()</code> can be called by many threads at once,
+ * <code>setRoot(...)</code> and <code>clear()</code> only while no search is running.
+ */
 public class GameTreeHandler {
 
-    HashMap<Tak, GameTree> gameTreeMap;
-    GameTree root;
+    private GameTree root;
+    private Tak rootTak;
+    private int maxNodes;
+    private final AtomicInteger nodeCount = new AtomicInteger();
 
-    public GameTreeHandler() {
+    /**
+     * @param maxNodes The maximum amount of nodes in the tree
+     */
+    public GameTreeHandler(int maxNodes) {
+        this.maxNodes = Math.max(1, maxNodes);
+    }
+
+    /**
+     * Makes the given position the root of the tree. If the position is the current root, one of its
+     * children or one of its grandchildren, that node (and everything below it) is kept.
+     *
+     * @param tak The position to search
+     * @return Whether part of the previous tree was reused.
+     */
+    public boolean setRoot(Tak tak) {
+        GameTree reused = root == null ? null : find(tak);
+
+        rootTak = new Tak(tak);
+        if (reused == null) {
+            root = new GameTree(new Tak(tak));
+            nodeCount.set(1);
+            return false;
+        }
+
+        root = reused;
+        nodeCount.set(count(root));
+        return true;
+    }
+
+    /**
+     * @return The node of {@code tak} at most two moves below the root, {@code null} if there is none.
+     */
+    private GameTree find(Tak tak) {
+        if (rootTak.equals(tak)) {
+            return root;
+        }
+
+        Tak position = new Tak(rootTak);
+        for (GameTree child : root.getChildren()) {
+            Tak.Undo childUndo = position.executeMove(child.move);
+
+            if (position.equals(tak)) {
+                return child;
+            }
+
+            for (GameTree grandchild : child.getChildren()) {
+                Tak.Undo undo = position.executeMove(grandchild.move);
+                boolean found = position.equals(tak);
+                position.undoMove(undo);
+
+                if (found) {
+                    return grandchild;
+                }
+            }
+
+            position.undoMove(childUndo);
+        }
+
+        return null;
+    }
+
+    private static int count(GameTree node) {
+        int count = 1;
+        for (GameTree child : node.getChildren()) {
+            count += count(child);
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates the next child of {@code node} if the tree has room for it.
+     *
+     * @return The new child, or {@code null} if the tree is full or the node fully expanded.
+     */
+    public GameTree expand(GameTree node) {
+        if (node.isFullyExpanded()) {
+            return null;
+        }
+
+        // reserve the node first, so threads can't overfill the tree together
+        if (nodeCount.incrementAndGet() > maxNodes) {
+            nodeCount.decrementAndGet();
+            return null;
+        }
+
+        GameTree child = node.expand();
+        if (child == null) {
+            nodeCount.decrementAndGet();
+        }
+
+        return child;
+    }
+
+    /**
+     * @return Whether another node fits in the tree.
+     */
+    public boolean hasRoom() {
+        return nodeCount.get() < maxNodes;
+    }
+
+    /**
+     * Forgets the tree.
+     */
+    public void clear() {
+        root = null;
+        rootTak = null;
+        nodeCount.set(0);
+    }
+
+    public GameTree getRoot() {
+        return root;
+    }
+
+    public int getNodeCount() {
+        return nodeCount.get();
+    }
 
+    public int getMaxNodes() {
+        return maxNodes;
     }
 }
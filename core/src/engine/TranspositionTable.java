@@ -0,0 +1,235 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results keyed by {@code Tak.zobristKey()},
+ * backed by a single {@code long[]} so it can be shared by many search threads. <br> <br>
+ *
+ * Every entry is two longs: the key XORed with the data, and the data itself.
+ * The data packs the score (as a {@code float}), the best move (as encoded by
+ * {@code MoveFactory.encodeMove(...)}), the bound type, the searched depth and the
+ * generation of the search that stored it. Writes are not synchronized; a reader that
+ * sees the two longs of different writes recomputes a key that does not match and
+ * simply treats the entry as a miss (the "lockless hashing" scheme of Hyatt and Mann). <br> <br>
+ *
+ * Entries are grouped in buckets of two: the first slot keeps the deepest result
+ * (unless it is from an older search), the second slot is always replaced.
+ */
+public class TranspositionTable {
+
+    /**
+     * The stored score is the exact value of the position.
+     */
+    public static final int EXACT = 0;
+
+    /**
+     * The stored score is a lower bound of the value of the position (the search failed high).
+     */
+    public static final int LOWER_BOUND = 1;
+
+    /**
+     * The stored score is an upper bound of the value of the position (the search failed low).
+     */
+    public static final int UPPER_BOUND = 2;
+
+    /**
+     * The move stored with an entry that has no best move.
+     */
+    public static final int NO_MOVE = -1;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_LONGS = 2 * ENTRY_LONGS;
+
+    private static final int MOVE_SHIFT = 32;
+    private static final int BOUND_SHIFT = 49;
+    private static final int DEPTH_SHIFT = 51;
+    private static final int GENERATION_SHIFT = 59;
+    private static final long VALID = 1L << 63;
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * @param megabytes The size of the table in megabytes. The amount of buckets
+     *                  is rounded down to a power of two (at least one bucket).
+     */
+    public TranspositionTable(int megabytes) {
+        long buckets = Math.max(1, (long) megabytes * 1024 * 1024 / (BUCKET_LONGS * Long.BYTES));
+        buckets = Long.highestOneBit(Math.min(buckets, Integer.MAX_VALUE / BUCKET_LONGS));
+
+        table = new long[(int) buckets * BUCKET_LONGS];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The Zobrist key of the position
+     * @return The packed entry of the position, or 0 if there is none. Use
+     * {@code depth(...)}, {@code bound(...)}, {@code score(...)} and {@code move(...)}
+     * to unpack it.
+     */
+    public long probe(long key) {
+        int bucket = (int) (key & bucketMask) * BUCKET_LONGS;
+        boolean occupied = false;
+
+        for (int slot = bucket; slot < bucket + BUCKET_LONGS; slot += ENTRY_LONGS) {
+            long data = table[slot + 1];
+            long check = table[slot];
+
+            if ((check ^ data) == key && data != 0) {
+                hits.increment();
+                return data;
+            }
+
+            occupied |= data != 0;
+        }
+
+        misses.increment();
+        if (occupied) {
+            collisions.increment();
+        }
+
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search.
+     *
+     * @param key The Zobrist key of the position
+     * @param depth The remaining depth that was searched (0 to 255)
+     * @param bound {@code EXACT}, {@code LOWER_BOUND} or {@code UPPER_BOUND}
+     * @param score The score of the search
+     * @param move The encoded best move, or {@code NO_MOVE}
+     */
+    public void store(long key, int depth, int bound, double score, int move) {
+        int bucket = (int) (key & bucketMask) * BUCKET_LONGS;
+        int gen = generation;
+
+        int slot = -1;
+        for (int s = bucket; s < bucket + BUCKET_LONGS; s += ENTRY_LONGS) {
+            long data = table[s + 1];
+            if ((table[s] ^ data) == key && data != 0) {
+                slot = s;
+
+                // keep the old best move rather than forgetting it
+                if (move == NO_MOVE) {
+                    move = move(data);
+                }
+                break;
+            }
+        }
+
+        if (slot < 0) {
+            long deepest = table[bucket + 1];
+            boolean stale = generation(deepest) != gen;
+            slot = stale || depth >= depth(deepest) ? bucket : bucket + ENTRY_LONGS;
+        }
+
+        long data = VALID
+                | (long) gen << GENERATION_SHIFT
+                | (long) Math.min(Math.max(depth, 0), 255) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) (move + 1) << MOVE_SHIFT
+                | (Float.floatToRawIntBits((float) score) & 0xFFFFFFFFL);
+
+        table[slot + 1] = data;
+        table[slot] = key ^ data;
+    }
+
+    /**
+     * Marks the start of a new search. Entries of older searches are
+     * replaced before deeper entries of the current one.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xF;
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        resetCounters();
+    }
+
+    /**
+     * Resets the hit, miss and collision counters.
+     */
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    /**
+     * @return The amount of probes that found their position.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The amount of probes that did not find their position.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The amount of misses where the bucket was occupied by other positions.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * @return The number of entries this table can hold.
+     */
+    public int capacity() {
+        return table.length / ENTRY_LONGS;
+    }
+
+    /**
+     * @param entry A packed entry returned by {@code probe(...)}
+     * @return The remaining depth the entry was searched to.
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @param entry A packed entry returned by {@code probe(...)}
+     * @return {@code EXACT}, {@code LOWER_BOUND} or {@code UPPER_BOUND}.
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * @param entry A packed entry returned by {@code probe(...)}
+     * @return The stored score.
+     */
+    public static double score(long entry) {
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    /**
+     * @param entry A packed entry returned by {@code probe(...)}
+     * @return The stored encoded best move, or {@code NO_MOVE}.
+     */
+    public static int move(long entry) {
+        return (int) ((entry >>> MOVE_SHIFT) & 0x1FFFF) - 1;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xF;
+    }
+}
@@ -8,17 +8,18 @@ import engine.models.Model;
 import structures.MaxPQ;
 import structures.Tuple;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * The <code>MinMaxDepthEngine</code> class chooses the move which maximizes the evaluation of the
- * next position with the given <code>Model</code> up to a given depth.
+ * The <code>BestSearchEngine</code> class ranks every move of a position by the evaluation of the
+ * position right after it with the given <code>Model</code>, without searching any deeper.
+ * It is the cheapest engine that returns a full ranked list from <code>pollMoves()</code>.
  */
 public class BestSearchEngine implements Engine {
 
     private Model model;
-    private MaxPQ<Tuple<Move, Double>> moveQueue;
+    private volatile List<Tuple<Move, Double>> currentMoves = Collections.emptyList();
 
     public BestSearchEngine(Model model) {
         this.model = model;
@@ -26,11 +27,30 @@ public class BestSearchEngine implements Engine {
 
     @Override
     public void solve(Tak tak, long theirTime, long myTime) throws InterruptedException {
-
+        currentMoves = Collections.emptyList();
+        if (tak.isGameOver()) {
+            return;
+        }
+
+        boolean white = tak.getCurrentPlayerIndex() == 0;
+        MaxPQ<Tuple<Move, Double>> moveQueue = new MaxPQ<>(white ? MOVE_TUPLE_COMPARATOR : MOVE_TUPLE_COMPARATOR.reversed());
+
+        Tak position = new Tak(tak);
+        for (Move m : MoveFactory.allPossibleMovesList(position)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            Tak.Undo undo = position.executeMove(m);
+            moveQueue.add(new Tuple<>(m, model.evaluate(position)));
+            position.undoMove(undo);
+        }
+
+        currentMoves = Collections.unmodifiableList(moveQueue.toSortedList());
     }
 
     @Override
     public List<Tuple<Move, Double>> pollMoves() {
-        return null;
+        return currentMoves;
     }
 }
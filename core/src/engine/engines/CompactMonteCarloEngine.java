@@ -0,0 +1,218 @@
+package engine.engines;
+
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import engine.CompactGameTree;
+import engine.Engine;
+import engine.rollouts.RolloutPolicy;
+import structures.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The <code>CompactMonteCarloEngine</code> class is the single-threaded UCT search of
+ * {@link MonteCarloEngine} on a {@link CompactGameTree}: it needs a small fraction of the memory
+ * per node, so a tree of the same size in memory holds many more positions. In return every playout
+ * executes the moves from the root to its leaf (and undoes them) to get the position there. <br> <br>
+ *
+ * A leaf is expanded (all its children at once) the first time a playout reaches it; the playout
+ * then continues to one of the new children. Once the tree is full, playouts start from the leaves
+ * already in it. <code>pollMoves()</code> ranks the moves of the root by the amount of playouts
+ * they got, paired with the share of points white scored in them (0 to 1).
+ */
+public class CompactMonteCarloEngine implements Engine {
+
+    private static final int CHECK_INTERVAL = 63;
+
+    private RolloutPolicy policy;
+    private int playouts;
+    private double exploration;
+    private CompactGameTree tree;
+    private Random random;
+
+    private volatile boolean stopped;
+    private volatile List<Tuple<Move, Double>> currentMoves = Collections.emptyList();
+    private long playoutCount;
+
+    /**
+     * @param policy The way to estimate the outcome of new positions
+     * @param playouts The amount of playouts to do if there is no clock
+     */
+    public CompactMonteCarloEngine(RolloutPolicy policy, int playouts) {
+        this(policy, playouts, MonteCarloEngine.DEFAULT_EXPLORATION, MonteCarloEngine.DEFAULT_MAX_NODES, new Random());
+    }
+
+    /**
+     * @param policy The way to estimate the outcome of new positions
+     * @param playouts The amount of playouts to do if there is no clock
+     * @param exploration The exploration constant of UCT
+     * @param maxNodes The maximum amount of nodes in the tree
+     * @param random The source of randomness of the rollouts
+     */
+    public CompactMonteCarloEngine(RolloutPolicy policy, int playouts, double exploration, int maxNodes, Random random) {
+        this.policy = policy;
+        this.playouts = playouts;
+        this.exploration = exploration;
+        this.tree = new CompactGameTree(maxNodes);
+        this.random = random;
+    }
+
+    /**
+     * Does {@code playouts} playouts if {@code myTime} is not positive. Otherwise we search as long as
+     * {@code MinMaxDepthPruneEngine.allocateTime(...)} allows.
+     */
+    @Override
+    public void solve(Tak tak, long theirTime, long myTime) throws InterruptedException {
+        stopped = false;
+        playoutCount = 0;
+        currentMoves = Collections.emptyList();
+        tree.clear();
+
+        if (tak.isGameOver()) {
+            return;
+        }
+
+        // one copy for the whole search, moves are executed and undone on it
+        Tak position = new Tak(tak);
+        tree.expand(CompactGameTree.ROOT, position);
+
+        long budget = MinMaxDepthPruneEngine.allocateTime(theirTime, myTime) * 1_000_000;
+        long deadline = System.nanoTime() + budget;
+        List<Tak.Undo> undos = new ArrayList<>();
+
+        for (long i = 0; budget > 0 || i < playouts; i++) {
+            if ((i & CHECK_INTERVAL) == 0) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                if (stopped || budget > 0 && System.nanoTime() > deadline) {
+                    break;
+                }
+
+                currentMoves = rankMoves();
+            }
+
+            playout(position, undos);
+            playoutCount++;
+        }
+
+        currentMoves = rankMoves();
+    }
+
+    /**
+     * Selects a leaf, expands it, estimates the outcome and updates the nodes on the path.
+     * The position is the root position again afterwards.
+     */
+    private void playout(Tak position, List<Tak.Undo> undos) {
+        undos.clear();
+        int node = CompactGameTree.ROOT;
+
+        while (!position.isGameOver()) {
+            if (!tree.isExpanded(node) && !tree.expand(node, position)) {
+                break; // a leaf we have no room to expand
+            }
+
+            node = select(node, position.getCurrentPlayerIndex() == 0);
+            undos.add(position.executeMove(MoveFactory.decodeMove(tree.getMove(node))));
+
+            if (tree.getVisits(node) == 0) {
+                break;
+            }
+        }
+
+        double payoff = position.isGameOver()
+                ? position.getGameResult().getWhitePayoff()
+                : policy.rollout(new Tak(position), random);
+
+        for (int n = node; n != CompactGameTree.NONE; n = tree.getParent(n)) {
+            tree.addPlayout(n, payoff);
+        }
+
+        for (int i = undos.size() - 1; i >= 0; i--) {
+            position.undoMove(undos.get(i));
+        }
+    }
+
+    /**
+     * @return The child with the best upper confidence bound for the player to move at {@code node}.
+     */
+    private int select(int node, boolean whiteToMove) {
+        double logVisits = Math.log(Math.max(1, tree.getVisits(node)));
+
+        int best = CompactGameTree.NONE;
+        double bestBound = Double.NEGATIVE_INFINITY;
+
+        int first = tree.getFirstChild(node);
+        for (int child = first; child < first + tree.getChildCount(node); child++) {
+            int visits = tree.getVisits(child);
+            if (visits == 0) {
+                return child;
+            }
+
+            double white = tree.getFavorsWhite(child) / visits;
+            double mean = whiteToMove ? white : 1 - white;
+            double bound = mean + exploration * Math.sqrt(logVisits / visits);
+
+            if (bound > bestBound) {
+                bestBound = bound;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    private List<Tuple<Move, Double>> rankMoves() {
+        List<Tuple<Move, Double>> moves = new ArrayList<>();
+        List<Integer> children = new ArrayList<>();
+
+        int first = tree.getFirstChild(CompactGameTree.ROOT);
+        for (int child = first; child < first + tree.getChildCount(CompactGameTree.ROOT); child++) {
+            children.add(child);
+        }
+
+        children.sort(Comparator.comparingInt((Integer child) -> tree.getVisits(child)).reversed());
+
+        for (int child : children) {
+            int visits = tree.getVisits(child);
+            double value = visits == 0
+                    ? Tak.GameResult.TIE.getWhitePayoff()
+                    : tree.getFavorsWhite(child) / visits;
+            moves.add(new Tuple<>(MoveFactory.decodeMove(tree.getMove(child)), value));
+        }
+
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * Stops a running <code>solve(...)</code> after the current playout.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return The amount of playouts of the last call to <code>solve(...)</code>.
+     */
+    public long getPlayoutCount() {
+        return playoutCount;
+    }
+
+    /**
+     * @return The search tree.
+     */
+    public CompactGameTree getTree() {
+        return tree;
+    }
+
+    @Override
+    public List<Tuple<Move, Double>> pollMoves() {
+        return currentMoves;
+    }
+}
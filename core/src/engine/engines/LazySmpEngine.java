@@ -0,0 +1,210 @@
+package engine.engines;
+
+import base.Tak;
+import base.move.Move;
+import engine.Engine;
+import engine.TranspositionTable;
+import engine.models.Model;
+import structures.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The <code>LazySmpEngine</code> class searches a position with several {@link MinMaxDepthPruneEngine}
+ * workers at once, one per thread, that all share a single {@link TranspositionTable}
+ * ("Lazy SMP"). The workers don't communicate in any other way: each one searches the whole tree,
+ * but a worker finds many positions already searched by the others in the table. <br> <br>
+ *
+ * The main worker runs on the thread that calls <code>solve(...)</code> and keeps to the clock.
+ * The helpers run on a thread pool of this engine; every other helper starts deepening one ply deeper,
+ * so the workers spread over more of the tree. When the main worker is done, the helpers are stopped
+ * and the result of the deepest completed iteration of any worker is returned (the main worker's
+ * result if there's a tie). With one thread no pool is used, and the result is exactly that of a
+ * single <code>MinMaxDepthPruneEngine</code>.
+ */
+public class LazySmpEngine implements Engine {
+
+    private int threads;
+    private TranspositionTable table;
+    private List<MinMaxDepthPruneEngine> workers;
+    private ExecutorService pool;
+
+    private volatile MinMaxDepthPruneEngine current;
+    private long nodes;
+
+    public LazySmpEngine(Model model, int depth, int threads) {
+        this(model, depth, threads, new TranspositionTable(MinMaxDepthPruneEngine.DEFAULT_TABLE_SIZE));
+    }
+
+    /**
+     * @param model The model to evaluate positions with
+     * @param depth The amount of moves (for both players) to search at most
+     * @param threads The amount of threads to search with (at least 1)
+     * @param table The transposition table shared by all threads (not {@code null})
+     */
+    public LazySmpEngine(Model model, int depth, int threads, TranspositionTable table) {
+        if (table == null) {
+            throw new IllegalArgumentException("Lazy SMP needs a transposition table");
+        }
+
+        this.threads = Math.max(1, threads);
+        this.table = table;
+        this.workers = new ArrayList<>(this.threads);
+
+        for (int i = 0; i < this.threads; i++) {
+            MinMaxDepthPruneEngine worker = new MinMaxDepthPruneEngine(model, depth, table);
+            if (i > 0) {
+                worker.makeHelper(i % 2);
+            }
+
+            workers.add(worker);
+        }
+
+        current = workers.get(0);
+    }
+
+    @Override
+    public void solve(Tak tak, long theirTime, long myTime) throws InterruptedException {
+        MinMaxDepthPruneEngine main = workers.get(0);
+        current = main;
+        nodes = 0;
+
+        if (threads == 1 || tak.isGameOver()) {
+            main.solve(tak, theirTime, myTime);
+            nodes = main.getNodeCount();
+            return;
+        }
+
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread thread = new Thread(r, "lazy-smp-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // a new generation before any worker stores, the helpers don't start one themselves
+        table.newSearch();
+
+        List<Future<?>> helpers = new ArrayList<>(threads - 1);
+        for (MinMaxDepthPruneEngine helper : workers.subList(1, threads)) {
+            helper.reset();
+            helpers.add(pool.submit(() -> {
+                helper.search(tak, 0, 0);
+                return null;
+            }));
+        }
+
+        try {
+            main.reset();
+            main.search(tak, theirTime, myTime);
+        } finally {
+            for (MinMaxDepthPruneEngine helper : workers.subList(1, threads)) {
+                helper.stop();
+            }
+
+            awaitAll(helpers);
+        }
+
+        MinMaxDepthPruneEngine best = main;
+        for (MinMaxDepthPruneEngine worker : workers) {
+            nodes += worker.getNodeCount();
+            if (worker.getCompletedDepth() > best.getCompletedDepth() && !worker.pollMoves().isEmpty()) {
+                best = worker;
+            }
+        }
+
+        current = best;
+    }
+
+    /**
+     * Waits for all helpers to finish, even if this thread is interrupted meanwhile
+     * (the interrupt is passed on once they have).
+     */
+    private static void awaitAll(List<Future<?>> helpers) {
+        boolean interrupted = false;
+
+        for (Future<?> helper : helpers) {
+            while (true) {
+                try {
+                    helper.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Helper search failed", e.getCause());
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops a running <code>solve(...)</code> as soon as possible.
+     */
+    public void stop() {
+        for (MinMaxDepthPruneEngine worker : workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Stops the helper threads of this engine. The engine can not search
+     * with more than one thread afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+
+        threads = 1;
+    }
+
+    /**
+     * @return The amount of positions visited by all threads in the last call to <code>solve(...)</code>.
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * @return The depth (in plies) of the returned result.
+     */
+    public int getCompletedDepth() {
+        return current.getCompletedDepth();
+    }
+
+    /**
+     * @return The expected line of play of the returned result, starting with the best move.
+     */
+    public List<Move> getPrincipalVariation() {
+        return current.getPrincipalVariation();
+    }
+
+    /**
+     * @return The amount of threads this engine searches with.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return The transposition table shared by the threads.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    @Override
+    public List<Tuple<Move, Double>> pollMoves() {
+        return current.pollMoves();
+    }
+}
@@ -4,10 +4,14 @@ import base.Tak;
 import base.move.Move;
 import base.move.MoveFactory;
 import engine.Engine;
+import engine.TranspositionTable;
 import engine.models.Model;
 import structures.Tuple;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import static java.lang.Double.max;
@@ -15,49 +19,340 @@ import static java.lang.Double.min;
 
 /**
  * The <code>MinMaxDepthEngine</code> class chooses the move which maximizes the evaluation of the
- * next position with the given <code>Model</code> up to a given depth.
+ * next position with the given <code>Model</code> up to a given depth. Results of searched
+ * positions are kept in a {@link TranspositionTable}, so positions reached by different
+ * move orders are only searched once and the best move found for a position is tried first. <br> <br>
+ *
+ * The search is iteratively deepened: we search 1 ply, then 2 plies, etc. up to the given depth,
+ * trying the principal variation of the previous iteration first. If we are given time on our clock,
+ * we stop deepening once the time allocated for this move runs out and keep the result of the
+ * deepest completed iteration. <code>pollMoves()</code> can be called from another thread while
+ * <code>solve(...)</code> is running and returns the result of the latest completed iteration. <br> <br>
+ *
+ * <code>pollMoves()</code> returns every move of the position, best first. In multi-PV mode
+ * the best {@code multiPv} moves get exact scores. All other moves are searched with a window that
+ * only proves they are not better than the {@code multiPv}th best move, so their score is a bound
+ * (an upper bound for white, a lower bound for black). They are still ranked by that bound.
  */
 public class MinMaxDepthPruneEngine implements Engine {
 
+    /**
+     * The size of the transposition table (in megabytes) if none is given.
+     */
+    public static final int DEFAULT_TABLE_SIZE = 16;
+
+    /**
+     * Roughly the amount of moves we still expect to play, our remaining time is split over them.
+     */
+    private static final int MOVES_TO_GO = 30;
+
+    /**
+     * We check the clock every {@code CHECK_INTERVAL + 1} nodes.
+     */
+    private static final int CHECK_INTERVAL = 1023;
+
+    /**
+     * Half the width of the aspiration window around the score of the previous iteration
+     * (in the units of the model).
+     */
+    private static final double ASPIRATION_WINDOW = 1.0;
+
     private Model model;
     private int depth;
-    private List<Tuple<Move,Double>> currentMoves;
+    private TranspositionTable table;
+    private int multiPv;
+    private volatile List<Tuple<Move,Double>> currentMoves = Collections.emptyList();
+
+    private volatile boolean stopped;
+    private volatile int completedDepth;
+    private volatile List<Move> principalVariation = Collections.emptyList();
+    private int[] pvMoves = new int[0];
+    private int[][] moveBuffers = new int[0][];
+    private boolean hasDeadline;
+    private long deadline;
+    private long nodes;
+
+    // set by LazySmpEngine for its helper threads
+    private boolean helper;
+    private int depthOffset;
 
     public MinMaxDepthPruneEngine(Model model, int depth) {
+        this(model, depth, new TranspositionTable(DEFAULT_TABLE_SIZE));
+    }
+
+    /**
+     * @param model The model to evaluate positions with
+     * @param depth The amount of moves (for both players) to search at most
+     * @param table The transposition table to use (can be shared with other engines),
+     *              or {@code null} to search without one.
+     */
+    public MinMaxDepthPruneEngine(Model model, int depth, TranspositionTable table) {
+        this(model, depth, table, 1);
+    }
+
+    /**
+     * @param model The model to evaluate positions with
+     * @param depth The amount of moves (for both players) to search at most
+     * @param table The transposition table to use (can be shared with other engines),
+     *              or {@code null} to search without one.
+     * @param multiPv The amount of best moves to get exact scores for.
+     */
+    public MinMaxDepthPruneEngine(Model model, int depth, TranspositionTable table, int multiPv) {
         this.model = model;
         this.depth = depth;
+        this.table = table;
+        this.multiPv = Math.max(1, multiPv);
     }
 
+    /**
+     * Searches the position, deepening one ply at a time up to {@code 2 * depth} plies.
+     * If {@code myTime} is positive we stop early once the time allocated for this move
+     * (see {@code allocateTime(...)}) is used up. Otherwise we always search to the full depth.
+     */
     @Override
     public void solve(Tak tak, long theirTime, long myTime) throws InterruptedException {
-        currentMoves = new ArrayList<>();
+        reset();
+        if (tak.isGameOver()) {
+            return;
+        }
+
+        if (table != null && !helper) {
+            table.newSearch();
+        }
+
+        search(tak, theirTime, myTime);
+    }
 
+    /**
+     * Clears the results of the previous search. <code>stop()</code> calls made after
+     * this take effect in the following <code>search(...)</code>.
+     */
+    void reset() {
+        currentMoves = Collections.emptyList();
+        principalVariation = Collections.emptyList();
+        pvMoves = new int[0];
+        completedDepth = 0;
+        stopped = false;
+        nodes = 0;
+    }
+
+    /**
+     * Makes this engine a helper of a parallel search: it does not start a new generation of the
+     * transposition table, starts deepening at {@code 1 + depthOffset} plies and can be stopped
+     * before it completed an iteration.
+     */
+    void makeHelper(int depthOffset) {
+        this.helper = true;
+        this.depthOffset = depthOffset;
+    }
+
+    /**
+     * The iterative deepening loop of <code>solve(...)</code>, without resetting the engine first.
+     */
+    void search(Tak tak, long theirTime, long myTime) throws InterruptedException {
         if (tak.isGameOver()) {
             return;
         }
 
-        currentMoves.add(eval(tak, 2 * depth, Double.NEGATIVE_INFINITY,
-                Double.POSITIVE_INFINITY, tak.getCurrentPlayerIndex() == 0));
+        long start = System.nanoTime();
+        long budget = allocateTime(theirTime, myTime) * 1_000_000;
+        hasDeadline = budget > 0;
+        deadline = start + budget;
+
+        // one copy for the whole search, moves are executed and undone on it
+        Tak position = new Tak(tak);
+        boolean white = tak.getCurrentPlayerIndex() == 0;
+
+        List<Move> rootMoves = MoveFactory.allPossibleMovesList(position);
+        double previous = Double.NaN;
+
+        for (int d = 1 + depthOffset; d <= 2 * depth; d++) {
+            List<Tuple<Move, Double>> ranked;
+            try {
+                ranked = searchRoot(position, rootMoves, d, white, previous);
+            } catch (SearchAborted e) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                break;
+            }
+
+            Tuple<Move, Double> best = ranked.get(0);
+            currentMoves = Collections.unmodifiableList(ranked);
+            extractPrincipalVariation(position, best.one, d);
+            completedDepth = d;
+
+            // search the moves in the order of this iteration next time
+            rootMoves = new ArrayList<>(ranked.size());
+            for (Tuple<Move, Double> tuple : ranked) {
+                rootMoves.add(tuple.one);
+            }
+            previous = best.two;
+
+            // a forced win or loss won't change by searching deeper
+            if (Double.isInfinite(best.two)) {
+                break;
+            }
+
+            // the next iteration takes a lot longer than this one, don't start what we can't finish
+            if (stopped || hasDeadline && System.nanoTime() - start > budget / 2) {
+                break;
+            }
+        }
     }
 
-    private Tuple<Move, Double> eval(Tak tak, int d, double alpha, double beta, boolean white) {
+    /**
+     * Searches all root moves. The first {@code multiPv} moves are searched with a full window,
+     * after that a move only gets an exact score if it beats the {@code multiPv}th best score.
+     * The first move is searched with an aspiration window around {@code previous} first.
+     *
+     * @param tak The root position
+     * @param rootMoves All moves of the root position, the most promising first
+     * @param d The depth to search
+     * @param white Whether white is to move
+     * @param previous The best score of the previous iteration, {@code NaN} if there is none.
+     * @return All root moves with their scores, ordered best to worst.
+     */
+    private List<Tuple<Move, Double>> searchRoot(Tak tak, List<Move> rootMoves, int d, boolean white, double previous) {
+        Comparator<Tuple<Move, Double>> bestFirst = white ? MOVE_TUPLE_COMPARATOR.reversed() : MOVE_TUPLE_COMPARATOR;
+        List<Tuple<Move, Double>> exact = new ArrayList<>(multiPv + 1);
+        List<Tuple<Move, Double>> bounded = new ArrayList<>(rootMoves.size());
+
+        for (int i = 0; i < rootMoves.size(); i++) {
+            Move m = rootMoves.get(i);
+            boolean full = exact.size() < multiPv;
+            double threshold = full
+                    ? (white ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY)
+                    : exact.get(multiPv - 1).two;
+            double alpha = white ? threshold : Double.NEGATIVE_INFINITY;
+            double beta = white ? Double.POSITIVE_INFINITY : threshold;
+
+            Tak.Undo undo = tak.executeMove(m);
+            double score;
+
+            if (i == 0 && !Double.isNaN(previous)) {
+                double low = previous - ASPIRATION_WINDOW;
+                double high = previous + ASPIRATION_WINDOW;
+                score = eval(tak, d - 1, 1, low, high, !white, true);
+
+                if (score <= low || score >= high) {
+                    score = eval(tak, d - 1, 1, alpha, beta, !white, true);
+                }
+            } else {
+                score = eval(tak, d - 1, 1, alpha, beta, !white, i == 0);
+            }
+
+            tak.undoMove(undo);
+
+            Tuple<Move, Double> tuple = new Tuple<>(m, score);
+            if (full || (white ? score > threshold : score < threshold)) {
+                int index = 0;
+                while (index < exact.size() && bestFirst.compare(exact.get(index), tuple) <= 0) {
+                    index++;
+                }
+                exact.add(index, tuple);
+            } else {
+                bounded.add(tuple);
+            }
+        }
+
+        List<Tuple<Move, Double>> ranked = new ArrayList<>(exact);
+        ranked.addAll(bounded);
+        ranked.sort(bestFirst);
+
+        if (table != null) {
+            table.store(tak.zobristKey(), d, TranspositionTable.EXACT, ranked.get(0).two,
+                    MoveFactory.encodeMove(ranked.get(0).one));
+        }
+
+        return ranked;
+    }
+
+    /**
+     * Splits our remaining time over the moves we still expect to play. If we have
+     * more time than the opponent, we spend some of the difference on this move.
+     *
+     * @param theirTime Amount of time the opponent has remaining (in milliseconds).
+     * @param myTime Amount of time we have remaining (in milliseconds).
+     * @return The time to spend on this move in milliseconds, or 0 if there is no limit.
+     */
+    public static long allocateTime(long theirTime, long myTime) {
+        if (myTime <= 0) {
+            return 0;
+        }
+
+        long budget = myTime / MOVES_TO_GO;
+        if (myTime > theirTime) {
+            budget += (myTime - theirTime) / (2 * MOVES_TO_GO);
+        }
+
+        return Math.max(1, Math.min(budget, myTime / 4));
+    }
+
+    private double eval(Tak tak, int d, int ply, double alpha, double beta, boolean white, boolean onPv) {
+        nodes += 1;
+        if ((nodes & CHECK_INTERVAL) == 0) {
+            checkAbort();
+        }
+
         if (d == 0 || tak.isGameOver()) {
-            return new Tuple<>(null, model.evaluate(tak));
+            // the table keeps scores as floats: rounding here means a score read from the table
+            // is the score that was stored, and compares to the root threshold the same way
+            return (float) model.evaluate(tak);
         }
 
+        long key = tak.zobristKey();
+        int hashMove = TranspositionTable.NO_MOVE;
+
+        if (table != null) {
+            long entry = table.probe(key);
+
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+
+                if (TranspositionTable.depth(entry) >= d) {
+                    double score = TranspositionTable.score(entry);
+                    int bound = TranspositionTable.bound(entry);
+
+                    if (bound == TranspositionTable.EXACT) {
+                        return score;
+                    } else if (bound == TranspositionTable.LOWER_BOUND) {
+                        alpha = max(alpha, score);
+                    } else {
+                        beta = min(beta, score);
+                    }
+
+                    if (alpha >= beta) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int pvMove = onPv && ply < pvMoves.length ? pvMoves[ply] : TranspositionTable.NO_MOVE;
+        int[] moves = moveBuffer(tak, ply);
+        int count = orderedMoves(tak, moves, pvMove, hashMove);
+        boolean pvFirst = pvMove != TranspositionTable.NO_MOVE && count > 0 && moves[0] == pvMove;
+
+        double alphaOrig = alpha;
+        double betaOrig = beta;
+
+        double val;
+        int move = TranspositionTable.NO_MOVE;
+
         if (white) {
-            double val = Double.NEGATIVE_INFINITY;
-            Move move = null;
+            val = Double.NEGATIVE_INFINITY;
 
-            for (Move m : MoveFactory.allPossibleMoves(new Tak(tak))) {
-                if (move == null) {
+            for (int i = 0; i < count; i++) {
+                int m = moves[i];
+                if (move == TranspositionTable.NO_MOVE) {
                     move = m;
                 }
 
-                Tak takCopy = new Tak(tak);
-                takCopy.executeMove(m);
+                Tak.Undo undo = tak.executeMove(MoveFactory.decodeMove(m));
+                double temp = eval(tak, d - 1, ply + 1, alpha, beta, false, pvFirst && i == 0);
+                tak.undoMove(undo);
 
-                double temp = eval(takCopy, d - 1, alpha, beta, false).two;
                 if (temp > val) {
                     val = temp;
                     move = m;
@@ -68,21 +363,19 @@ public class MinMaxDepthPruneEngine implements Engine {
                     break;
                 }
             }
-
-            return new Tuple<>(move, val);
         } else {
-            double val = Double.POSITIVE_INFINITY;
-            Move move = null;
+            val = Double.POSITIVE_INFINITY;
 
-            for (Move m : MoveFactory.allPossibleMoves(new Tak(tak))) {
-                if (move == null) {
+            for (int i = 0; i < count; i++) {
+                int m = moves[i];
+                if (move == TranspositionTable.NO_MOVE) {
                     move = m;
                 }
 
-                Tak takCopy = new Tak(tak);
-                takCopy.executeMove(m);
+                Tak.Undo undo = tak.executeMove(MoveFactory.decodeMove(m));
+                double temp = eval(tak, d - 1, ply + 1, alpha, beta, true, pvFirst && i == 0);
+                tak.undoMove(undo);
 
-                double temp = eval(takCopy, d - 1, alpha, beta, true).two;
                 if (temp < val) {
                     val = temp;
                     move = m;
@@ -93,13 +386,196 @@ public class MinMaxDepthPruneEngine implements Engine {
                     break;
                 }
             }
+        }
+
+        if (table != null) {
+            int bound;
+            if (val <= alphaOrig) {
+                bound = TranspositionTable.UPPER_BOUND;
+            } else if (val >= betaOrig) {
+                bound = TranspositionTable.LOWER_BOUND;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+
+            table.store(key, d, bound, val, move);
+        }
+
+        return val;
+    }
+
+    /**
+     * Aborts the search (by throwing {@code SearchAborted}) if the thread was interrupted,
+     * or if we ran out of time or were stopped and already have a result (helpers don't need one).
+     */
+    private void checkAbort() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw SearchAborted.INSTANCE;
+        }
+
+        if ((completedDepth > 0 || helper) && (stopped || hasDeadline && System.nanoTime() > deadline)) {
+            throw SearchAborted.INSTANCE;
+        }
+    }
+
+    /**
+     * @return The move buffer of the given ply, large enough for any position of the size of {@code tak}.
+     */
+    private int[] moveBuffer(Tak tak, int ply) {
+        if (ply >= moveBuffers.length) {
+            moveBuffers = Arrays.copyOf(moveBuffers, Math.max(ply + 1, 2 * moveBuffers.length));
+        }
+
+        int[] buffer = moveBuffers[ply];
+        if (buffer == null || buffer.length < MoveFactory.maxMoves(tak)) {
+            buffer = new int[MoveFactory.maxMoves(tak)];
+            moveBuffers[ply] = buffer;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Writes all possible moves into the buffer, the principal variation move first and the hash move second.
+     *
+     * @param tak The position
+     * @param moves The buffer to write the encoded moves to
+     * @param pvMove The encoded move of the previous principal variation, or {@code NO_MOVE}
+     * @param hashMove The encoded best move of the transposition table, or {@code NO_MOVE}
+     * @return The amount of moves.
+     */
+    private static int orderedMoves(Tak tak, int[] moves, int pvMove, int hashMove) {
+        int count = MoveFactory.generateMoves(tak, moves, 0);
+
+        if (hashMove != TranspositionTable.NO_MOVE && hashMove != pvMove) {
+            moveToFront(moves, count, hashMove);
+        }
+
+        if (pvMove != TranspositionTable.NO_MOVE) {
+            moveToFront(moves, count, pvMove);
+        }
+
+        return count;
+    }
+
+    private static void moveToFront(int[] moves, int count, int code) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == code) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = code;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Follows the best moves of the transposition table from the root to
+     * rebuild the principal variation of the iteration that just finished.
+     */
+    private void extractPrincipalVariation(Tak tak, Move best, int length) {
+        List<Move> pv = new ArrayList<>(length);
+        List<Tak.Undo> undos = new ArrayList<>(length);
+
+        Move move = best;
+        while (move != null && pv.size() < length && !tak.isGameOver() && isLegal(tak, move)) {
+            pv.add(move);
+            undos.add(tak.executeMove(move));
+
+            move = null;
+            if (table != null) {
+                long entry = table.probe(tak.zobristKey());
+                if (entry != 0 && TranspositionTable.move(entry) != TranspositionTable.NO_MOVE) {
+                    move = MoveFactory.decodeMove(TranspositionTable.move(entry));
+                }
+            }
+        }
+
+        for (int i = undos.size() - 1; i >= 0; i--) {
+            tak.undoMove(undos.get(i));
+        }
 
-            return new Tuple<>(move, val);
+        int[] codes = new int[pv.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = MoveFactory.encodeMove(pv.get(i));
         }
+
+        pvMoves = codes;
+        principalVariation = Collections.unmodifiableList(pv);
+    }
+
+    private boolean isLegal(Tak tak, Move move) {
+        int code = MoveFactory.encodeMove(move);
+        int[] moves = moveBuffer(tak, 0);
+        int count = MoveFactory.generateMoves(tak, moves, 0);
+
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == code) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Stops a running <code>solve(...)</code> as soon as possible. It returns
+     * with the result of the deepest completed iteration.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return The amount of positions visited by the last call to <code>solve(...)</code>.
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * @return The depth (in plies) of the latest completed iteration.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * @return The expected line of play of the latest completed iteration,
+     * starting with the best move.
+     */
+    public List<Move> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    /**
+     * @return The amount of best moves that get exact scores.
+     */
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    /**
+     * @return The transposition table of this engine, or {@code null} if it has none.
+     */
+    public TranspositionTable getTable() {
+        return table;
     }
 
     @Override
     public List<Tuple<Move, Double>> pollMoves() {
         return currentMoves;
     }
+
+    /**
+     * Thrown to unwind the search when it is aborted.
+     */
+    private static class SearchAborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        static final SearchAborted INSTANCE = new SearchAborted();
+
+        private SearchAborted() {
+            super(null, null, false, false);
+        }
+    }
 }
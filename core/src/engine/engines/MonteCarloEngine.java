@@ -0,0 +1,364 @@
+package engine.engines;
+
+import base.Tak;
+import base.move.Move;
+import engine.Engine;
+import engine.GameTree;
+import engine.GameTreeHandler;
+import engine.rollouts.RolloutPolicy;
+import structures.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The <code>MonteCarloEngine</code> class searches a position with Monte Carlo tree search
+ * using the UCT selection rule. Every playout walks down the {@link GameTree} picking the child
+ * with the best upper confidence bound, adds one new node, estimates its outcome with a
+ * {@link RolloutPolicy} and adds that outcome to every node on the way. <br> <br>
+ *
+ * The tree is limited to a maximum amount of nodes; once it is full, playouts start from the
+ * leaves already in it. When the position to solve is one or two moves below the previous root
+ * (our move and the opponent's answer), the tree below it is kept. <br> <br>
+ *
+ * With more than one thread, all threads walk the same tree at once. A playout counts as a loss for
+ * the player choosing each node on its path until it finishes ("virtual loss"), which steers the
+ * other threads to different parts of the tree. With one thread the search is deterministic for a
+ * given {@link Random}. <br> <br>
+ *
+ * <code>pollMoves()</code> ranks the moves of the root by the amount of playouts they got,
+ * paired with the share of points white scored in them (0 to 1).
+ */
+public class MonteCarloEngine implements Engine {
+
+    /**
+     * The exploration constant of UCT if none is given.
+     */
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+
+    /**
+     * The maximum amount of nodes in the tree if none is given.
+     */
+    public static final int DEFAULT_MAX_NODES = 1_000_000;
+
+    private static final int CHECK_INTERVAL = 63;
+
+    private RolloutPolicy policy;
+    private int playouts;
+    private double exploration;
+    private int threads;
+    private GameTreeHandler handler;
+    private Random random;
+    private ExecutorService pool;
+
+    private volatile GameTree root;
+    private volatile boolean stopped;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * @param policy The way to estimate the outcome of new positions
+     * @param playouts The amount of playouts to do if there is no clock
+     */
+    public MonteCarloEngine(RolloutPolicy policy, int playouts) {
+        this(policy, playouts, DEFAULT_EXPLORATION, DEFAULT_MAX_NODES, new Random());
+    }
+
+    /**
+     * @param policy The way to estimate the outcome of new positions
+     * @param playouts The amount of playouts to do if there is no clock
+     * @param exploration The exploration constant of UCT
+     * @param maxNodes The maximum amount of nodes in the tree
+     * @param random The source of randomness of the rollouts
+     */
+    public MonteCarloEngine(RolloutPolicy policy, int playouts, double exploration, int maxNodes, Random random) {
+        this(policy, playouts, exploration, maxNodes, random, 1);
+    }
+
+    /**
+     * @param policy The way to estimate the outcome of new positions (shared by all threads)
+     * @param playouts The amount of playouts to do if there is no clock
+     * @param exploration The exploration constant of UCT
+     * @param maxNodes The maximum amount of nodes in the tree
+     * @param random The source of randomness of the rollouts, each helper thread gets its own
+     *               generator seeded from it
+     * @param threads The amount of threads to search with (at least 1)
+     */
+    public MonteCarloEngine(RolloutPolicy policy, int playouts, double exploration, int maxNodes, Random random, int threads) {
+        this.policy = policy;
+        this.playouts = playouts;
+        this.exploration = exploration;
+        this.handler = new GameTreeHandler(maxNodes);
+        this.random = random;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Does {@code playouts} playouts if {@code myTime} is not positive. Otherwise we search as long as
+     * {@code MinMaxDepthPruneEngine.allocateTime(...)} allows.
+     */
+    @Override
+    public void solve(Tak tak, long theirTime, long myTime) throws InterruptedException {
+        stopped = false;
+        claimed.set(0);
+        completed.reset();
+
+        if (tak.isGameOver()) {
+            handler.clear();
+            root = null;
+            return;
+        }
+
+        handler.setRoot(tak);
+        GameTree node = handler.getRoot();
+
+        // every move of the root should show up in pollMoves()
+        while (handler.expand(node) != null) {
+            // keep going
+        }
+
+        root = node;
+
+        long budget = MinMaxDepthPruneEngine.allocateTime(theirTime, myTime) * 1_000_000;
+        long deadline = System.nanoTime() + budget;
+
+        if (threads == 1) {
+            work(node, random, budget > 0, deadline);
+        } else {
+            searchInParallel(node, budget > 0, deadline);
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void searchInParallel(GameTree node, boolean timed, long deadline) {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread thread = new Thread(r, "monte-carlo-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        List<Future<?>> helpers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            Random helperRandom = new Random(random.nextLong());
+            helpers.add(pool.submit(() -> work(node, helperRandom, timed, deadline)));
+        }
+
+        try {
+            work(node, random, timed, deadline);
+        } finally {
+            stopped = true;
+
+            boolean interrupted = false;
+            for (Future<?> helper : helpers) {
+                while (true) {
+                    try {
+                        helper.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Helper search failed", e.getCause());
+                    }
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Does playouts until we run out of playouts or time, or are stopped or interrupted.
+     */
+    private void work(GameTree node, Random random, boolean timed, long deadline) {
+        List<GameTree> path = new ArrayList<>();
+
+        for (long i = 0; ; i++) {
+            if ((i & CHECK_INTERVAL) == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    stopped = true;
+                }
+
+                if (stopped || timed && System.nanoTime() > deadline) {
+                    return;
+                }
+            }
+
+            if (!timed && claimed.getAndIncrement() >= playouts) {
+                return;
+            }
+
+            playout(node, path, random);
+            completed.increment();
+        }
+    }
+
+    /**
+     * Selects a leaf, expands it, estimates the outcome and updates the nodes on the path.
+     */
+    private void playout(GameTree node, List<GameTree> path, Random random) {
+        path.clear();
+        path.add(node);
+        node.addVirtualLoss(true);
+
+        double payoff;
+        while (true) {
+            if (node.isTerminal()) {
+                payoff = node.result.getWhitePayoff();
+                break;
+            }
+
+            GameTree next = handler.expand(node);
+            boolean expanded = next != null;
+            if (!expanded) {
+                next = select(node);
+            }
+
+            if (next == null) {
+                // a leaf we have no room to expand, unless other threads are still creating its children
+                Tak position = node.tak;
+                if (position != null) {
+                    payoff = policy.rollout(new Tak(position), random);
+                    break;
+                }
+
+                Thread.onSpinWait();
+                continue;
+            }
+
+            next.addVirtualLoss(node.whiteToMove);
+            path.add(next);
+            node = next;
+
+            if (expanded && !node.isTerminal()) {
+                Tak position = node.tak;
+
+                // unless other threads already expanded all of its children
+                if (position != null) {
+                    payoff = policy.rollout(new Tak(position), random);
+                    break;
+                }
+            }
+        }
+
+        path.get(0).revertVirtualLoss(true, payoff);
+        for (int i = 1; i < path.size(); i++) {
+            path.get(i).revertVirtualLoss(path.get(i - 1).whiteToMove, payoff);
+        }
+    }
+
+    /**
+     * @return The child with the best upper confidence bound for the player to move at {@code node},
+     * {@code null} if it has no children yet.
+     */
+    private GameTree select(GameTree node) {
+        double logVisits = Math.log(node.getTimesVisited());
+
+        GameTree best = null;
+        double bestBound = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0, count = node.getChildCount(); i < count; i++) {
+            GameTree child = node.getChild(i);
+            if (child == null) {
+                continue;
+            }
+
+            int visits = child.getTimesVisited();
+            if (visits == 0) {
+                return child;
+            }
+
+            double white = child.getFavorsWhite() / visits;
+            double mean = node.whiteToMove ? white : 1 - white;
+            double bound = mean + exploration * Math.sqrt(logVisits / visits);
+
+            if (bound > bestBound) {
+                bestBound = bound;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Stops a running <code>solve(...)</code> after the current playout.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Stops the helper threads of this engine. The engine can not search
+     * with more than one thread afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+
+        threads = 1;
+    }
+
+    /**
+     * @return The amount of playouts of the last call to <code>solve(...)</code>.
+     */
+    public long getPlayoutCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return The amount of threads this engine searches with.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return The handler of the search tree.
+     */
+    public GameTreeHandler getTreeHandler() {
+        return handler;
+    }
+
+    @Override
+    public List<Tuple<Move, Double>> pollMoves() {
+        GameTree node = root;
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        // take a snapshot, the counters may change while we sort
+        List<Tuple<GameTree, Integer>> children = new ArrayList<>();
+        for (GameTree child : node.getChildren()) {
+            children.add(new Tuple<>(child, child.getTimesVisited()));
+        }
+
+        children.sort(Comparator.comparingInt((Tuple<GameTree, Integer> child) -> child.two).reversed());
+
+        List<Tuple<Move, Double>> moves = new ArrayList<>(children.size());
+        for (Tuple<GameTree, Integer> child : children) {
+            double value = child.two == 0
+                    ? Tak.GameResult.TIE.getWhitePayoff()
+                    : child.one.getPercentFavorsWhite();
+            moves.add(new Tuple<>(child.one.move, value));
+        }
+
+        return moves;
+    }
+}
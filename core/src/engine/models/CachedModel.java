@@ -0,0 +1,182 @@
+package engine.models;
+
+import base.Tak;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the evaluations of another {@link Model} by {@code Tak.zobristKey()}, so a
+ * position reached again (in the next iteration of a search, through a transposition or
+ * by another search thread) is not evaluated again. <br> <br>
+ *
+ * The table is a single {@code long[]} shared by all threads, laid out like the
+ * {@link engine.TranspositionTable}: every entry is the key XORed with the score (the bits of
+ * the {@code double}) followed by the score, and a reader that sees half of a concurrent write
+ * finds a key that does not match and counts a miss. Entries are grouped in buckets of two,
+ * a new entry takes the first slot and moves the one it replaces to the second. <br> <br>
+ *
+ * Like any table keyed by a hash, two positions with the same key share their score.
+ * Evaluating several positions at once looks them all up first and hands the ones that
+ * were not found to the model in one batch.
+ */
+public class CachedModel implements Model {
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_LONGS = 2 * ENTRY_LONGS;
+
+    // what probe(...) returns for a miss: the bits of a NaN no evaluation produces
+    // (a score with exactly these bits would only be evaluated again)
+    private static final long MISS = 0x7FF0_DEAD_0000_0001L;
+
+    private final Model model;
+    private final long[] table;
+    private final long bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param model The model to evaluate the positions that are not in the cache
+     * @param megabytes The size of the cache in megabytes. The amount of buckets
+     *                  is rounded down to a power of two (at least one bucket).
+     */
+    public CachedModel(Model model, int megabytes) {
+        this.model = model;
+
+        long buckets = Math.max(1, (long) megabytes * 1024 * 1024 / (BUCKET_LONGS * Long.BYTES));
+        buckets = Long.highestOneBit(Math.min(buckets, Integer.MAX_VALUE / BUCKET_LONGS));
+
+        table = new long[(int) buckets * BUCKET_LONGS];
+        bucketMask = buckets - 1;
+    }
+
+    @Override
+    public double evaluate(Tak tak) {
+        long key = tak.zobristKey();
+        long data = probe(key);
+        if (data != MISS) {
+            return Double.longBitsToDouble(data);
+        }
+
+        double score = model.evaluate(tak);
+        store(key, score);
+        return score;
+    }
+
+    @Override
+    public void evaluate(Tak[] positions, int count, double[] scores) {
+        Tak[] missed = new Tak[count];
+        int[] indices = new int[count];
+        int missing = 0;
+
+        for (int i = 0; i < count; i++) {
+            long data = probe(positions[i].zobristKey());
+            if (data != MISS) {
+                scores[i] = Double.longBitsToDouble(data);
+            } else {
+                missed[missing] = positions[i];
+                indices[missing++] = i;
+            }
+        }
+
+        if (missing == 0) {
+            return;
+        }
+
+        double[] missedScores = new double[missing];
+        model.evaluate(missed, missing, missedScores);
+
+        for (int m = 0; m < missing; m++) {
+            scores[indices[m]] = missedScores[m];
+            store(missed[m].zobristKey(), missedScores[m]);
+        }
+    }
+
+    /**
+     * @return The bits of the stored score of the position, {@code MISS} if there is none.
+     */
+    private long probe(long key) {
+        // an empty slot would look like key 0 with a score of 0.0
+        if (key != 0) {
+            int bucket = (int) (key & bucketMask) * BUCKET_LONGS;
+            for (int slot = bucket; slot < bucket + BUCKET_LONGS; slot += ENTRY_LONGS) {
+                long data = table[slot + 1];
+                if ((table[slot] ^ data) == key) {
+                    hits.increment();
+                    return data;
+                }
+            }
+        }
+
+        misses.increment();
+        return MISS;
+    }
+
+    private void store(long key, double score) {
+        if (key == 0) {
+            return;
+        }
+
+        int bucket = (int) (key & bucketMask) * BUCKET_LONGS;
+        long data = Double.doubleToRawLongBits(score);
+
+        table[bucket + 3] = table[bucket + 1];
+        table[bucket + 2] = table[bucket];
+        table[bucket + 1] = data;
+        table[bucket] = key ^ data;
+    }
+
+    /**
+     * @return The model this cache evaluates positions with.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        resetCounters();
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return The amount of evaluations answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The amount of evaluations passed on to the model.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The share of evaluations answered from the cache, 0 if there were none.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return The number of entries this cache can hold.
+     */
+    public int capacity() {
+        return table.length / ENTRY_LONGS;
+    }
+}
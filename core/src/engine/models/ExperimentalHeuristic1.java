@@ -4,28 +4,65 @@ import base.Stack;
 import base.Stone;
 import base.Tak;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
-
+/**
+ * Scores a position by board control (every stone counts for its owner, less the deeper it is
+ * in its stack) and by the length of the roads of both players. <br> <br>
+ *
+ * Nothing is allocated: a road is scanned from a bitmask of the road squares of a player
+ * (bit <code>x + size * y</code>) and the lengths of a line of the scan are kept in the lanes of
+ * a <code>long</code>. {@link IncrementalHeuristic1} gives the same scores from what changed since
+ * the last position it saw. <br> <br>
+ *
+ * The two terms are also available as features (see <code>features()</code>), a
+ * {@link FeatureBatch} weighing both by 1 gives the scores of positions that are not over.
+ */
 public class ExperimentalHeuristic1 implements Model {
 
+    private static final double DECAY = 0.45;
+    private static final int LANE = 8;
+    private static final long LANE_MASK = (1L << LANE) - 1;
+
     @Override
     public double evaluate(Tak tak) {
         if (tak.isGameOver()) {
-            if (tak.getGameResult().equals(Tak.GameResult.WHITE)) {
-                return Double.POSITIVE_INFINITY;
-            } else if (tak.getGameResult().equals(Tak.GameResult.BLACK)) {
-                return Double.NEGATIVE_INFINITY;
-            } else {
-                return 0.0;
-            }
+            return result(tak);
         }
 
         return boardControl(tak) + totalRoads(tak);
     }
 
+    /**
+     * @return The score of a finished game.
+     */
+    static double result(Tak tak) {
+        if (tak.getGameResult().equals(Tak.GameResult.WHITE)) {
+            return Double.POSITIVE_INFINITY;
+        } else if (tak.getGameResult().equals(Tak.GameResult.BLACK)) {
+            return Double.NEGATIVE_INFINITY;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * @return The terms of the evaluation as features: board control, then the roads of white
+     * minus the roads of black.
+     */
+    public FeatureExtractor features() {
+        return new FeatureExtractor() {
+            @Override
+            public int size() {
+                return 2;
+            }
+
+            @Override
+            public void extract(Tak tak, double[] features, int offset, int stride) {
+                features[offset] = boardControl(tak);
+                features[offset + stride] = totalRoads(tak);
+            }
+        };
+    }
+
     public double totalRoads(Tak tak) {
         double whiteRoads = verticalRoads(tak, 0) + horizontalRoads(tak, 0);
         double blackRoads = horizontalRoads(tak, 1) + horizontalRoads(tak, 1);
@@ -42,75 +79,109 @@ public class ExperimentalHeuristic1 implements Model {
     }
 
     public double roads(Tak tak, int player, boolean vertical) {
-        int[] row = new int[tak.boardSize()];
-        int max = 0;
-
-        for (int j = 0; j < tak.boardSize(); j++) {
-            for (int i = 0; i < tak.boardSize(); i++) {
-                Stone stone;
-                if (vertical) {
-                    stone = tak.getStackAt(i, j).peek();
-                } else {
-                    stone = tak.getStackAt(j, i).peek();
-                }
-
-                if (!stone.type.equals(Stone.Type.STANDING) && stone.player == player) {
-                    row[i] += 1;
-                } else {
-                    row[i] = 0;
-                }
+        return roads(roadSquares(tak, player), tak.boardSize(), vertical);
+    }
 
-                updateRow(tak, row);
+    /**
+     * @return The squares with a flat or cap stone of the player on top, bit {@code x + size * y}.
+     */
+    static long roadSquares(Tak tak, int player) {
+        long road = 0;
 
-                int temp = max(row);
-                if (temp > max) {
-                    max = temp;
+        for (int x = 0; x < tak.boardSize(); x++) {
+            for (int y = 0; y < tak.boardSize(); y++) {
+                if (isRoadSquare(tak.getStackAt(x, y), player)) {
+                    road |= 1L << (x + tak.boardSize() * y);
                 }
             }
         }
 
-        return max;
+        return road;
     }
 
-    private int max(int[] vals) {
-        int best = Integer.MIN_VALUE;
+    static boolean isRoadSquare(Stack stack, int player) {
+        return stack.topOwner() == player && stack.topType() != Stone.Type.STANDING;
+    }
+
+    /**
+     * Scans the board line by line (rows if {@code vertical}, columns otherwise). Every
+     * position of the line counts how many lines in a row had a road square there, and after
+     * every square the counts spread to the neighboring positions, smallest count first.
+     *
+     * @param road The road squares of a player, bit {@code x + size * y}
+     * @param size The size of the board
+     * @param vertical Whether the roads go from the bottom to the top
+     * @return The largest count seen.
+     */
+    static int roads(long road, int size, boolean vertical) {
+        long row = 0;
+        int max = 0;
+
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; i++) {
+                int square = vertical ? i + size * j : j + size * i;
 
-        for (Integer n : vals) {
-            if (n > best) {
-                best = n;
+                int count = (road & (1L << square)) != 0 ? lane(row, i) + 1 : 0;
+                row = spread(withLane(row, i, count), size);
+
+                // spreading copies counts around, the largest count of the line stays the same
+                max = Math.max(max, count);
             }
         }
 
-        return best;
+        return max;
     }
 
-    private void updateRow(Tak tak, int[] row) {
-        Map<Integer, Integer> map = new HashMap<>();
-        for (int i = 0; i < row.length; i++) {
-            map.put(i, row[i]);
+    /**
+     * Sets every position of the line to the largest count among itself and its neighbors,
+     * in the order of the counts before spreading (smallest first, left first among equals).
+     */
+    private static long spread(long row, int size) {
+        // the order is the order of the keys count * 8 + position, and a count is at most 8:
+        // setting bit key of a 128 bit set sorts the positions
+        long low = 0;
+        long high = 0;
+        for (int i = 0; i < size; i++) {
+            int key = lane(row, i) << 3 | i;
+            if (key < 64) {
+                low |= 1L << key;
+            } else {
+                high |= 1L << (key - 64);
+            }
         }
 
-        LinkedHashMap<Integer, Integer> sorted = new LinkedHashMap<>();
-        map.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue())
-                .forEachOrdered(x -> sorted.put(x.getKey(), x.getValue()));
+        while (low != 0) {
+            row = spreadTo(row, Long.numberOfTrailingZeros(low) & 7, size);
+            low &= low - 1;
+        }
 
-        for (Integer index : sorted.keySet()) {
-            update(tak, row, index);
+        while (high != 0) {
+            row = spreadTo(row, Long.numberOfTrailingZeros(high) & 7, size);
+            high &= high - 1;
         }
+
+        return row;
     }
 
-    private void update(Tak tak, int[] row, int index) {
-        int max = 0;
+    private static long spreadTo(long row, int index, int size) {
+        int max = lane(row, index);
+        if (index > 0) {
+            max = Math.max(max, lane(row, index - 1));
+        }
 
-        for (int i = index - 1; i <= index + 1; i++) {
-            if (tak.inBounds(i) && row[i] > max) {
-                max = row[i];
-            }
+        if (index < size - 1) {
+            max = Math.max(max, lane(row, index + 1));
         }
 
-        row[index] = max;
+        return withLane(row, index, max);
+    }
+
+    private static int lane(long row, int i) {
+        return (int) ((row >>> (LANE * i)) & LANE_MASK);
+    }
+
+    private static long withLane(long row, int i, int value) {
+        return (row & ~(LANE_MASK << (LANE * i))) | ((long) value << (LANE * i));
     }
 
     /**
@@ -119,25 +190,32 @@ public class ExperimentalHeuristic1 implements Model {
      */
     public double boardControl(Tak tak) {
         double pieceCount = 0;
-        double decay = 0.45;
 
         for (int i = 0; i < tak.boardSize(); i++) {
             for (int j = 0; j < tak.boardSize(); j++) {
-                Stack stack = tak.getStackAt(i, j);
-                Iterator<Stone> stoneIterator = stack.stoneIterator(stack.size(), true);
-
-                double d = 1;
-                while(stoneIterator.hasNext()) {
-                    Stone stone = stoneIterator.next();
-                    if (stone.player == 0) {
-                        pieceCount += d;
-                    } else if (stone.player == 1) {
-                        pieceCount -= d;
-                    }
-
-                    d *= decay;
-                }
+                pieceCount = addControl(tak.getStackAt(i, j), pieceCount);
+            }
+        }
+
+        return pieceCount;
+    }
+
+    /**
+     * @param stack The stack to count the stones of, from the top down
+     * @param pieceCount The count so far
+     * @return The count with the stones of the stack.
+     */
+    static double addControl(Stack stack, double pieceCount) {
+        double d = 1;
+
+        for (int k = stack.size(); k > 0; k--) {
+            if (stack.ownerAt(k) == 0) {
+                pieceCount += d;
+            } else {
+                pieceCount -= d;
             }
+
+            d *= DECAY;
         }
 
         return pieceCount;
@@ -0,0 +1,114 @@
+package engine.models;
+
+import base.Tak;
+
+import java.util.Arrays;
+
+/**
+ * The features of up to <code>capacity</code> positions, laid out feature by feature: feature
+ * <code>f</code> of the <code>n</code>-th position added is at <code>f * capacity + n</code>. <br> <br>
+ *
+ * Weighing the features then goes feature by feature, adding one weight times a contiguous
+ * column to the scores of every position. That inner loop has no dependency between its
+ * iterations, so the JIT compiles it to SIMD instructions without any special API, and the
+ * extraction cost of a position is paid once however many weights read it. A batch is not
+ * safe for several threads, every thread fills its own.
+ */
+public class FeatureBatch {
+
+    private final FeatureExtractor extractor;
+    private final int capacity;
+    private final double[] features;
+    private int size;
+
+    /**
+     * @param extractor What to describe the positions with
+     * @param capacity The most positions the batch holds
+     */
+    public FeatureBatch(FeatureExtractor extractor, int capacity) {
+        this.extractor = extractor;
+        this.capacity = capacity;
+        this.features = new double[extractor.size() * capacity];
+    }
+
+    /**
+     * @param tak The position to add
+     * @return The index of the position in the batch.
+     * @throws IllegalStateException If the batch is full.
+     */
+    public int add(Tak tak) {
+        if (size == capacity) {
+            throw new IllegalStateException("The batch holds at most " + capacity + " positions.");
+        }
+
+        extractor.extract(tak, features, size, capacity);
+        return size++;
+    }
+
+    /**
+     * Empties the batch.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return The amount of positions in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The most positions the batch holds.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The amount of features of a position.
+     */
+    public int featureCount() {
+        return extractor.size();
+    }
+
+    /**
+     * @param position The index of the position in the batch
+     * @param feature The index of the feature
+     * @return The value of the feature for the position.
+     */
+    public double feature(int position, int feature) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("No position " + position + " in a batch of " + size + ".");
+        }
+
+        return features[feature * capacity + position];
+    }
+
+    /**
+     * Weighs the features of every position: <code>scores[n]</code> becomes <code>bias</code>
+     * plus, feature by feature in order, the weight times the feature. (A model scoring one
+     * position at a time in the same order gets exactly the same scores.)
+     *
+     * @param weights One weight per feature
+     * @param bias The score of a position whose features are all 0
+     * @param scores Where to write the scores, from index 0 on
+     */
+    public void score(double[] weights, double bias, double[] scores) {
+        if (weights.length != extractor.size()) {
+            throw new IllegalArgumentException(weights.length + " weights for " + extractor.size() + " features.");
+        }
+
+        Arrays.fill(scores, 0, size, bias);
+
+        for (int f = 0; f < weights.length; f++) {
+            double weight = weights[f];
+            int column = f * capacity;
+
+            for (int n = 0; n < size; n++) {
+                scores[n] += weight * features[column + n];
+            }
+        }
+    }
+}
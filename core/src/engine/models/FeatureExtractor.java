@@ -0,0 +1,26 @@
+package engine.models;
+
+import base.Tak;
+
+/**
+ * Describes a position by a fixed amount of numbers (features), the input of models that
+ * weigh them (see {@link FeatureBatch}).
+ */
+public interface FeatureExtractor {
+
+    /**
+     * @return The amount of features of a position.
+     */
+    int size();
+
+    /**
+     * Writes the features of a position, feature <code>f</code> at
+     * <code>features[offset + f * stride]</code>.
+     *
+     * @param tak The position to describe
+     * @param features Where to write the features
+     * @param offset The index of the first feature
+     * @param stride The distance between two features of the position
+     */
+    void extract(Tak tak, double[] features, int offset, int stride);
+}
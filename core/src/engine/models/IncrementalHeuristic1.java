@@ -0,0 +1,116 @@
+package engine.models;
+
+import base.Tak;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * The evaluation of {@link ExperimentalHeuristic1}, updated from the squares that changed since
+ * the last position evaluated instead of computed from scratch. <br> <br>
+ *
+ * Every thread keeps the board control of each square, the road squares of both players and
+ * the road lengths of the last position it evaluated. A square whose version (see
+ * {@code Tak.getSquareVersion(...)}) did not change keeps its board control and road squares,
+ * and the road lengths are only scanned again for a player whose road squares changed. A search
+ * executing and undoing moves on one {@link Tak} instance touches a few squares per
+ * evaluation; a different instance than last time is evaluated from scratch. <br> <br>
+ *
+ * The scores are those of {@link ExperimentalHeuristic1}, up to the rounding of adding the
+ * board control square by square instead of stone by stone.
+ */
+public class IncrementalHeuristic1 implements Model {
+
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    @Override
+    public double evaluate(Tak tak) {
+        if (tak.isGameOver()) {
+            return ExperimentalHeuristic1.result(tak);
+        }
+
+        return states.get().evaluate(tak);
+    }
+
+    /**
+     * What one thread knows about the last position it evaluated.
+     */
+    private static class State {
+        // weak, so the last position a thread evaluated can still be collected
+        WeakReference<Tak> tak = new WeakReference<>(null);
+        int size;
+
+        long[] versions;
+        double[] control;
+        long[] road = new long[2];
+
+        // the road squares the road lengths were scanned for, and the lengths
+        long[] scanned = new long[2];
+        double whiteRoads;
+        double blackRoads;
+
+        double evaluate(Tak tak) {
+            if (tak != this.tak.get()) {
+                reset(tak);
+            }
+
+            double pieceCount = 0;
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    int square = x + size * y;
+                    long version = tak.getSquareVersion(x, y);
+
+                    if (version != versions[square]) {
+                        versions[square] = version;
+                        control[square] = ExperimentalHeuristic1.addControl(tak.getStackAt(x, y), 0);
+
+                        long bit = 1L << square;
+                        for (int p = 0; p < 2; p++) {
+                            if (ExperimentalHeuristic1.isRoadSquare(tak.getStackAt(x, y), p)) {
+                                road[p] |= bit;
+                            } else {
+                                road[p] &= ~bit;
+                            }
+                        }
+                    }
+
+                    pieceCount += control[square];
+                }
+            }
+
+            if (road[0] != scanned[0]) {
+                scanned[0] = road[0];
+                whiteRoads = ExperimentalHeuristic1.roads(road[0], size, true)
+                        + ExperimentalHeuristic1.roads(road[0], size, false);
+            }
+
+            if (road[1] != scanned[1]) {
+                scanned[1] = road[1];
+                blackRoads = 2.0 * ExperimentalHeuristic1.roads(road[1], size, false);
+            }
+
+            return pieceCount + (whiteRoads - blackRoads);
+        }
+
+        /**
+         * Forgets everything, the next evaluation computes every square. The arrays are
+         * reused as long as the size of the board stays the same.
+         */
+        void reset(Tak tak) {
+            this.tak = new WeakReference<>(tak);
+
+            if (tak.boardSize() != size) {
+                size = tak.boardSize();
+                versions = new long[size * size];
+                control = new double[size * size];
+            }
+
+            road[0] = road[1] = 0;
+            scanned[0] = scanned[1] = 0;
+            whiteRoads = blackRoads = 0;
+
+            // no square has a negative version, so every square counts as changed
+            Arrays.fill(versions, -1);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package engine.models;
+
+import base.BitRoads;
+import base.Stack;
+import base.Stone;
+import base.Tak;
+
+/**
+ * The features {@link LinearModel} weighs. Every feature is what white has minus what black
+ * has, so a position and the same position with the colors swapped have opposite features: <br>
+ * <code>FLATS</code>: flat stones on top, <br>
+ * <code>STANDING</code>: standing stones on top, <br>
+ * <code>CAPS</code>: cap stones on the board, <br>
+ * <code>CAP_MOBILITY</code>: the neighbors the cap stones can move to (all but cap stones and the edge), <br>
+ * <code>SUPPORTS</code>: own stones below the top that a move of the stack carries, <br>
+ * <code>CAPTIVES</code>: stones of the opponent below the top that a move of the stack carries, <br>
+ * <code>ROAD_DISTANCE</code>: the empty squares black is short of a road minus those white is short of
+ * (a road that can't be completed counts as the size of the board plus one), <br>
+ * <code>WALLS</code>: standing stones next to a road square of the opponent, <br>
+ * <code>CENTER</code>: road squares off the edge of the board, <br>
+ * <code>RESERVES</code>: flat stones left to place, <br>
+ * <code>CAP_RESERVES</code>: cap stones left to place, <br>
+ * <code>TEMPO</code>: 1 if white is to move, -1 otherwise. <br> <br>
+ *
+ * Unlike the roads of {@link ExperimentalHeuristic1}, the road distance looks at both directions
+ * for both players.
+ */
+public class LinearFeatures implements FeatureExtractor {
+
+    public static final int FLATS = 0;
+    public static final int STANDING = 1;
+    public static final int CAPS = 2;
+    public static final int CAP_MOBILITY = 3;
+    public static final int SUPPORTS = 4;
+    public static final int CAPTIVES = 5;
+    public static final int ROAD_DISTANCE = 6;
+    public static final int WALLS = 7;
+    public static final int CENTER = 8;
+    public static final int RESERVES = 9;
+    public static final int CAP_RESERVES = 10;
+    public static final int TEMPO = 11;
+
+    /**
+     * The amount of features.
+     */
+    public static final int COUNT = 12;
+
+    private static final String[] NAMES = {"flats", "standing", "caps", "capMobility", "supports", "captives",
+            "roadDistance", "walls", "center", "reserves", "capReserves", "tempo"};
+
+    /**
+     * @param feature The index of a feature
+     * @return The name of the feature, as in a weights file of {@link LinearModel}.
+     */
+    public static String name(int feature) {
+        return NAMES[feature];
+    }
+
+    /**
+     * @param name The name of a feature
+     * @return The index of the feature, -1 if there is no feature of that name.
+     */
+    public static int indexOf(String name) {
+        for (int f = 0; f < COUNT; f++) {
+            if (NAMES[f].equals(name)) {
+                return f;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return COUNT;
+    }
+
+    @Override
+    public void extract(Tak tak, double[] features, int offset, int stride) {
+        int size = tak.boardSize();
+
+        int flats = 0;
+        int standing = 0;
+        int caps = 0;
+        int capMobility = 0;
+        int supports = 0;
+        int captives = 0;
+        int walls = 0;
+        int center = 0;
+
+        long whiteRoad = 0;
+        long blackRoad = 0;
+        long open = 0;
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                Stack stack = tak.getStackAt(x, y);
+                long bit = 1L << (x + size * y);
+
+                if (stack.isEmpty()) {
+                    open |= bit;
+                    continue;
+                }
+
+                int owner = stack.topOwner();
+                int sign = owner == 0 ? 1 : -1;
+                Stone.Type type = stack.topType();
+
+                if (type == Stone.Type.STANDING) {
+                    standing += sign;
+                    if (nextToRoad(tak, x, y, 1 - owner)) {
+                        walls += sign;
+                    }
+                } else {
+                    if (owner == 0) {
+                        whiteRoad |= bit;
+                    } else {
+                        blackRoad |= bit;
+                    }
+
+                    if (type == Stone.Type.CAP) {
+                        caps += sign;
+                        capMobility += sign * capMoves(tak, x, y);
+                    } else {
+                        flats += sign;
+                    }
+
+                    if (x > 0 && y > 0 && x < size - 1 && y < size - 1) {
+                        center += sign;
+                    }
+                }
+
+                // a move picks up at most size stones, the top one included
+                int height = stack.size();
+                for (int k = height - 1; k > height - Math.min(height, size); k--) {
+                    if (stack.ownerAt(k) == owner) {
+                        supports += sign;
+                    } else {
+                        captives += sign;
+                    }
+                }
+            }
+        }
+
+        BitRoads roads = BitRoads.forSize(size);
+        int whiteDistance = Math.min(roads.distanceToRoad(whiteRoad, open), size + 1);
+        int blackDistance = Math.min(roads.distanceToRoad(blackRoad, open), size + 1);
+
+        Tak.Player white = tak.getPlayer(0);
+        Tak.Player black = tak.getPlayer(1);
+
+        features[offset + FLATS * stride] = flats;
+        features[offset + STANDING * stride] = standing;
+        features[offset + CAPS * stride] = caps;
+        features[offset + CAP_MOBILITY * stride] = capMobility;
+        features[offset + SUPPORTS * stride] = supports;
+        features[offset + CAPTIVES * stride] = captives;
+        features[offset + ROAD_DISTANCE * stride] = blackDistance - whiteDistance;
+        features[offset + WALLS * stride] = walls;
+        features[offset + CENTER * stride] = center;
+        features[offset + RESERVES * stride] = white.getRemainingStones(Stone.Type.FLAT)
+                - black.getRemainingStones(Stone.Type.FLAT);
+        features[offset + CAP_RESERVES * stride] = white.getRemainingStones(Stone.Type.CAP)
+                - black.getRemainingStones(Stone.Type.CAP);
+        features[offset + TEMPO * stride] = tak.getCurrentPlayerIndex() == 0 ? 1 : -1;
+    }
+
+    private static boolean nextToRoad(Tak tak, int x, int y, int player) {
+        return isRoadSquare(tak, x - 1, y, player) || isRoadSquare(tak, x + 1, y, player)
+                || isRoadSquare(tak, x, y - 1, player) || isRoadSquare(tak, x, y + 1, player);
+    }
+
+    private static boolean isRoadSquare(Tak tak, int x, int y, int player) {
+        return tak.inBounds(x, y) && ExperimentalHeuristic1.isRoadSquare(tak.getStackAt(x, y), player);
+    }
+
+    private static int capMoves(Tak tak, int x, int y) {
+        return canMoveTo(tak, x - 1, y) + canMoveTo(tak, x + 1, y) + canMoveTo(tak, x, y - 1) + canMoveTo(tak, x, y + 1);
+    }
+
+    private static int canMoveTo(Tak tak, int x, int y) {
+        return tak.inBounds(x, y) && tak.getStackAt(x, y).topType() != Stone.Type.CAP ? 1 : 0;
+    }
+}
@@ -0,0 +1,188 @@
+package engine.models;
+
+import base.Tak;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Scores a position by a weighted sum of its {@link LinearFeatures} plus a bias, read as the
+ * log-odds of a white win: a score of 0 is an even game. The weights are fitted to games that
+ * were played out by {@link engine.tuning.LinearTuner}, or set by hand. <br> <br>
+ *
+ * A weights file has one <code>name weight</code> pair per line, the names of the features and
+ * <code>bias</code>. Features that are not in the file weigh 0, empty lines and lines starting
+ * with <code>#</code> are skipped. <br> <br>
+ *
+ * Several positions at once are scored through a {@link FeatureBatch}, with exactly the scores
+ * of one position at a time.
+ */
+public class LinearModel implements Model {
+
+    public static final String BIAS = "bias";
+
+    /**
+     * Weights set by hand, a starting point for the tuner.
+     */
+    private static final double[] DEFAULT_WEIGHTS = {0.3, 0.1, 0.2, 0.05, 0.1, 0.05, 0.25, 0.1, 0.05, 0, 0.1, 0.1};
+
+    private static final LinearFeatures FEATURES = new LinearFeatures();
+
+    private final double[] weights;
+    private final double bias;
+
+    private final ThreadLocal<double[]> scratch = ThreadLocal.withInitial(() -> new double[LinearFeatures.COUNT]);
+    private final ThreadLocal<FeatureBatch> batches = new ThreadLocal<>();
+
+    /**
+     * Creates a model with the weights set by hand.
+     */
+    public LinearModel() {
+        this(DEFAULT_WEIGHTS, 0);
+    }
+
+    /**
+     * @param weights One weight per feature, in the order of {@link LinearFeatures}
+     * @param bias The score of a position whose features are all 0
+     */
+    public LinearModel(double[] weights, double bias) {
+        if (weights.length != LinearFeatures.COUNT) {
+            throw new IllegalArgumentException(weights.length + " weights for " + LinearFeatures.COUNT + " features.");
+        }
+
+        this.weights = weights.clone();
+        this.bias = bias;
+    }
+
+    /**
+     * @param file A weights file
+     * @return The model with the weights of the file.
+     * @throws IOException If the file can't be read.
+     * @throws IllegalArgumentException If a line is not a known name and a number.
+     */
+    public static LinearModel load(Path file) throws IOException {
+        double[] weights = new double[LinearFeatures.COUNT];
+        double bias = 0;
+
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] parts = line.split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Line " + (i + 1) + " is not a name and a weight: " + line);
+            }
+
+            double weight;
+            try {
+                weight = Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + " has no valid weight: " + line);
+            }
+
+            if (parts[0].equals(BIAS)) {
+                bias = weight;
+            } else {
+                int feature = LinearFeatures.indexOf(parts[0]);
+                if (feature < 0) {
+                    throw new IllegalArgumentException("Line " + (i + 1) + " names no feature: " + line);
+                }
+
+                weights[feature] = weight;
+            }
+        }
+
+        return new LinearModel(weights, bias);
+    }
+
+    /**
+     * Writes the weights in the format <code>load(...)</code> reads.
+     *
+     * @param file Where to write the weights
+     * @throws IOException If the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(BIAS + " " + bias);
+            writer.newLine();
+
+            for (int f = 0; f < LinearFeatures.COUNT; f++) {
+                writer.write(LinearFeatures.name(f) + " " + weights[f]);
+                writer.newLine();
+            }
+        }
+    }
+
+    @Override
+    public double evaluate(Tak tak) {
+        if (tak.isGameOver()) {
+            return ExperimentalHeuristic1.result(tak);
+        }
+
+        double[] features = scratch.get();
+        FEATURES.extract(tak, features, 0, 1);
+
+        return score(weights, bias, features);
+    }
+
+    @Override
+    public void evaluate(Tak[] positions, int count, double[] scores) {
+        FeatureBatch batch = batches.get();
+        if (batch == null || batch.capacity() < count) {
+            batch = new FeatureBatch(FEATURES, count);
+            batches.set(batch);
+        }
+
+        batch.clear();
+        for (int i = 0; i < count; i++) {
+            batch.add(positions[i]);
+        }
+
+        batch.score(weights, bias, scores);
+
+        for (int i = 0; i < count; i++) {
+            if (positions[i].isGameOver()) {
+                scores[i] = ExperimentalHeuristic1.result(positions[i]);
+            }
+        }
+    }
+
+    /**
+     * @param weights One weight per feature
+     * @param bias The score of a position whose features are all 0
+     * @param features The features of a position
+     * @return The bias plus, feature by feature in order, the weight times the feature.
+     */
+    private static double score(double[] weights, double bias, double[] features) {
+        double score = bias;
+        for (int f = 0; f < weights.length; f++) {
+            score += weights[f] * features[f];
+        }
+
+        return score;
+    }
+
+    /**
+     * @return The features this model weighs.
+     */
+    public static FeatureExtractor features() {
+        return FEATURES;
+    }
+
+    /**
+     * @return A copy of the weights, in the order of {@link LinearFeatures}.
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public double getBias() {
+        return bias;
+    }
+}
@@ -4,7 +4,8 @@ import base.Tak;
 
 /**
  * The <code>Model</code> class represents a way to evaluate a given Tak position.
- * It only has one method <code>evaluate(Tak)</code>.
+ * It evaluates one position with <code>evaluate(Tak)</code>, or several at once with
+ * <code>evaluate(Tak[], int, double[])</code>.
  */
 public interface Model {
 
@@ -13,4 +14,19 @@ public interface Model {
      * @return A valuation of the current position (positive for white winning, 0 for tie).
      */
     double evaluate(Tak tak);
+
+    /**
+     * Evaluates several positions, with the same valuations as <code>evaluate(Tak)</code>.
+     * Models that share work between positions (e.g. by scoring a {@link FeatureBatch})
+     * override this, by default the positions are evaluated one by one.
+     *
+     * @param positions The tak instances to evaluate.
+     * @param count The amount of positions to evaluate, from index 0 on.
+     * @param scores Where to write the valuations, <code>scores[i]</code> for <code>positions[i]</code>.
+     */
+    default void evaluate(Tak[] positions, int count, double[] scores) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = evaluate(positions[i]);
+        }
+    }
 }
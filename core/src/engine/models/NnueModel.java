@@ -0,0 +1,354 @@
+package engine.models;
+
+import base.Stack;
+import base.Stone;
+import base.Tak;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Scores a position with a small neural network over sparse features, updated NNUE-style:
+ * the first layer is a sum of the weight columns of the features that are on, so a move only
+ * subtracts the columns of the features it turns off and adds those it turns on. <br> <br>
+ *
+ * The features are on or off, per square (<code>s</code> the index <code>x + size * y</code>): <br>
+ * the top stone, <code>6 s + 3 owner + type</code>, <br>
+ * the stones of the owner of the top below it that a move carries, 1, 2 or 3 and more,
+ * <code>6 squares + 12 s + 6 owner + bucket</code>, <br>
+ * the stones of the opponent below the top that a move carries, likewise at <code>+ 3</code>, <br>
+ * and for the whole board the flat stones and cap stones each player has left to place,
+ * one feature per amount, and whether white is to move (see <code>inputs(int)</code> for the order). <br> <br>
+ *
+ * The network is quantized: the weights of the first layer are {@code short}s summed into
+ * {@code int} accumulators, which are clipped to 0 to {@code ACTIVATION_MAX} and weighed by
+ * the {@code short} weights of the output. The output divided by {@code OUTPUT_SCALE} is the
+ * score from the point of view of white, as the log-odds of {@link LinearModel}. The loops over
+ * the hidden units have no dependency between iterations, so the JIT turns them into SIMD
+ * instructions. <br> <br>
+ *
+ * Every thread keeps the accumulators of the last position it evaluated, with the version of
+ * every square (see {@code Tak.getSquareVersion(...)}) and the features that were on: a search
+ * executing and undoing moves on one {@link Tak} instance updates the columns of the few squares
+ * that changed, a different instance is computed from scratch. Integer sums are exact, so both
+ * give the same score. <br> <br>
+ *
+ * A network is trained for one board size. The weights file (big-endian, as written by
+ * {@link DataOutputStream}) holds the int {@code MAGIC}, the board size and the amount of hidden
+ * units, then the {@code short} weights of the first layer feature by feature, its {@code short}
+ * biases, the {@code short} output weights and the {@code int} output bias.
+ */
+public class NnueModel implements Model {
+
+    /**
+     * The first int of a weights file.
+     */
+    public static final int MAGIC = 0x544E_4E31;
+
+    /**
+     * The largest activation of a hidden unit.
+     */
+    public static final int ACTIVATION_MAX = 127;
+
+    /**
+     * The output of the network for a score of 1.
+     */
+    public static final double OUTPUT_SCALE = ACTIVATION_MAX * 64.0;
+
+    /**
+     * The most hidden units, so the weighted activations can't overflow an int.
+     */
+    public static final int MAX_HIDDEN = 256;
+
+    private static final int TOP_FEATURES = 6;
+    private static final int DEPTH_FEATURES = 12;
+    private static final int BUCKETS = 3;
+
+    // the features a square can turn on: its top, the own stones and the captives below the top
+    private static final int SQUARE_SLOTS = 3;
+
+    // the features of the whole board: the reserves of both players and whose turn it is
+    private static final int GLOBAL_SLOTS = 5;
+
+    private static final int NONE = -1;
+
+    private final Tak.GameType type;
+    private final int hidden;
+    private final short[] inputWeights;
+    private final short[] inputBias;
+    private final short[] outputWeights;
+    private final int outputBias;
+
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    /**
+     * @param size The size of the board the network is for
+     * @param hidden The amount of hidden units
+     * @param inputWeights The weights of the first layer, feature by feature: the weight of
+     *                     feature <code>f</code> for hidden unit <code>h</code> at <code>f * hidden + h</code>
+     * @param inputBias The bias of every hidden unit
+     * @param outputWeights The weight of every hidden unit in the output
+     * @param outputBias The output with all hidden units at 0
+     * @throws IllegalArgumentException If there is no game of that size or the sizes of the
+     *                                  weights don't match.
+     */
+    public NnueModel(int size, int hidden, short[] inputWeights, short[] inputBias, short[] outputWeights, int outputBias) {
+        if (hidden < 1 || hidden > MAX_HIDDEN) {
+            throw new IllegalArgumentException("The network has 1 to " + MAX_HIDDEN + " hidden units, not " + hidden + ".");
+        }
+
+        this.type = Tak.GameType.ofSize(size);
+        this.hidden = hidden;
+
+        if (inputWeights.length != inputs(size) * hidden || inputBias.length != hidden || outputWeights.length != hidden) {
+            throw new IllegalArgumentException("The weights don't fit " + inputs(size) + " features and "
+                    + hidden + " hidden units.");
+        }
+
+        this.inputWeights = inputWeights.clone();
+        this.inputBias = inputBias.clone();
+        this.outputWeights = outputWeights.clone();
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * @param file A weights file
+     * @return The network of the file.
+     * @throws IOException If the file can't be read or is not a weights file.
+     * @throws IllegalArgumentException If the sizes in the file don't fit.
+     */
+    public static NnueModel load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a weights file.");
+            }
+
+            int size = in.readInt();
+            int hidden = in.readInt();
+            if (size < 3 || size > 8 || hidden < 1 || hidden > MAX_HIDDEN) {
+                throw new IllegalArgumentException("No network for size " + size + " with " + hidden + " hidden units.");
+            }
+
+            short[] inputWeights = readShorts(in, inputs(size) * hidden);
+            short[] inputBias = readShorts(in, hidden);
+            short[] outputWeights = readShorts(in, hidden);
+            int outputBias = in.readInt();
+
+            if (in.read() != -1) {
+                throw new IOException(file + " is longer than its network.");
+            }
+
+            return new NnueModel(size, hidden, inputWeights, inputBias, outputWeights, outputBias);
+        }
+    }
+
+    private static short[] readShorts(DataInputStream in, int count) throws IOException {
+        short[] values = new short[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readShort();
+        }
+
+        return values;
+    }
+
+    /**
+     * Writes the weights in the format <code>load(...)</code> reads.
+     *
+     * @param file Where to write the weights
+     * @throws IOException If the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(type.getSize());
+            out.writeInt(hidden);
+
+            for (short[] values : new short[][]{inputWeights, inputBias, outputWeights}) {
+                for (short value : values) {
+                    out.writeShort(value);
+                }
+            }
+
+            out.writeInt(outputBias);
+        }
+    }
+
+    /**
+     * @param size The size of the board
+     * @return The amount of features of a position: the tops and the stacks of every square, then
+     * the flat stones left of white and black (0 to all of them), the cap stones left of white
+     * and black, and white to move.
+     */
+    public static int inputs(int size) {
+        Tak.GameType type = Tak.GameType.ofSize(size);
+        return (TOP_FEATURES + DEPTH_FEATURES) * size * size
+                + 2 * (type.getSideStones() + 1) + 2 * (type.getCapStones() + 1) + 1;
+    }
+
+    @Override
+    public double evaluate(Tak tak) {
+        if (tak.getGameType() != type) {
+            throw new IllegalArgumentException("The network is for " + type.getSize() + "x" + type.getSize() + " boards.");
+        }
+
+        if (tak.isGameOver()) {
+            return ExperimentalHeuristic1.result(tak);
+        }
+
+        return states.get().evaluate(tak) / OUTPUT_SCALE;
+    }
+
+    /**
+     * @return The board size the network is for.
+     */
+    public int getSize() {
+        return type.getSize();
+    }
+
+    /**
+     * @return The amount of hidden units.
+     */
+    public int getHidden() {
+        return hidden;
+    }
+
+    /**
+     * What one thread knows about the last position it evaluated.
+     */
+    private class State {
+        // weak, so the last position a thread evaluated can still be collected
+        WeakReference<Tak> tak = new WeakReference<>(null);
+        final long[] versions = new long[type.getSize() * type.getSize()];
+        final int[] active = new int[type.getSize() * type.getSize() * SQUARE_SLOTS];
+        final int[] global = new int[GLOBAL_SLOTS];
+        final int[] accumulator = new int[hidden];
+
+        long evaluate(Tak tak) {
+            if (tak != this.tak.get()) {
+                reset(tak);
+            }
+
+            int size = type.getSize();
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int square = x + size * y;
+                    long version = tak.getSquareVersion(x, y);
+
+                    if (version != versions[square]) {
+                        versions[square] = version;
+                        updateSquare(square, tak.getStackAt(x, y));
+                    }
+                }
+            }
+
+            updateGlobal(tak);
+
+            int output = 0;
+            for (int h = 0; h < hidden; h++) {
+                int activation = Math.min(Math.max(accumulator[h], 0), ACTIVATION_MAX);
+                output += activation * outputWeights[h];
+            }
+
+            return (long) outputBias + output;
+        }
+
+        private void updateSquare(int square, Stack stack) {
+            int squares = type.getSize() * type.getSize();
+            int slot = square * SQUARE_SLOTS;
+
+            int top = NONE;
+            int own = NONE;
+            int captives = NONE;
+
+            if (!stack.isEmpty()) {
+                int owner = stack.topOwner();
+                top = TOP_FEATURES * square + 3 * owner + stack.topType().ordinal();
+
+                int ownCount = 0;
+                int captiveCount = 0;
+                int height = stack.size();
+                for (int k = height - 1; k > height - Math.min(height, type.getSize()); k--) {
+                    if (stack.ownerAt(k) == owner) {
+                        ownCount++;
+                    } else {
+                        captiveCount++;
+                    }
+                }
+
+                int depth = TOP_FEATURES * squares + DEPTH_FEATURES * square + 6 * owner;
+                if (ownCount > 0) {
+                    own = depth + Math.min(ownCount, BUCKETS) - 1;
+                }
+
+                if (captiveCount > 0) {
+                    captives = depth + BUCKETS + Math.min(captiveCount, BUCKETS) - 1;
+                }
+            }
+
+            replace(active, slot, top);
+            replace(active, slot + 1, own);
+            replace(active, slot + 2, captives);
+        }
+
+        private void updateGlobal(Tak tak) {
+            int side = type.getSideStones() + 1;
+            int caps = type.getCapStones() + 1;
+            int reserves = (TOP_FEATURES + DEPTH_FEATURES) * type.getSize() * type.getSize();
+
+            replace(global, 0, reserves + tak.getPlayer(0).getRemainingStones(Stone.Type.FLAT));
+            replace(global, 1, reserves + side + tak.getPlayer(1).getRemainingStones(Stone.Type.FLAT));
+            replace(global, 2, reserves + 2 * side + tak.getPlayer(0).getRemainingStones(Stone.Type.CAP));
+            replace(global, 3, reserves + 2 * side + caps + tak.getPlayer(1).getRemainingStones(Stone.Type.CAP));
+            replace(global, 4, tak.getCurrentPlayerIndex() == 0 ? reserves + 2 * side + 2 * caps : NONE);
+        }
+
+        /**
+         * Turns off the feature in the slot and turns on the given one, if they differ.
+         */
+        private void replace(int[] slots, int slot, int feature) {
+            int old = slots[slot];
+            if (old == feature) {
+                return;
+            }
+
+            if (old != NONE) {
+                int column = old * hidden;
+                for (int h = 0; h < hidden; h++) {
+                    accumulator[h] -= inputWeights[column + h];
+                }
+            }
+
+            if (feature != NONE) {
+                int column = feature * hidden;
+                for (int h = 0; h < hidden; h++) {
+                    accumulator[h] += inputWeights[column + h];
+                }
+            }
+
+            slots[slot] = feature;
+        }
+
+        /**
+         * Forgets everything, the next evaluation computes every square.
+         */
+        void reset(Tak tak) {
+            this.tak = new WeakReference<>(tak);
+
+            // no square has a negative version, so every square counts as changed
+            Arrays.fill(versions, -1);
+            Arrays.fill(active, NONE);
+            Arrays.fill(global, NONE);
+
+            for (int h = 0; h < hidden; h++) {
+                accumulator[h] = inputBias[h];
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package engine.rollouts;
+
+import base.Tak;
+import base.move.MoveFactory;
+import engine.models.Model;
+
+import java.util.Random;
+
+/**
+ * The <code>ModelRolloutPolicy</code> class plays a few random moves and then evaluates the position
+ * with a {@link Model}. The valuation <code>v</code> is turned into a payoff for white with the logistic
+ * function <code>1 / (1 + e^(-v / scale))</code>, so a won position is worth 1 and a lost one 0.
+ * Without random moves this is a plain evaluation of the new position, which is much cheaper
+ * (and usually more accurate) than playing the game out.
+ */
+public class ModelRolloutPolicy implements RolloutPolicy {
+
+    /**
+     * The valuation that is worth a payoff of about 0.73 if no scale is given.
+     */
+    public static final double DEFAULT_SCALE = 5;
+
+    private Model model;
+    private double scale;
+    private int randomPlies;
+
+    public ModelRolloutPolicy(Model model) {
+        this(model, DEFAULT_SCALE, 0);
+    }
+
+    /**
+     * @param model The model to evaluate positions with
+     * @param scale The valuation that is worth a payoff of about 0.73
+     * @param randomPlies The amount of random moves to play before evaluating
+     */
+    public ModelRolloutPolicy(Model model, double scale, int randomPlies) {
+        this.model = model;
+        this.scale = scale;
+        this.randomPlies = randomPlies;
+    }
+
+    @Override
+    public double rollout(Tak tak, Random random) {
+        for (int ply = 0; ply < randomPlies && !tak.isGameOver(); ply++) {
+            tak.executeMove(MoveFactory.randomMove(tak, random));
+        }
+
+        if (tak.isGameOver()) {
+            return tak.getGameResult().getWhitePayoff();
+        }
+
+        return 1 / (1 + Math.exp(-model.evaluate(tak) / scale));
+    }
+}
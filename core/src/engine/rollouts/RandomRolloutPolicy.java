@@ -0,0 +1,40 @@
+package engine.rollouts;
+
+import base.Tak;
+import base.move.MoveFactory;
+
+import java.util.Random;
+
+/**
+ * The <code>RandomRolloutPolicy</code> class plays uniformly random moves until the game is over.
+ * Games that are still going after a maximum amount of moves are counted as a tie.
+ */
+public class RandomRolloutPolicy implements RolloutPolicy {
+
+    /**
+     * The maximum amount of moves (for both players) of a rollout if none is given.
+     */
+    public static final int DEFAULT_MAX_PLIES = 200;
+
+    private int maxPlies;
+
+    public RandomRolloutPolicy() {
+        this(DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * @param maxPlies The maximum amount of moves (for both players) to play
+     */
+    public RandomRolloutPolicy(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    @Override
+    public double rollout(Tak tak, Random random) {
+        for (int ply = 0; ply < maxPlies && !tak.isGameOver(); ply++) {
+            tak.executeMove(MoveFactory.randomMove(tak, random));
+        }
+
+        return tak.isGameOver() ? tak.getGameResult().getWhitePayoff() : Tak.GameResult.TIE.getWhitePayoff();
+    }
+}
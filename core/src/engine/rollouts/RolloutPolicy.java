@@ -0,0 +1,19 @@
+package engine.rollouts;
+
+import base.Tak;
+
+import java.util.Random;
+
+/**
+ * The <code>RolloutPolicy</code> class represents the way a Monte Carlo search
+ * estimates the outcome of a position it has just added to its tree.
+ */
+public interface RolloutPolicy {
+
+    /**
+     * @param tak A copy of the position to play out, which may be modified.
+     * @param random The source of randomness to use
+     * @return The expected payoff for white, from 0 (black wins) to 1 (white wins).
+     */
+    double rollout(Tak tak, Random random);
+}
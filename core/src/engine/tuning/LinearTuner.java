@@ -0,0 +1,443 @@
+package engine.tuning;
+
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import engine.models.FeatureExtractor;
+import engine.models.LinearFeatures;
+import engine.models.LinearModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Fits the weights of a {@link LinearModel} to the results of finished games (Texel tuning).
+ * The score of a position is read as the log-odds of a white win, and the weights that make
+ * the results of the games the most likely are found by logistic regression, with Newton's
+ * method: every iteration moves all weights at once towards the minimum of the quadratic
+ * approximation of the loss, so a handful of iterations is enough. Far from the optimum that
+ * approximation is poor, so a step is halved until the loss goes down. A small penalty on the
+ * squared weights keeps features that never change (or always change together) from running
+ * away. <br> <br>
+ *
+ * The corpus is a text file with one game per line: the size of the board, the result
+ * (<code>1-0</code>, <code>R-0</code>, <code>F-0</code> and their mirror images, or
+ * <code>1/2-1/2</code>) and the moves in PTN, separated by spaces, e.g.
+ * <code>5 R-0 a1 e5 c3 ...</code>. As in PTN, the count of a stack move may be left out when it
+ * is 1 and the drops when all stones go to one square (<code>c3&gt;</code>, <code>3c3+</code>),
+ * and the marks after a move (<code>'</code>, <code>!</code>, <code>?</code> and the
+ * <code>*</code> of a cap stone flattening a wall) are ignored. Empty lines and lines starting with <code>#</code> are skipped.
+ * Every position of a game before a move is a sample with the result of the game, except the
+ * first <code>skip</code> ones (the opening moves that place a stone of the opponent). <br> <br>
+ *
+ * A pass over the corpus streams it and never holds more than the game a thread is
+ * replaying: the lines are split across the threads of a {@link ForkJoinPool}, every split
+ * sums the gradient and the Hessian of the loss over its positions, and the sums of the
+ * splits are added up. <br> <br>
+ *
+ * Usage: <code>LinearTuner corpus weights [iterations] [threads]</code>, which starts from the
+ * weights set by hand and writes the tuned weights to the file <code>weights</code>.
+ */
+public class LinearTuner {
+
+    /**
+     * The amount of opening moves that are not samples.
+     */
+    public static final int DEFAULT_SKIP = 2;
+
+    /**
+     * The default penalty on the squared weights (the bias is not penalized).
+     */
+    public static final double DEFAULT_REGULARIZATION = 1e-6;
+
+    // the iterations stop once no parameter moves by more than this
+    private static final double TOLERANCE = 1e-9;
+
+    // the most times a step is halved before the iterations stop
+    private static final int MAX_HALVINGS = 20;
+
+    private static final int PARAMETERS = LinearFeatures.COUNT + 1;
+
+    // what PTN may write after a move, and the directions of a stack move
+    private static final String MARKS = "'!?*";
+    private static final String DIRECTIONS = "+-<>";
+
+    private final ForkJoinPool pool;
+    private final int skip;
+    private final double regularization;
+
+    /**
+     * @param pool The pool to replay the games in
+     */
+    public LinearTuner(ForkJoinPool pool) {
+        this(pool, DEFAULT_SKIP, DEFAULT_REGULARIZATION);
+    }
+
+    /**
+     * @param pool The pool to replay the games in
+     * @param skip The amount of opening moves that are not samples
+     * @param regularization The penalty on the squared weights
+     */
+    public LinearTuner(ForkJoinPool pool, int skip, double regularization) {
+        this.pool = pool;
+        this.skip = skip;
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param corpus The finished games
+     * @param start The weights to start from
+     * @param iterations The most Newton steps, each of which takes a pass over the corpus
+     *                   (more if the step has to be shortened)
+     * @return The model with the tuned weights.
+     * @throws IOException If the corpus can't be read.
+     * @throws IllegalArgumentException If a game of the corpus is not valid or there are no positions.
+     */
+    public LinearModel tune(Path corpus, LinearModel start, int iterations) throws IOException {
+        double[] parameters = parameters(start);
+        Sums sums = sum(corpus, parameters);
+        double objective = objective(sums, parameters);
+
+        for (int i = 0; i < iterations; i++) {
+            double[] gradient = new double[PARAMETERS];
+            double[] hessian = new double[PARAMETERS * PARAMETERS];
+            for (int p = 0; p < PARAMETERS; p++) {
+                gradient[p] = sums.gradient[p] / sums.count;
+                for (int q = 0; q < PARAMETERS; q++) {
+                    hessian[p * PARAMETERS + q] = sums.hessian[p * PARAMETERS + q] / sums.count;
+                }
+            }
+
+            for (int f = 0; f < LinearFeatures.COUNT; f++) {
+                gradient[f] += regularization * parameters[f];
+                hessian[f * PARAMETERS + f] += regularization;
+            }
+
+            double[] step = solve(hessian, gradient, PARAMETERS);
+
+            double largest = 0;
+            for (int p = 0; p < PARAMETERS; p++) {
+                largest = Math.max(largest, Math.abs(step[p]));
+            }
+
+            if (largest < TOLERANCE) {
+                break;
+            }
+
+            // far from the optimum (where the win probabilities are close to 0 or 1) the quadratic
+            // approximation is poor and a full step can overshoot, so halve it until the loss drops
+            boolean improved = false;
+            double scale = 1;
+            for (int halving = 0; halving <= MAX_HALVINGS && !improved; halving++, scale /= 2) {
+                double[] candidate = new double[PARAMETERS];
+                for (int p = 0; p < PARAMETERS; p++) {
+                    candidate[p] = parameters[p] - scale * step[p];
+                }
+
+                Sums candidateSums = sum(corpus, candidate);
+                double candidateObjective = objective(candidateSums, candidate);
+
+                if (candidateObjective <= objective) {
+                    parameters = candidate;
+                    sums = candidateSums;
+                    objective = candidateObjective;
+                    improved = true;
+                }
+            }
+
+            if (!improved) {
+                break;
+            }
+        }
+
+        return model(parameters);
+    }
+
+    /**
+     * @return The mean loss of the positions plus the penalty on the weights, what the
+     * iterations minimize.
+     */
+    private double objective(Sums sums, double[] parameters) {
+        double penalty = 0;
+        for (int f = 0; f < LinearFeatures.COUNT; f++) {
+            penalty += parameters[f] * parameters[f];
+        }
+
+        return sums.loss / sums.count + regularization / 2 * penalty;
+    }
+
+    /**
+     * @param corpus The finished games
+     * @param model The model to score the positions with
+     * @return The mean cross-entropy of the results of the games and the win probabilities of
+     * the scores, ln 2 for a model that scores every position 0.
+     * @throws IOException If the corpus can't be read.
+     * @throws IllegalArgumentException If a game of the corpus is not valid or there are no positions.
+     */
+    public double loss(Path corpus, LinearModel model) throws IOException {
+        Sums sums = sum(corpus, parameters(model));
+        return sums.loss / sums.count;
+    }
+
+    private Sums sum(Path corpus, double[] parameters) throws IOException {
+        Sums sums;
+        try (Stream<String> lines = Files.lines(corpus)) {
+            sums = pool.submit(() -> lines.parallel()
+                    .collect(() -> new Sums(parameters, skip), Sums::addGame, Sums::add)).join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (sums.count == 0) {
+            throw new IllegalArgumentException("The corpus has no positions.");
+        }
+
+        return sums;
+    }
+
+    private static double[] parameters(LinearModel model) {
+        double[] parameters = new double[PARAMETERS];
+        System.arraycopy(model.getWeights(), 0, parameters, 0, LinearFeatures.COUNT);
+        parameters[LinearFeatures.COUNT] = model.getBias();
+        return parameters;
+    }
+
+    private static LinearModel model(double[] parameters) {
+        double[] weights = new double[LinearFeatures.COUNT];
+        System.arraycopy(parameters, 0, weights, 0, LinearFeatures.COUNT);
+        return new LinearModel(weights, parameters[LinearFeatures.COUNT]);
+    }
+
+    /**
+     * @param result A result in PTN
+     * @return The payoff of white.
+     * @throws IllegalArgumentException If it is not the result of a finished game.
+     */
+    static double whitePayoff(String result) {
+        switch (result) {
+            case "1-0":
+            case "R-0":
+            case "F-0":
+                return 1;
+            case "0-1":
+            case "0-R":
+            case "0-F":
+                return 0;
+            case "1/2-1/2":
+                return 0.5;
+            default:
+                throw new IllegalArgumentException("Not the result of a finished game: " + result);
+        }
+    }
+
+    /**
+     * @param ptn A move in PTN
+     * @return The move.
+     * @throws IllegalArgumentException If it is not a move.
+     */
+    static Move parseMove(String ptn) {
+        int end = ptn.length();
+        while (end > 0 && MARKS.indexOf(ptn.charAt(end - 1)) >= 0) {
+            end--;
+        }
+
+        String move = ptn.substring(0, end);
+        int direction = 0;
+        while (direction < move.length() && DIRECTIONS.indexOf(move.charAt(direction)) < 0) {
+            direction++;
+        }
+
+        if (direction == move.length()) {
+            return MoveFactory.parseMove(move);
+        }
+
+        // spell out the count and the drops for MoveFactory
+        boolean counted = Character.isDigit(move.charAt(0));
+        String count = counted ? move.substring(0, 1) : "1";
+        String square = move.substring(counted ? 1 : 0, direction);
+        String drops = direction + 1 == move.length() ? count : move.substring(direction + 1);
+
+        return MoveFactory.parseMove(count + square + move.charAt(direction) + drops);
+    }
+
+    /**
+     * Solves {@code matrix * x = vector} by Gaussian elimination with partial pivoting.
+     *
+     * @param matrix The n by n matrix, row by row (overwritten)
+     * @param vector The right hand side (overwritten)
+     * @return x
+     */
+    private static double[] solve(double[] matrix, double[] vector, int n) {
+        for (int column = 0; column < n; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < n; row++) {
+                if (Math.abs(matrix[row * n + column]) > Math.abs(matrix[pivot * n + column])) {
+                    pivot = row;
+                }
+            }
+
+            if (matrix[pivot * n + column] == 0) {
+                throw new ArithmeticException("The Hessian is singular, add regularization.");
+            }
+
+            if (pivot != column) {
+                for (int k = 0; k < n; k++) {
+                    double swap = matrix[column * n + k];
+                    matrix[column * n + k] = matrix[pivot * n + k];
+                    matrix[pivot * n + k] = swap;
+                }
+
+                double swap = vector[column];
+                vector[column] = vector[pivot];
+                vector[pivot] = swap;
+            }
+
+            for (int row = column + 1; row < n; row++) {
+                double factor = matrix[row * n + column] / matrix[column * n + column];
+                for (int k = column; k < n; k++) {
+                    matrix[row * n + k] -= factor * matrix[column * n + k];
+                }
+
+                vector[row] -= factor * vector[column];
+            }
+        }
+
+        double[] x = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = vector[row];
+            for (int k = row + 1; k < n; k++) {
+                sum -= matrix[row * n + k] * x[k];
+            }
+
+            x[row] = sum / matrix[row * n + row];
+        }
+
+        return x;
+    }
+
+    /**
+     * The loss, gradient and Hessian summed over the positions of the games of one split of
+     * the corpus. Every position adds, with <code>p</code> the win probability of its score and
+     * <code>r</code> the payoff of white, <code>(p - r) x</code> to the gradient and
+     * <code>p (1 - p) x x<sup>T</sup></code> to the Hessian, <code>x</code> the features and a 1 for the bias.
+     */
+    private static class Sums {
+
+        private static final FeatureExtractor FEATURES = LinearModel.features();
+
+        private final double[] parameters;
+        private final int skip;
+        private final double[] x = new double[PARAMETERS];
+
+        private final double[] gradient = new double[PARAMETERS];
+        private final double[] hessian = new double[PARAMETERS * PARAMETERS];
+        private double loss;
+        private long count;
+
+        Sums(double[] parameters, int skip) {
+            this.parameters = parameters;
+            this.skip = skip;
+        }
+
+        void addGame(String line) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                return;
+            }
+
+            String[] parts = line.split("\\s+");
+            try {
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("No size and result.");
+                }
+
+                Tak tak = new Tak(Tak.GameType.ofSize(Integer.parseInt(parts[0])));
+                double result = whitePayoff(parts[1]);
+
+                for (int i = 2; i < parts.length; i++) {
+                    if (i - 2 >= skip) {
+                        addPosition(tak, result);
+                    }
+
+                    tak.safeExecuteMove(parseMove(parts[i]));
+                }
+            } catch (IllegalArgumentException | Tak.TakException e) {
+                throw new IllegalArgumentException("Invalid game (" + e.getMessage() + "): " + line, e);
+            }
+        }
+
+        private void addPosition(Tak tak, double result) {
+            FEATURES.extract(tak, x, 0, 1);
+            x[LinearFeatures.COUNT] = 1;
+
+            double score = 0;
+            for (int p = 0; p < PARAMETERS; p++) {
+                score += parameters[p] * x[p];
+            }
+
+            double probability = 1 / (1 + Math.exp(-score));
+            double error = probability - result;
+            double curvature = probability * (1 - probability);
+
+            // -(r ln p + (1 - r) ln(1 - p)), without rounding p to 0 or 1 first
+            double softplus = score > 0 ? score + Math.log1p(Math.exp(-score)) : Math.log1p(Math.exp(score));
+            loss += softplus - result * score;
+
+            for (int p = 0; p < PARAMETERS; p++) {
+                gradient[p] += error * x[p];
+
+                double weighted = curvature * x[p];
+                for (int q = 0; q < PARAMETERS; q++) {
+                    hessian[p * PARAMETERS + q] += weighted * x[q];
+                }
+            }
+
+            count++;
+        }
+
+        void add(Sums other) {
+            for (int p = 0; p < PARAMETERS; p++) {
+                gradient[p] += other.gradient[p];
+            }
+
+            for (int i = 0; i < hessian.length; i++) {
+                hessian[i] += other.hessian[i];
+            }
+
+            loss += other.loss;
+            count += other.count;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: LinearTuner corpus weights [iterations] [threads]");
+            return;
+        }
+
+        Path corpus = Paths.get(args[0]);
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            LinearTuner tuner = new LinearTuner(pool);
+            LinearModel start = new LinearModel();
+
+            long begin = System.nanoTime();
+            LinearModel tuned = tuner.tune(corpus, start, iterations);
+            long elapsed = System.nanoTime() - begin;
+
+            System.out.printf("loss: %.6f -> %.6f (%.1f s)%n", tuner.loss(corpus, start),
+                    tuner.loss(corpus, tuned), elapsed / 1e9);
+            tuned.save(Paths.get(args[1]));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
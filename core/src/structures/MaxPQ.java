@@ -22,7 +22,7 @@ public class MaxPQ<T> {
     private List<T> objects;
 
     public MaxPQ() {
-        comp = (Comparator<T>) Comparator.naturalOrder();
+        this((Comparator<T>) Comparator.naturalOrder());
     }
 
     public MaxPQ(Comparator<T> comp) {
@@ -54,7 +54,7 @@ public class MaxPQ<T> {
         int child = child1;
 
         if (child2 < objects.size()) {
-            if (comp.compare(objects.get(child2), objects.get(child1)) < 0) {
+            if (comp.compare(objects.get(child2), objects.get(child1)) > 0) {
                 child = child2;
             }
         }
@@ -105,6 +105,18 @@ public class MaxPQ<T> {
         return objects.get(0);
     }
 
+    public int size() {
+        return objects.size();
+    }
+
+    public boolean isEmpty() {
+        return objects.isEmpty();
+    }
+
+    public List<T> toSortedList() {
+        return toSortedList(objects.size());
+    }
+
     public List<T> toSortedList(int n) {
         MaxPQ<T> copy = new MaxPQ<>(comp);
         copy.objects = new ArrayList<>(objects);
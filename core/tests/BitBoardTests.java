@@ -0,0 +1,152 @@
+import base.BitBoard;
+import base.Stack;
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BitBoardTests {
+
+    /**
+     * The move sequences played in {@code FiveFiveTests}, each followed
+     * by the moves that test checks for (in)validity.
+     */
+    private static final String[][] FIVE_FIVE_SCENARIOS = {
+            {"a1", "a1"},
+            {"a2", "a1", "1a1>1", "a1"},
+            {"a2", "a1", "Sb2", "1a2>1"},
+            {"a1", "a2", "a3"},
+            {"b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4", "a5"},
+            {"b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4", "e1", "b5"},
+            {"a4", "a2", "b2", "b4", "c2", "c4", "d2", "d4", "e2"},
+            {"b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4", "b5", "c1", "1b5<1"},
+            {"c1", "a1", "a2", "c2", "a3", "c3", "a4", "c4", "e5", "d5", "1e5<1", "e1", "2d5<11"},
+            {"b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4", "b5", "c5", "1b5>1", "e1", "2c5<11"},
+            {"c2", "b3", "d3", "c4", "1b3>1", "1c2+1", "1d3<1", "1c4-1", "a1"},
+            {"c2", "b3", "Cc1", "1c2-1"},
+            {"c2", "b3", "Cc1", "Sb1", "1c1<1"},
+            {"c2", "b3", "Sb2", "c3", "1b3-1"},
+    };
+
+    @Test
+    public void fiveFiveScenarios() throws Tak.TakException {
+        for (String[] scenario : FIVE_FIVE_SCENARIOS) {
+            Tak tak = new Tak(Tak.GameType.FIVE);
+            BitBoard board = new BitBoard(Tak.GameType.FIVE);
+
+            for (String str : scenario) {
+                Move move = MoveFactory.parseMove(str);
+                boolean valid = tak.validateMove(move) && !tak.isGameOver();
+
+                Assert.assertEquals(str, valid, board.validateMove(move) && !board.isGameOver());
+                if (valid) {
+                    tak.safeExecuteMove(move);
+                    board.safeExecuteMove(move);
+                }
+
+                assertSamePosition(tak, board);
+            }
+        }
+    }
+
+    @Test
+    public void flatStoneScenarios() throws Tak.TakException {
+        // the board filling games of FiveFiveTests.flatStoneWin1/2/3
+        String[][] endings = {{"e5"}, {"Se3", "e4", "Se5"}, {"Se5"}};
+        int[] prefix = {24, 22, 24};
+
+        for (int k = 0; k < endings.length; k++) {
+            Tak tak = new Tak(Tak.GameType.FIVE);
+            BitBoard board = new BitBoard(Tak.GameType.FIVE);
+            MoveFactory.PlaceMoveIterator pIter = new MoveFactory.PlaceMoveIterator(tak);
+
+            for (int i = 0; i < prefix[k]; i++) {
+                Move move = pIter.next();
+                tak.safeExecuteMove(move);
+                board.safeExecuteMove(move);
+            }
+
+            for (String str : endings[k]) {
+                tak.safeExecuteMove(MoveFactory.parseMove(str));
+                board.safeExecuteMove(MoveFactory.parseMove(str));
+            }
+
+            Assert.assertTrue(board.isGameOver());
+            assertSamePosition(tak, board);
+        }
+    }
+
+    @Test
+    public void randomGamesAgree() {
+        Random random = new Random(7);
+
+        for (Tak.GameType type : new Tak.GameType[]{Tak.GameType.FIVE, Tak.GameType.SIX}) {
+            for (int game = 0; game < 100; game++) {
+                Tak tak = new Tak(type);
+                BitBoard board = new BitBoard(type);
+
+                while (!tak.isGameOver()) {
+                    List<Move> moves = new ArrayList<>();
+                    for (Move m : MoveFactory.allPossibleMoves(tak)) {
+                        Assert.assertTrue(m.toString(), board.validateMove(m));
+                        moves.add(m);
+                    }
+
+                    Move move = moves.get(random.nextInt(moves.size()));
+                    tak.executeMove(move);
+                    board.executeMove(move);
+
+                    assertSamePosition(tak, board);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void conversionRoundTrip() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        FiveFiveTests.executeConsecutiveMoves(tak, "c2", "b3", "d3", "c4",
+                "1b3>1", "1c2+1", "1d3<1", "1c4-1", "Cb2", "Sd2", "a1");
+
+        BitBoard board = BitBoard.fromTak(tak);
+        assertSamePosition(tak, board);
+
+        Tak back = board.toTak();
+        assertSamePosition(back, board);
+        Assert.assertEquals(tak.getRoadGraphString(), back.getRoadGraphString());
+
+        // the copies should continue the game identically
+        back.safeExecuteMove(MoveFactory.parseMove("4c3<13"));
+        board.safeExecuteMove(MoveFactory.parseMove("4c3<13"));
+        assertSamePosition(back, board);
+    }
+
+    static void assertSamePosition(Tak tak, BitBoard board) {
+        Assert.assertEquals(tak.getCurrentPlayerIndex(), board.getCurrentPlayerIndex());
+        Assert.assertEquals(tak.isFirstMove(), board.isFirstMove());
+        Assert.assertEquals(tak.getGameResult(), board.getGameResult());
+
+        for (int p = 0; p < 2; p++) {
+            Assert.assertEquals(tak.getPlayer(p).sideStones, board.getSideStones(p));
+            Assert.assertEquals(tak.getPlayer(p).capStones, board.getCapStones(p));
+        }
+
+        for (int x = 0; x < tak.boardSize(); x++) {
+            for (int y = 0; y < tak.boardSize(); y++) {
+                Stack stack = tak.getStackAt(x, y);
+                Assert.assertEquals(stack.size(), board.heightAt(x, y));
+                Assert.assertEquals(stack.peek().type, board.topTypeAt(x, y));
+                Assert.assertEquals(stack.peek().player, board.topPlayer(x, y));
+
+                for (int i = 0; i < stack.size(); i++) {
+                    Assert.assertEquals(stack.get(i + 1).player, board.ownerAt(x, y, i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import base.BitRoads;
+import base.RoadGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+public class BitRoadsTests {
+
+    @Test
+    public void matchesRoadGraph() {
+        Random random = new Random(13);
+
+        for (int size = 3; size <= 8; size++) {
+            BitRoads roads = BitRoads.forSize(size);
+
+            for (int board = 0; board < 2000; board++) {
+                RoadGraph graph = new RoadGraph(size);
+                long road = 0;
+
+                for (int n = 0; n < size * size; n++) {
+                    if (random.nextInt(100) < 55) {
+                        road |= 1L << n;
+                        graph.updateVertex(n % size, n / size, 0);
+                    }
+                }
+
+                Assert.assertEquals(graph.isTopToBottom(0), roads.isTopToBottom(road));
+                Assert.assertEquals(graph.isLeftToRight(0), roads.isLeftToRight(road));
+            }
+        }
+    }
+
+    @Test
+    public void roadGraphFollowsMakeUnmake() {
+        Random random = new Random(19);
+
+        for (int size = 3; size <= 8; size++) {
+            BitRoads roads = BitRoads.forSize(size);
+            RoadGraph graph = new RoadGraph(size);
+            int[] owners = new int[size * size];
+            Arrays.fill(owners, -1);
+
+            // every change is pushed as square and previous owner, and taken back like an undo
+            Deque<int[]> changes = new ArrayDeque<>();
+            for (int step = 0; step < 20_000; step++) {
+                int n;
+                int owner;
+                if (!changes.isEmpty() && random.nextInt(2) == 0) {
+                    int[] change = changes.pop();
+                    n = change[0];
+                    owner = change[1];
+                } else {
+                    n = random.nextInt(size * size);
+                    owner = random.nextInt(3) - 1;
+                    changes.push(new int[]{n, owners[n]});
+                }
+
+                owners[n] = owner;
+                graph.updateVertex(n % size, n / size, owner);
+
+                for (int player = 0; player < 2; player++) {
+                    long road = 0;
+                    for (int i = 0; i < owners.length; i++) {
+                        if (owners[i] == player) {
+                            road |= 1L << i;
+                        }
+                    }
+
+                    Assert.assertEquals(roads.isTopToBottom(road), graph.isTopToBottom(player));
+                    Assert.assertEquals(roads.isLeftToRight(road), graph.isLeftToRight(player));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void groupIsTheConnectedSquares() {
+        // on 4x4: a column of a2 to a4 and b4, and d1 on its own
+        long road = (1L << 4) | (1L << 8) | (1L << 12) | (1L << 13) | (1L << 3);
+        BitRoads roads = BitRoads.forSize(4);
+
+        Assert.assertEquals(road & ~(1L << 3), roads.group(road, 13));
+        Assert.assertEquals(1L << 3, roads.group(road, 3));
+    }
+
+    @Test
+    public void distanceOnEmptyBoard() {
+        for (int size = 3; size <= 8; size++) {
+            long open = size == 8 ? -1L : (1L << (size * size)) - 1;
+            Assert.assertEquals(size, BitRoads.forSize(size).distanceToRoad(0, open));
+            Assert.assertEquals(BitRoads.UNREACHABLE, BitRoads.forSize(size).distanceToRoad(0, 0));
+        }
+    }
+
+    @Test
+    public void distanceMatchesSearch() {
+        Random random = new Random(17);
+
+        for (int size = 3; size <= 8; size++) {
+            BitRoads roads = BitRoads.forSize(size);
+
+            for (int board = 0; board < 2000; board++) {
+                long road = 0;
+                long open = 0;
+
+                for (int n = 0; n < size * size; n++) {
+                    int r = random.nextInt(3);
+                    if (r == 0) {
+                        road |= 1L << n;
+                    } else if (r == 1) {
+                        open |= 1L << n;
+                    }
+                }
+
+                int expected = Math.min(distance(road, open, size, true), distance(road, open, size, false));
+                Assert.assertEquals(expected, roads.distanceToRoad(road, open));
+                Assert.assertEquals(roads.isRoad(road), expected == 0);
+            }
+        }
+    }
+
+    /**
+     * 0-1 breadth first search: road squares cost nothing, open squares one, the rest is blocked.
+     */
+    private static int distance(long road, long open, int size, boolean vertical) {
+        int[] cost = new int[size * size];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        Deque<Integer> toVisit = new ArrayDeque<>();
+
+        for (int i = 0; i < size; i++) {
+            int start = vertical ? i : i * size;
+            int c = weight(road, open, start);
+            if (c == 0) {
+                cost[start] = 0;
+                toVisit.addFirst(start);
+            } else if (c == 1) {
+                cost[start] = 1;
+                toVisit.addLast(start);
+            }
+        }
+
+        int best = BitRoads.UNREACHABLE;
+        while (!toVisit.isEmpty()) {
+            int n = toVisit.removeFirst();
+            int x = n % size;
+            int y = n / size;
+
+            if (vertical ? y == size - 1 : x == size - 1) {
+                best = Math.min(best, cost[n]);
+            }
+
+            int[][] neighbors = {{x - 1, y}, {x + 1, y}, {x, y - 1}, {x, y + 1}};
+            for (int[] neighbor : neighbors) {
+                if (neighbor[0] < 0 || neighbor[0] >= size || neighbor[1] < 0 || neighbor[1] >= size) {
+                    continue;
+                }
+
+                int m = neighbor[0] + size * neighbor[1];
+                int c = weight(road, open, m);
+                if (c >= 0 && cost[n] + c < cost[m]) {
+                    cost[m] = cost[n] + c;
+                    if (c == 0) {
+                        toVisit.addFirst(m);
+                    } else {
+                        toVisit.addLast(m);
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    private static int weight(long road, long open, int n) {
+        if ((road & (1L << n)) != 0) {
+            return 0;
+        } else if ((open & (1L << n)) != 0) {
+            return 1;
+        } else {
+            return -1;
+        }
+    }
+}
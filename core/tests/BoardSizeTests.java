@@ -0,0 +1,201 @@
+import base.BitBoard;
+import base.Stone;
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import base.move.PlaceMove;
+import base.move.StackMove;
+import org.junit.Assert;
+import org.junit.Test;
+import structures.Direction;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Rules, move generation and road detection on every board size from 3x3 to 8x8.
+ * (The perft counts of every size are in {@code PerftTests}.)
+ */
+public class BoardSizeTests {
+
+    private static final int GAMES = 20;
+
+    @Test
+    public void standardGameTypes() {
+        int[][] stones = {{3, 10, 0}, {4, 15, 0}, {5, 21, 1}, {6, 30, 1}, {7, 40, 2}, {8, 50, 2}};
+
+        for (int[] expected : stones) {
+            Tak.GameType type = Tak.GameType.ofSize(expected[0]);
+            Assert.assertEquals(expected[0], type.getSize());
+            Assert.assertEquals(expected[1], type.getSideStones());
+            Assert.assertEquals(expected[2], type.getCapStones());
+
+            Tak tak = new Tak(type);
+            Assert.assertEquals(expected[0], tak.boardSize());
+            Assert.assertEquals(expected[1], tak.getPlayer(0).sideStones);
+            Assert.assertEquals(expected[2], tak.getPlayer(1).capStones);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noGameTypeOfSizeNine() {
+        Tak.GameType.ofSize(9);
+    }
+
+    @Test
+    public void generatorMatchesValidation() {
+        Random random = new Random(3);
+
+        for (Tak.GameType type : Tak.GameType.values()) {
+            for (int game = 0; game < GAMES; game++) {
+                Tak tak = new Tak(type);
+
+                while (!tak.isGameOver()) {
+                    Set<String> generated = new HashSet<>();
+                    List<Move> moves = MoveFactory.allPossibleMovesList(tak);
+                    for (Move m : moves) {
+                        generated.add(m.toString());
+                    }
+
+                    Assert.assertEquals(moves.size(), generated.size());
+                    Assert.assertEquals(type.toString(), validMoves(tak), generated);
+
+                    tak.executeMove(moves.get(random.nextInt(moves.size())));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Every move {@code tak.validateMove(...)} accepts, found by trying them all:
+     * every placement and every way to drop up to a board size of stones in a straight line.
+     */
+    private static Set<String> validMoves(Tak tak) {
+        Set<String> valid = new HashSet<>();
+
+        for (int x = 0; x < tak.boardSize(); x++) {
+            for (int y = 0; y < tak.boardSize(); y++) {
+                for (Stone.Type type : Stone.Type.values()) {
+                    addIfValid(tak, new PlaceMove(x, y, type), valid);
+                }
+
+                if (tak.isFirstMove()) {
+                    continue;
+                }
+
+                for (Direction dir : Direction.values()) {
+                    for (int pickup = 1; pickup <= Math.min(tak.boardSize(), tak.getStackAt(x, y).size()); pickup++) {
+                        addDrops(tak, x, y, dir, pickup, pickup, new int[0], valid);
+                    }
+                }
+            }
+        }
+
+        return valid;
+    }
+
+    private static void addDrops(Tak tak, int x, int y, Direction dir, int pickup, int left, int[] vals, Set<String> valid) {
+        if (left == 0) {
+            addIfValid(tak, new StackMove(x, y, dir, pickup, vals), valid);
+            return;
+        }
+
+        if (!tak.inBounds(x + (vals.length + 1) * dir.dx, y + (vals.length + 1) * dir.dy)) {
+            return;
+        }
+
+        for (int drop = 1; drop <= left; drop++) {
+            int[] next = Arrays.copyOf(vals, vals.length + 1);
+            next[vals.length] = drop;
+            addDrops(tak, x, y, dir, pickup, left - drop, next, valid);
+        }
+    }
+
+    private static void addIfValid(Tak tak, Move move, Set<String> valid) {
+        if (tak.validateMove(move)) {
+            valid.add(move.toString());
+        }
+    }
+
+    @Test
+    public void bitBoardAgreesOnEverySize() {
+        Random random = new Random(5);
+
+        for (Tak.GameType type : Tak.GameType.values()) {
+            for (int game = 0; game < GAMES; game++) {
+                Tak tak = new Tak(type);
+                BitBoard board = new BitBoard(type);
+
+                while (!tak.isGameOver()) {
+                    Move move = MakeUnmakeTests.randomMove(tak, random);
+
+                    tak.executeMove(move);
+                    board.executeMove(move);
+
+                    Assert.assertEquals(tak.getGameResult(), board.getGameResult());
+                    Assert.assertEquals(tak, board.toTak());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countersMatchBoard() {
+        Random random = new Random(9);
+
+        for (Tak.GameType type : Tak.GameType.values()) {
+            for (int game = 0; game < GAMES; game++) {
+                Tak tak = new Tak(type);
+
+                while (!tak.isGameOver()) {
+                    tak.executeMove(MakeUnmakeTests.randomMove(tak, random));
+
+                    int empty = 0;
+                    int[] flats = new int[2];
+                    for (int x = 0; x < tak.boardSize(); x++) {
+                        for (int y = 0; y < tak.boardSize(); y++) {
+                            Stone top = tak.getStackAt(x, y).peek();
+                            if (tak.getStackAt(x, y).isEmpty()) {
+                                empty++;
+                            } else if (top.type == Stone.Type.FLAT) {
+                                flats[top.player]++;
+                            }
+                        }
+                    }
+
+                    Assert.assertEquals(empty, tak.getEmptySquareCount());
+                    Assert.assertEquals(flats[0], tak.getFlatCount(0));
+                    Assert.assertEquals(flats[1], tak.getFlatCount(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roadWinsOnEverySize() throws Tak.TakException {
+        for (Tak.GameType type : Tak.GameType.values()) {
+            int size = type.getSize();
+            char last = MoveFactory.fileToChar(size - 1);
+
+            // black's first stone goes in the far corner, then white builds column a
+            // while black builds column b, one stone short of a road
+            Tak tak = new Tak(type);
+            tak.safeExecuteMove(MoveFactory.parseMove("" + last + size));
+            tak.safeExecuteMove(MoveFactory.parseMove("a1"));
+
+            for (int row = 2; row <= size; row++) {
+                Assert.assertFalse(tak.isGameOver());
+                tak.safeExecuteMove(MoveFactory.parseMove("a" + row));
+
+                if (row < size) {
+                    tak.safeExecuteMove(MoveFactory.parseMove("b" + (row - 1)));
+                }
+            }
+
+            Assert.assertEquals(type.toString(), Tak.GameResult.WHITE, tak.getGameResult());
+        }
+    }
+}
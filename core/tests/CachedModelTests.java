@@ -0,0 +1,79 @@
+import base.Tak;
+import engine.models.CachedModel;
+import engine.models.ExperimentalHeuristic1;
+import engine.models.Model;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedModelTests {
+
+    @Test
+    public void keepsTheTwoLatestPositions() {
+        AtomicInteger evaluations = new AtomicInteger();
+        Model counting = tak -> evaluations.incrementAndGet();
+
+        // less than a megabyte makes a single bucket, so every position competes for it
+        CachedModel cache = new CachedModel(counting, 0);
+        Assert.assertEquals(2, cache.capacity());
+
+        Tak[] positions = MakeUnmakeTests.randomPositions(new Random(5), Tak.GameType.FIVE, 3);
+        Tak a = positions[0];
+        Tak b = positions[1];
+        Tak c = positions[2];
+
+        Assert.assertEquals(1.0, cache.evaluate(a), 0);
+        Assert.assertEquals(2.0, cache.evaluate(b), 0);
+        Assert.assertEquals(1.0, cache.evaluate(a), 0);
+
+        Assert.assertEquals(3.0, cache.evaluate(c), 0);
+        Assert.assertEquals(2.0, cache.evaluate(b), 0);
+        Assert.assertEquals(4.0, cache.evaluate(a), 0);
+
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(4, cache.getMisses());
+        Assert.assertEquals(1.0 / 3, cache.getHitRate(), 1e-12);
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(5.0, cache.evaluate(c), 0);
+    }
+
+    @Test
+    public void sharedByThreads() throws Exception {
+        ExperimentalHeuristic1 model = new ExperimentalHeuristic1();
+        CachedModel cache = new CachedModel(model, 1);
+        Tak[] positions = MakeUnmakeTests.randomPositions(new Random(9), Tak.GameType.FIVE, 2000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int seed = thread;
+                results.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; i++) {
+                        Tak tak = positions[random.nextInt(positions.length)];
+                        Assert.assertEquals(model.evaluate(tak), cache.evaluate(tak), 0);
+                    }
+                }));
+            }
+
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(80_000, cache.getHits() + cache.getMisses());
+        Assert.assertTrue(cache.getHitRate() > 0.5);
+    }
+}
@@ -1,7 +1,17 @@
 import base.Tak;
 import base.move.MoveFactory;
+import base.move.Move;
+import engine.Engine;
+import engine.TranspositionTable;
+import engine.engines.BestSearchEngine;
+import engine.engines.LazySmpEngine;
+import engine.engines.MinMaxDepthPruneEngine;
+import engine.models.ExperimentalHeuristic1;
 import org.junit.Assert;
 import org.junit.Test;
+import structures.Tuple;
+
+import java.util.List;
 
 public class EngineTests {
 
@@ -10,4 +20,163 @@ public class EngineTests {
             tak.safeExecuteMove(MoveFactory.parseMove(str));
         }
     }
+
+    @Test
+    public void findsRoadWin() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4");
+
+        MinMaxDepthPruneEngine engine = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 1);
+        engine.solve(tak, 0, 0);
+
+        Assert.assertEquals("a5", engine.pollMoves().get(0).one.toString());
+        Assert.assertEquals(Double.POSITIVE_INFINITY, engine.pollValuation(), 0);
+        Assert.assertEquals(1, engine.getCompletedDepth());
+    }
+
+    @Test
+    public void searchesToFullDepthWithoutClock() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "a1", "e5", "c3", "c2");
+
+        MinMaxDepthPruneEngine engine = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 1);
+        engine.solve(tak, 0, 0);
+
+        Assert.assertEquals(2, engine.getCompletedDepth());
+        Assert.assertEquals(engine.pollMoves().get(0).one.toString(),
+                engine.getPrincipalVariation().get(0).toString());
+    }
+
+    @Test
+    public void respectsTimeBudget() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.SIX);
+        executeConsecutiveMoves(tak, "a1", "f6", "c3", "d4", "c4", "d3");
+
+        MinMaxDepthPruneEngine engine = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 50);
+        long budget = MinMaxDepthPruneEngine.allocateTime(6000, 6000);
+
+        long start = System.currentTimeMillis();
+        engine.solve(tak, 6000, 6000);
+        long elapsed = System.currentTimeMillis() - start;
+
+        Assert.assertFalse(engine.pollMoves().isEmpty());
+        Assert.assertTrue(engine.getCompletedDepth() >= 1);
+        Assert.assertTrue(elapsed + " > " + budget, elapsed < budget + 500);
+        Assert.assertTrue(tak.validateMove(engine.pollMoves().get(0).one));
+    }
+
+    @Test
+    public void multiPvScoresMatchFullSearch() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "a1", "e5", "c3", "c2", "d3", "b2");
+        int moveCount = MoveFactory.allPossibleMovesList(tak).size();
+
+        MinMaxDepthPruneEngine multiPv = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 1, null, 3);
+        multiPv.solve(tak, 0, 0);
+
+        MinMaxDepthPruneEngine everyMove = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 1, null, moveCount);
+        everyMove.solve(tak, 0, 0);
+
+        List<Tuple<Move, Double>> ranked = multiPv.pollMoves();
+        List<Tuple<Move, Double>> exact = everyMove.pollMoves();
+        Assert.assertEquals(moveCount, ranked.size());
+        Assert.assertEquals(moveCount, exact.size());
+        assertRanked(ranked, true);
+        assertRanked(exact, true);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(exact.get(i).two, ranked.get(i).two, 0);
+        }
+
+        // the rest are only proven to be no better than the third best move
+        for (int i = 3; i < moveCount; i++) {
+            Assert.assertTrue(ranked.get(i).two <= ranked.get(2).two);
+        }
+    }
+
+    @Test
+    public void multiPvWithTableKeepsExactScores() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "a1", "e5", "c3", "c2", "d3", "b2");
+
+        MinMaxDepthPruneEngine plain = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 2, null, 3);
+        plain.solve(tak, 0, 0);
+
+        // the second search finds (float) scores of the first in the table
+        MinMaxDepthPruneEngine cached = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 2, new TranspositionTable(16), 3);
+        cached.solve(tak, 0, 0);
+        cached.solve(tak, 0, 0);
+
+        List<Tuple<Move, Double>> ranked = cached.pollMoves();
+        assertRanked(ranked, true);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(plain.pollMoves().get(i).two, ranked.get(i).two, 0);
+        }
+
+        for (Tuple<Move, Double> tuple : ranked) {
+            Assert.assertEquals((float) (double) tuple.two, tuple.two, 0);
+        }
+    }
+
+    @Test
+    public void bestSearchRanksEveryMove() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "a1", "e5", "c3");
+
+        BestSearchEngine engine = new BestSearchEngine(new ExperimentalHeuristic1());
+        engine.solve(tak, 0, 0);
+
+        Assert.assertEquals(MoveFactory.allPossibleMovesList(tak).size(), engine.pollMoves().size());
+        assertRanked(engine.pollMoves(), false);
+    }
+
+    @Test
+    public void lazySmpSingleThreadMatchesMinMax() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "a1", "e5", "c3", "c2", "d3", "b2");
+
+        MinMaxDepthPruneEngine minMax = new MinMaxDepthPruneEngine(new ExperimentalHeuristic1(), 1);
+        minMax.solve(tak, 0, 0);
+
+        LazySmpEngine smp = new LazySmpEngine(new ExperimentalHeuristic1(), 1, 1);
+        smp.solve(tak, 0, 0);
+
+        Assert.assertEquals(minMax.getNodeCount(), smp.getNodeCount());
+        Assert.assertEquals(minMax.pollMoves().size(), smp.pollMoves().size());
+        for (int i = 0; i < minMax.pollMoves().size(); i++) {
+            Assert.assertEquals(minMax.pollMoves().get(i).one.toString(), smp.pollMoves().get(i).one.toString());
+            Assert.assertEquals(minMax.pollMoves().get(i).two, smp.pollMoves().get(i).two, 0);
+        }
+    }
+
+    @Test
+    public void lazySmpSearchesWithManyThreads() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4");
+
+        LazySmpEngine engine = new LazySmpEngine(new ExperimentalHeuristic1(), 2, 4, new TranspositionTable(4));
+        try {
+            engine.solve(tak, 0, 0);
+            Assert.assertEquals("a5", engine.pollMoves().get(0).one.toString());
+            Assert.assertEquals(Double.POSITIVE_INFINITY, engine.pollValuation(), 0);
+
+            Tak midgame = new Tak(Tak.GameType.FIVE);
+            executeConsecutiveMoves(midgame, "a1", "e5", "c3", "c2", "d3", "b2");
+            engine.solve(midgame, 0, 0);
+
+            Assert.assertTrue(engine.getCompletedDepth() >= 4);
+            Assert.assertTrue(midgame.validateMove(engine.pollMoves().get(0).one));
+            Assert.assertEquals(MoveFactory.allPossibleMovesList(midgame).size(), engine.pollMoves().size());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static void assertRanked(List<Tuple<Move, Double>> moves, boolean white) {
+        for (int i = 1; i < moves.size(); i++) {
+            int cmp = Engine.MOVE_TUPLE_COMPARATOR.compare(moves.get(i - 1), moves.get(i));
+            Assert.assertTrue(white ? cmp >= 0 : cmp <= 0);
+        }
+    }
 }
@@ -1,11 +1,19 @@
 import base.Stone;
 import base.Tak;
+import base.move.DropTables;
 import base.move.Move;
 import base.move.MoveFactory;
 import base.move.PlaceMove;
 import base.move.StackMove;
 import org.junit.Assert;
 import org.junit.Test;
+import structures.Direction;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 
 public class GenerateMovesTest {
@@ -149,4 +157,159 @@ public class GenerateMovesTest {
         System.out.println(tak.getRoadGraphString());
         Assert.assertFalse(seen);
     }
+
+    @Test
+    public void encodeDecodeRoundTrip() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        executeConsecutiveMoves(tak, "c2", "b3", "d3", "c4", "1b3>1", "1c2+1", "1d3<1", "1c4-1", "a1", "Cb2");
+
+        for (Move m : MoveFactory.allPossibleMoves(tak)) {
+            int code = MoveFactory.encodeMove(m);
+            Assert.assertTrue(code >= 0 && code <= 0xFFFF);
+            Assert.assertEquals(m.toString(), MoveFactory.decodeMove(code).toString());
+        }
+
+        Move longest = MoveFactory.parseMove("8h8>1111112");
+        Assert.assertEquals(longest.toString(), MoveFactory.decodeMove(MoveFactory.encodeMove(longest)).toString());
+    }
+
+    @Test
+    public void movesAreInterned() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.SIX);
+        executeConsecutiveMoves(tak, "a1", "f6", "c3", "c4", "d3", "1c4-1", "e3", "2c3>11");
+
+        for (Move m : MoveFactory.allPossibleMoves(tak)) {
+            Move parsed = MoveFactory.parseMove(m.toString());
+            Assert.assertSame(m, parsed);
+            Assert.assertSame(m, MoveFactory.decodeMove(MoveFactory.encodeMove(m)));
+        }
+
+        StackMove move = new StackMove(1, 2, Direction.RIGHT, 3, new int[]{2, 1});
+        Assert.assertEquals("3b3>21", move.toString());
+        Assert.assertEquals(MoveFactory.parseMove("3b3>21"), move);
+        Assert.assertEquals(MoveFactory.parseMove("3b3>21").hashCode(), move.hashCode());
+        Assert.assertNotEquals(MoveFactory.parseMove("3b3>12"), move);
+        Assert.assertEquals(MoveFactory.parseMove("Sb3"), new PlaceMove(1, 2, Stone.Type.STANDING));
+    }
+
+    @Test
+    public void parseRejectsBadMoves() {
+        String[] bad = {"", "3a1>2", "2a1>111", "2a1>20", "3a1?3", "Xa1", "9a1+9", "i1"};
+        for (String str : bad) {
+            try {
+                MoveFactory.parseMove(str);
+                Assert.fail(str);
+            } catch (IllegalArgumentException expected) {
+                // as it should
+            }
+        }
+    }
+
+    @Test
+    public void bufferMatchesIterator() {
+        Random random = new Random(11);
+
+        for (Tak.GameType type : new Tak.GameType[]{Tak.GameType.FIVE, Tak.GameType.SIX}) {
+            for (int game = 0; game < 100; game++) {
+                Tak tak = new Tak(type);
+                int[] buffer = new int[MoveFactory.maxMoves(tak) + 3];
+
+                while (!tak.isGameOver()) {
+                    Set<String> expected = new HashSet<>();
+                    for (Move m : MoveFactory.allPossibleMoves(tak)) {
+                        expected.add(m.toString());
+                    }
+
+                    int count = MoveFactory.generateMoves(tak, buffer, 3);
+                    Set<String> generated = new HashSet<>();
+                    for (int i = 3; i < 3 + count; i++) {
+                        Move m = MoveFactory.decodeMove(buffer[i]);
+                        Assert.assertTrue(m.toString(), tak.validateMove(m));
+                        generated.add(m.toString());
+                    }
+
+                    Assert.assertEquals(count, generated.size());
+                    Assert.assertEquals(expected, generated);
+
+                    tak.executeMove(MoveFactory.decodeMove(buffer[3 + random.nextInt(count)]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void randomMoveDrawsFromTheMovesOfEverySize() {
+        Random random = new Random(13);
+
+        // largest board first, so smaller boards reuse the buffer of the thread
+        for (int t = Tak.GameType.values().length - 1; t >= 0; t--) {
+            Tak tak = new Tak(Tak.GameType.values()[t]);
+
+            while (!tak.isGameOver()) {
+                long seed = random.nextLong();
+                List<Move> moves = MoveFactory.allPossibleMovesList(tak);
+                Move move = MoveFactory.randomMove(tak, new Random(seed));
+
+                Assert.assertSame(moves.get(new Random(seed).nextInt(moves.size())), move);
+                tak.executeMove(move);
+            }
+        }
+    }
+
+    @Test
+    public void dropTablesHoldEveryComposition() {
+        for (int carry = 0; carry <= DropTables.MAX_CARRY; carry++) {
+            for (int distance = 0; distance <= DropTables.MAX_DISTANCE; distance++) {
+                Set<String> expected = new HashSet<>();
+                Set<String> expectedSmashes = new HashSet<>();
+                for (int n = 1; n <= carry; n++) {
+                    addCompositions(n, new int[0], distance, expected, expectedSmashes);
+                }
+
+                Set<String> sequences = new HashSet<>();
+                for (int i = DropTables.start(distance); i < DropTables.end(carry, distance); i++) {
+                    Assert.assertTrue(sequences.add(drops(DropTables.sequence(i))));
+                }
+
+                Set<String> smashes = new HashSet<>();
+                for (int i = DropTables.smashStart(distance); i < DropTables.smashEnd(carry, distance); i++) {
+                    Assert.assertTrue(smashes.add(drops(DropTables.smashSequence(i))));
+                }
+
+                Assert.assertEquals(expected, sequences);
+                Assert.assertEquals(expectedSmashes, smashes);
+            }
+        }
+    }
+
+    /**
+     * Adds every way to drop the rest of {@code left} stones after {@code prefix}: on at most
+     * {@code distance} squares, or on exactly {@code distance} squares and then a single stone.
+     */
+    private static void addCompositions(int left, int[] prefix, int distance, Set<String> drops, Set<String> smashes) {
+        if (left == 0) {
+            drops.add(Arrays.toString(prefix));
+            return;
+        }
+
+        if (left == 1 && prefix.length == distance) {
+            int[] smash = Arrays.copyOf(prefix, prefix.length + 1);
+            smash[prefix.length] = 1;
+            smashes.add(Arrays.toString(smash));
+        }
+
+        if (prefix.length == distance) {
+            return;
+        }
+
+        for (int drop = 1; drop <= left; drop++) {
+            int[] next = Arrays.copyOf(prefix, prefix.length + 1);
+            next[prefix.length] = drop;
+            addCompositions(left - drop, next, distance, drops, smashes);
+        }
+    }
+
+    private static String drops(int sequence) {
+        return Arrays.toString(((StackMove) MoveFactory.decodeMove(sequence << 8)).getVals());
+    }
 }
@@ -0,0 +1,152 @@
+import base.Stack;
+import base.Stone;
+import base.Tak;
+import engine.models.ExperimentalHeuristic1;
+import engine.models.IncrementalHeuristic1;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class HeuristicTests {
+
+    private static final int GAMES = 10;
+
+    @Test
+    public void sameScoresAsBefore() {
+        Random random = new Random(19);
+        ExperimentalHeuristic1 model = new ExperimentalHeuristic1();
+
+        for (Tak.GameType type : Tak.GameType.values()) {
+            for (int game = 0; game < GAMES; game++) {
+                Tak tak = new Tak(type);
+
+                while (!tak.isGameOver()) {
+                    Assert.assertEquals(boardControl(tak), model.boardControl(tak), 0.0);
+                    Assert.assertEquals(totalRoads(tak), model.totalRoads(tak), 0.0);
+
+                    tak.executeMove(MakeUnmakeTests.randomMove(tak, random));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void incrementalMatchesFullEvaluation() {
+        Random random = new Random(23);
+        ExperimentalHeuristic1 full = new ExperimentalHeuristic1();
+        IncrementalHeuristic1 incremental = new IncrementalHeuristic1();
+
+        for (Tak.GameType type : Tak.GameType.values()) {
+            for (int game = 0; game < GAMES; game++) {
+                Tak tak = new Tak(type);
+                List<Tak.Undo> undos = new ArrayList<>();
+
+                while (!tak.isGameOver()) {
+                    Assert.assertEquals(full.evaluate(tak), incremental.evaluate(tak), 1e-9);
+
+                    // walk back now and then, and sometimes evaluate a copy in between
+                    if (!undos.isEmpty() && random.nextInt(4) == 0) {
+                        tak.undoMove(undos.remove(undos.size() - 1));
+                    } else {
+                        undos.add(tak.executeMove(MakeUnmakeTests.randomMove(tak, random)));
+                    }
+
+                    if (random.nextInt(10) == 0) {
+                        Tak copy = new Tak(tak);
+                        Assert.assertEquals(full.evaluate(copy), incremental.evaluate(copy), 1e-9);
+                    }
+                }
+
+                Assert.assertEquals(full.evaluate(tak), incremental.evaluate(tak), 0.0);
+            }
+        }
+    }
+
+    /*
+     * The evaluation as it was first written, to compare against.
+     */
+
+    private static double totalRoads(Tak tak) {
+        double whiteRoads = roads(tak, 0, true) + roads(tak, 0, false);
+        double blackRoads = roads(tak, 1, false) + roads(tak, 1, false);
+
+        return whiteRoads - blackRoads;
+    }
+
+    private static double roads(Tak tak, int player, boolean vertical) {
+        int[] row = new int[tak.boardSize()];
+        int max = 0;
+
+        for (int j = 0; j < tak.boardSize(); j++) {
+            for (int i = 0; i < tak.boardSize(); i++) {
+                Stone stone = vertical ? tak.getStackAt(i, j).peek() : tak.getStackAt(j, i).peek();
+
+                if (!stone.type.equals(Stone.Type.STANDING) && stone.player == player) {
+                    row[i] += 1;
+                } else {
+                    row[i] = 0;
+                }
+
+                Map<Integer, Integer> map = new HashMap<>();
+                for (int k = 0; k < row.length; k++) {
+                    map.put(k, row[k]);
+                }
+
+                LinkedHashMap<Integer, Integer> sorted = new LinkedHashMap<>();
+                map.entrySet()
+                        .stream()
+                        .sorted(Map.Entry.comparingByValue())
+                        .forEachOrdered(x -> sorted.put(x.getKey(), x.getValue()));
+
+                for (Integer index : sorted.keySet()) {
+                    int best = 0;
+                    for (int k = index - 1; k <= index + 1; k++) {
+                        if (tak.inBounds(k) && row[k] > best) {
+                            best = row[k];
+                        }
+                    }
+
+                    row[index] = best;
+                }
+
+                for (int n : row) {
+                    max = Math.max(max, n);
+                }
+            }
+        }
+
+        return max;
+    }
+
+    private static double boardControl(Tak tak) {
+        double pieceCount = 0;
+
+        for (int i = 0; i < tak.boardSize(); i++) {
+            for (int j = 0; j < tak.boardSize(); j++) {
+                Stack stack = tak.getStackAt(i, j);
+                Iterator<Stone> stoneIterator = stack.stoneIterator(stack.size(), true);
+
+                double d = 1;
+                while (stoneIterator.hasNext()) {
+                    Stone stone = stoneIterator.next();
+                    if (stone.player == 0) {
+                        pieceCount += d;
+                    } else if (stone.player == 1) {
+                        pieceCount -= d;
+                    }
+
+                    d *= 0.45;
+                }
+            }
+        }
+
+        return pieceCount;
+    }
+}
@@ -0,0 +1,201 @@
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import engine.models.LinearFeatures;
+import engine.models.LinearModel;
+import engine.tuning.LinearTuner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class LinearModelTests {
+
+    @Test
+    public void featuresOfAnOpening() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        for (String move : new String[]{"a1", "e5", "c3", "Sb1", "Cc4"}) {
+            tak.safeExecuteMove(MoveFactory.parseMove(move));
+        }
+
+        double[] features = new double[LinearFeatures.COUNT];
+        LinearModel.features().extract(tak, features, 0, 1);
+
+        // white: e5, c3 and the cap on c4, black: a1 and the wall on b1, next to no road square of white
+        Assert.assertEquals(1, features[LinearFeatures.FLATS], 0);
+        Assert.assertEquals(-1, features[LinearFeatures.STANDING], 0);
+        Assert.assertEquals(1, features[LinearFeatures.CAPS], 0);
+        Assert.assertEquals(4, features[LinearFeatures.CAP_MOBILITY], 0);
+        Assert.assertEquals(0, features[LinearFeatures.WALLS], 0);
+        Assert.assertEquals(2, features[LinearFeatures.CENTER], 0);
+        Assert.assertEquals(0, features[LinearFeatures.RESERVES], 0);
+        Assert.assertEquals(-1, features[LinearFeatures.CAP_RESERVES], 0);
+        Assert.assertEquals(-1, features[LinearFeatures.TEMPO], 0);
+        Assert.assertEquals(1, features[LinearFeatures.ROAD_DISTANCE], 0);
+
+        tak.safeExecuteMove(MoveFactory.parseMove("Sb4"));
+        LinearModel.features().extract(tak, features, 0, 1);
+        Assert.assertEquals(-2, features[LinearFeatures.STANDING], 0);
+        Assert.assertEquals(-1, features[LinearFeatures.WALLS], 0);
+
+        // the cap flattens the wall next to it, which becomes a captive below it
+        tak.safeExecuteMove(MoveFactory.parseMove("1c4<1"));
+        LinearModel.features().extract(tak, features, 0, 1);
+        Assert.assertEquals(-1, features[LinearFeatures.STANDING], 0);
+        Assert.assertEquals(0, features[LinearFeatures.WALLS], 0);
+        Assert.assertEquals(1, features[LinearFeatures.CAPTIVES], 0);
+        Assert.assertEquals(0, features[LinearFeatures.SUPPORTS], 0);
+    }
+
+    @Test
+    public void batchMatchesOneByOne() {
+        LinearModel model = new LinearModel();
+        Random random = new Random(41);
+
+        Tak[] positions = MakeUnmakeTests.randomPositions(random, Tak.GameType.SIX, 300);
+
+        double[] scores = new double[positions.length];
+        model.evaluate(positions, positions.length, scores);
+
+        for (int i = 0; i < positions.length; i++) {
+            Assert.assertEquals(model.evaluate(positions[i]), scores[i], 0);
+        }
+    }
+
+    @Test
+    public void savedWeightsLoadTheSame() throws IOException {
+        double[] weights = new double[LinearFeatures.COUNT];
+        for (int f = 0; f < weights.length; f++) {
+            weights[f] = 0.1 * f - 0.35;
+        }
+
+        Path file = Files.createTempFile("weights", ".txt");
+        try {
+            new LinearModel(weights, 0.25).save(file);
+            LinearModel loaded = LinearModel.load(file);
+
+            Assert.assertArrayEquals(weights, loaded.getWeights(), 0);
+            Assert.assertEquals(0.25, loaded.getBias(), 0);
+
+            Files.write(file, List.of("# flats only", "", "flats 2"));
+            loaded = LinearModel.load(file);
+            Assert.assertEquals(2, loaded.getWeights()[LinearFeatures.FLATS], 0);
+            Assert.assertEquals(0, loaded.getWeights()[LinearFeatures.TEMPO], 0);
+
+            Files.write(file, List.of("flat 2"));
+            Assert.assertThrows(IllegalArgumentException.class, () -> LinearModel.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void tunerFitsTheResults() throws IOException {
+        Path corpus = Files.createTempFile("corpus", ".txt");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<String> lines = new ArrayList<>(corpus(new Random(43), 300));
+            lines.add(0, "# random games");
+            Files.write(corpus, lines);
+
+            LinearModel zero = new LinearModel(new double[LinearFeatures.COUNT], 0);
+            LinearTuner tuner = new LinearTuner(pool);
+            Assert.assertEquals(Math.log(2), tuner.loss(corpus, zero), 1e-12);
+
+            LinearModel tuned = tuner.tune(corpus, zero, 8);
+            double loss = tuner.loss(corpus, tuned);
+            Assert.assertTrue(loss < tuner.loss(corpus, new LinearModel()));
+            Assert.assertTrue(loss < Math.log(2) - 0.02);
+
+            // an optimum: tuning further (here on one thread) only moves the weights by rounding errors
+            ForkJoinPool single = new ForkJoinPool(1);
+            LinearModel again = new LinearTuner(single).tune(corpus, tuned, 1);
+            single.shutdown();
+            Assert.assertArrayEquals(tuned.getWeights(), again.getWeights(), 1e-6);
+            Assert.assertEquals(tuned.getBias(), again.getBias(), 1e-6);
+
+            Files.write(corpus, List.of("5 1-0 a1 e5 a1"));
+            Assert.assertThrows(IllegalArgumentException.class, () -> tuner.loss(corpus, zero));
+        } finally {
+            pool.shutdown();
+            Files.delete(corpus);
+        }
+    }
+
+    @Test
+    public void tunerRecoversFromBadWeights() throws IOException {
+        Path corpus = Files.createTempFile("corpus", ".txt");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Files.write(corpus, corpus(new Random(61), 200));
+            LinearTuner tuner = new LinearTuner(pool);
+
+            // scores of hundreds: every win probability is 0 or 1 and a full Newton step overshoots
+            double[] bad = new double[LinearFeatures.COUNT];
+            for (int f = 0; f < bad.length; f++) {
+                bad[f] = f % 2 == 0 ? 40 : -40;
+            }
+
+            LinearModel zero = new LinearModel(new double[LinearFeatures.COUNT], 0);
+            double optimum = tuner.loss(corpus, tuner.tune(corpus, zero, 20));
+            double loss = tuner.loss(corpus, tuner.tune(corpus, new LinearModel(bad, 25), 60));
+
+            Assert.assertFalse(Double.isNaN(loss));
+            Assert.assertEquals(optimum, loss, 1e-6);
+        } finally {
+            pool.shutdown();
+            Files.delete(corpus);
+        }
+    }
+
+    @Test
+    public void corpusTakesPtnShorthand() throws IOException {
+        Path corpus = Files.createTempFile("corpus", ".txt");
+        try {
+            LinearTuner tuner = new LinearTuner(ForkJoinPool.commonPool());
+            LinearModel model = new LinearModel();
+
+            Files.write(corpus, List.of("5 1-0 a1 e5 c3 d3 1c3>1 d4 2d3+2 Sb2 Cc2 e4 1c2<1 e3 3d4-12"));
+            double spelledOut = tuner.loss(corpus, model);
+
+            // implicit counts and drops, a flat written as such, and the marks of tak, a crush and comments
+            Files.write(corpus, List.of("5 1-0 a1 e5 Fc3 d3 c3> d4 2d3+ Sb2 Cc2' e4 c2<* e3 3d4-12!?"));
+            Assert.assertEquals(spelledOut, tuner.loss(corpus, model), 0);
+
+            Files.write(corpus, List.of("5 1-0 a1 e5 c3 d3 c3>2"));
+            Assert.assertThrows(IllegalArgumentException.class, () -> tuner.loss(corpus, model));
+        } finally {
+            Files.delete(corpus);
+        }
+    }
+
+    /**
+     * @return Random 4x4 games in the format of the corpus of the tuner.
+     */
+    private static List<String> corpus(Random random, int games) {
+        List<String> lines = new ArrayList<>();
+
+        for (int game = 0; game < games; game++) {
+            Tak tak = new Tak(Tak.GameType.FOUR);
+            StringBuilder moves = new StringBuilder();
+
+            while (!tak.isGameOver()) {
+                Move move = MakeUnmakeTests.randomMove(tak, random);
+                tak.executeMove(move);
+                moves.append(' ').append(move);
+            }
+
+            String result = tak.getGameResult() == Tak.GameResult.WHITE ? "1-0"
+                    : tak.getGameResult() == Tak.GameResult.BLACK ? "0-1" : "1/2-1/2";
+            lines.add("4 " + result + moves);
+        }
+
+        return lines;
+    }
+}
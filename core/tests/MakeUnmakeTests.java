@@ -0,0 +1,137 @@
+import base.Stack;
+import base.Stone;
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class MakeUnmakeTests {
+
+    @Test
+    public void capstoneFlattenUndo() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        FiveFiveTests.executeConsecutiveMoves(tak, "c2", "b3", "Cc1", "Sb1");
+
+        String before = snapshot(tak);
+        Tak.Undo undo = tak.executeMove(MoveFactory.parseMove("1c1<1"));
+        Assert.assertEquals(Stone.Type.FLAT, tak.getStackAt(1, 0).get(1).type);
+
+        tak.undoMove(undo);
+        Assert.assertEquals(Stone.Type.STANDING, tak.getStackAt(1, 0).peek().type);
+        Assert.assertEquals(before, snapshot(tak));
+    }
+
+    @Test
+    public void gameEndingMoveUndo() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        FiveFiveTests.executeConsecutiveMoves(tak, "b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4");
+
+        String before = snapshot(tak);
+        Tak.Undo undo = tak.executeMove(MoveFactory.parseMove("a5"));
+        Assert.assertTrue(tak.isGameOver());
+
+        tak.undoMove(undo);
+        Assert.assertFalse(tak.isGameOver());
+        Assert.assertEquals(before, snapshot(tak));
+    }
+
+    @Test
+    public void randomGamesRoundTrip() {
+        Random random = new Random(42);
+
+        for (int game = 0; game < 1000; game++) {
+            Tak.GameType type = game % 2 == 0 ? Tak.GameType.FIVE : Tak.GameType.SIX;
+            Tak tak = new Tak(type);
+            List<Tak.Undo> history = new ArrayList<>();
+            List<String> snapshots = new ArrayList<>();
+
+            while (!tak.isGameOver()) {
+                String before = snapshot(tak);
+
+                // try a few other moves first, each has to leave no trace
+                for (int i = 0; i < 2; i++) {
+                    Tak.Undo undo = tak.executeMove(randomMove(tak, random));
+                    tak.undoMove(undo);
+                    Assert.assertEquals(before, snapshot(tak));
+                }
+
+                snapshots.add(before);
+                history.add(tak.executeMove(randomMove(tak, random)));
+            }
+
+            // take back the whole game
+            for (int i = history.size() - 1; i >= 0; i--) {
+                tak.undoMove(history.get(i));
+                Assert.assertEquals(snapshots.get(i), snapshot(tak));
+            }
+        }
+    }
+
+    /**
+     * @return A legal move of {@code tak}, drawn uniformly.
+     */
+    static Move randomMove(Tak tak, Random random) {
+        List<Move> moves = MoveFactory.allPossibleMovesList(tak);
+        return moves.get(random.nextInt(moves.size()));
+    }
+
+    /**
+     * @return Distinct positions of random games, a new game starting whenever one ends.
+     */
+    static Tak[] randomPositions(Random random, Tak.GameType type, int amount) {
+        Tak[] positions = new Tak[amount];
+        Set<Long> keys = new HashSet<>();
+        Tak tak = new Tak(type);
+
+        for (int i = 0; i < amount; ) {
+            if (tak.isGameOver()) {
+                tak = new Tak(type);
+            }
+
+            tak.executeMove(randomMove(tak, random));
+
+            if (keys.add(tak.zobristKey())) {
+                positions[i++] = new Tak(tak);
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * @return Every piece of state of {@code tak} that is observable from outside.
+     */
+    static String snapshot(Tak tak) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int x = 0; x < tak.boardSize(); x++) {
+            for (int y = 0; y < tak.boardSize(); y++) {
+                Stack stack = tak.getStackAt(x, y);
+                for (int i = 0; i < stack.tSize(); i++) {
+                    builder.append(stack.get(i).player).append(stack.get(i).type.ordinal());
+                }
+                builder.append('|');
+            }
+        }
+
+        for (int p = 0; p < 2; p++) {
+            builder.append(tak.getPlayer(p).sideStones).append(',').append(tak.getPlayer(p).capStones).append(';');
+        }
+
+        builder.append(tak.getCurrentPlayerIndex())
+                .append(tak.isFirstMove())
+                .append(tak.getGameResult())
+                .append(tak.getRoadGraphString())
+                .append(tak.getFlatCount(0)).append(',').append(tak.getFlatCount(1))
+                .append(',').append(tak.getEmptySquareCount());
+
+        return builder.toString();
+    }
+}
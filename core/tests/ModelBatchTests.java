@@ -0,0 +1,80 @@
+import base.Tak;
+import engine.models.CachedModel;
+import engine.models.ExperimentalHeuristic1;
+import engine.models.FeatureBatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ModelBatchTests {
+
+    private static final int POSITIONS = 300;
+
+    @Test
+    public void batchMatchesOneByOne() {
+        ExperimentalHeuristic1 model = new ExperimentalHeuristic1();
+        Tak[] positions = MakeUnmakeTests.randomPositions(new Random(29), Tak.GameType.SIX, POSITIONS);
+
+        double[] scores = new double[POSITIONS];
+        model.evaluate(positions, POSITIONS, scores);
+
+        for (int i = 0; i < POSITIONS; i++) {
+            Assert.assertEquals(model.evaluate(positions[i]), scores[i], 0);
+        }
+    }
+
+    @Test
+    public void featuresWeighedByOneGiveTheScores() {
+        ExperimentalHeuristic1 model = new ExperimentalHeuristic1();
+        Tak[] positions = MakeUnmakeTests.randomPositions(new Random(31), Tak.GameType.FIVE, POSITIONS);
+
+        FeatureBatch batch = new FeatureBatch(model.features(), POSITIONS);
+        for (Tak tak : positions) {
+            batch.add(tak);
+        }
+
+        Assert.assertEquals(POSITIONS, batch.size());
+        Assert.assertEquals(2, batch.featureCount());
+
+        double[] scores = new double[POSITIONS];
+        batch.score(new double[]{1, 1}, 0, scores);
+
+        for (int i = 0; i < POSITIONS; i++) {
+            Assert.assertEquals(model.boardControl(positions[i]), batch.feature(i, 0), 0);
+            Assert.assertEquals(model.totalRoads(positions[i]), batch.feature(i, 1), 0);
+
+            if (!positions[i].isGameOver()) {
+                Assert.assertEquals(model.evaluate(positions[i]), scores[i], 0);
+            }
+        }
+
+        batch.score(new double[]{0.5, -2}, 3, scores);
+        Assert.assertEquals(3 + 0.5 * batch.feature(7, 0) - 2 * batch.feature(7, 1), scores[7], 1e-12);
+
+        batch.clear();
+        Assert.assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void cacheEvaluatesMissesInOneBatch() {
+        ExperimentalHeuristic1 model = new ExperimentalHeuristic1();
+        CachedModel cache = new CachedModel(model, 1);
+        Tak[] positions = MakeUnmakeTests.randomPositions(new Random(37), Tak.GameType.FIVE, POSITIONS);
+
+        for (int i = 0; i < POSITIONS; i += 2) {
+            cache.evaluate(positions[i]);
+        }
+        cache.resetCounters();
+
+        double[] scores = new double[POSITIONS];
+        cache.evaluate(positions, POSITIONS, scores);
+
+        for (int i = 0; i < POSITIONS; i++) {
+            Assert.assertEquals(model.evaluate(positions[i]), scores[i], 0);
+        }
+
+        Assert.assertEquals(POSITIONS, cache.getHits() + cache.getMisses());
+        Assert.assertTrue(cache.getHits() >= POSITIONS / 2 - 5);
+    }
+}
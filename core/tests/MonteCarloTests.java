@@ -0,0 +1,251 @@
+import base.Tak;
+import base.move.Move;
+import base.move.MoveFactory;
+import engine.CompactGameTree;
+import engine.GameTree;
+import engine.engines.CompactMonteCarloEngine;
+import engine.engines.MonteCarloEngine;
+import engine.models.ExperimentalHeuristic1;
+import engine.rollouts.ModelRolloutPolicy;
+import engine.rollouts.RandomRolloutPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MonteCarloTests {
+
+    @Test
+    public void childrenIteratorExpandsLazily() throws Tak.TakException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        EngineTests.executeConsecutiveMoves(tak, "a1", "e5", "c3");
+        int moveCount = MoveFactory.allPossibleMovesList(tak).size();
+
+        GameTree tree = new GameTree(new Tak(tak));
+        Assert.assertTrue(tree.getChildren().isEmpty());
+
+        Iterator<GameTree> iter = tree.getChildrenIterator();
+        iter.next();
+        iter.next();
+        Assert.assertEquals(2, tree.getChildren().size());
+        Assert.assertFalse(tree.isFullyExpanded());
+
+        int count = 0;
+        for (Iterator<GameTree> all = tree.getChildrenIterator(); all.hasNext(); all.next()) {
+            count++;
+        }
+
+        Assert.assertEquals(moveCount, count);
+        Assert.assertEquals(moveCount, tree.getChildren().size());
+        Assert.assertTrue(tree.isFullyExpanded());
+    }
+
+    @Test
+    public void childrenIteratorsShareTheNode() throws Exception {
+        Tak tak = new Tak(Tak.GameType.SIX);
+        EngineTests.executeConsecutiveMoves(tak, "a1", "f6", "c3", "d4");
+        int moveCount = MoveFactory.allPossibleMovesList(tak).size();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; round++) {
+                GameTree tree = new GameTree(new Tak(tak));
+                CyclicBarrier start = new CyclicBarrier(4);
+
+                List<Future<Set<GameTree>>> results = new ArrayList<>();
+                for (int thread = 0; thread < 4; thread++) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        Set<GameTree> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                        for (Iterator<GameTree> iter = tree.getChildrenIterator(); iter.hasNext(); ) {
+                            Assert.assertTrue(seen.add(iter.next()));
+                        }
+
+                        return seen;
+                    }));
+                }
+
+                // every iterator returns every child once, whoever created it
+                for (Future<Set<GameTree>> result : results) {
+                    Assert.assertEquals(moveCount, result.get().size());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void findsRoadWin() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        EngineTests.executeConsecutiveMoves(tak, "b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4");
+
+        for (MonteCarloEngine engine : new MonteCarloEngine[]{
+                new MonteCarloEngine(new RandomRolloutPolicy(), 3000, MonteCarloEngine.DEFAULT_EXPLORATION, 100_000, new Random(1)),
+                new MonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()), 3000, MonteCarloEngine.DEFAULT_EXPLORATION, 100_000, new Random(1))}) {
+            engine.solve(tak, 0, 0);
+
+            Assert.assertEquals(3000, engine.getPlayoutCount());
+            Assert.assertEquals("a5", engine.pollMoves().get(0).one.toString());
+            Assert.assertEquals(1.0, engine.pollValuation(), 0);
+            Assert.assertEquals(MoveFactory.allPossibleMovesList(tak).size(), engine.pollMoves().size());
+        }
+    }
+
+    @Test
+    public void reusesTreeAfterTwoMoves() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        EngineTests.executeConsecutiveMoves(tak, "a1", "e5", "c3", "c2");
+
+        MonteCarloEngine engine = new MonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()),
+                5000, MonteCarloEngine.DEFAULT_EXPLORATION, 100_000, new Random(2));
+        engine.solve(tak, 0, 0);
+
+        GameTree ours = engine.getTreeHandler().getRoot().getChildren().stream()
+                .filter(child -> child.move.toString().equals(engine.pollMoves().get(0).one.toString()))
+                .findFirst().get();
+        GameTree theirs = ours.getChildren().stream()
+                .max((a, b) -> Integer.compare(a.getTimesVisited(), b.getTimesVisited())).get();
+        int visits = theirs.getTimesVisited();
+
+        tak.safeExecuteMove(ours.move);
+        tak.safeExecuteMove(theirs.move);
+        engine.solve(tak, 0, 0);
+
+        Assert.assertSame(theirs, engine.getTreeHandler().getRoot());
+        Assert.assertEquals(visits + 5000, theirs.getTimesVisited());
+    }
+
+    @Test
+    public void respectsNodeLimit() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.SIX);
+        EngineTests.executeConsecutiveMoves(tak, "a1", "f6", "c3", "d4");
+
+        MonteCarloEngine engine = new MonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()),
+                2000, MonteCarloEngine.DEFAULT_EXPLORATION, 500, new Random(3));
+        engine.solve(tak, 0, 0);
+
+        Assert.assertEquals(500, engine.getTreeHandler().getNodeCount());
+        Assert.assertEquals(2000, engine.getTreeHandler().getRoot().getTimesVisited());
+        Assert.assertTrue(tak.validateMove(engine.pollMoves().get(0).one));
+    }
+
+    @Test
+    public void parallelSearchKeepsCountsConsistent() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        EngineTests.executeConsecutiveMoves(tak, "b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4");
+
+        MonteCarloEngine engine = new MonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()),
+                4000, MonteCarloEngine.DEFAULT_EXPLORATION, 100_000, new Random(4), 4);
+        try {
+            engine.solve(tak, 0, 0);
+        } finally {
+            engine.shutdown();
+        }
+
+        Assert.assertEquals(4000, engine.getPlayoutCount());
+
+        // either a5 or Ca5 wins on the spot
+        Tak next = new Tak(tak);
+        next.safeExecuteMove(engine.pollMoves().get(0).one);
+        Assert.assertEquals(Tak.GameResult.WHITE, next.getGameResult());
+
+        // every node was created once and every virtual loss was reverted
+        GameTree root = engine.getTreeHandler().getRoot();
+        Assert.assertEquals(engine.getTreeHandler().getNodeCount(), assertConsistent(root, true));
+        Assert.assertEquals(4000, root.getTimesVisited());
+    }
+
+    /**
+     * @return The amount of nodes in the tree.
+     */
+    private static int assertConsistent(GameTree node, boolean root) {
+        int nodes = 1;
+        int childVisits = 0;
+
+        for (GameTree child : node.getChildren()) {
+            nodes += assertConsistent(child, false);
+            childVisits += child.getTimesVisited();
+        }
+
+        Assert.assertEquals(node.getChildCount(), node.getChildren().size());
+        Assert.assertTrue(node.getFavorsWhite() >= 0 && node.getFavorsWhite() <= node.getTimesVisited());
+        if (!node.getChildren().isEmpty() && node.isFullyExpanded()) {
+            // all playouts but the one that created the node went on to a child
+            Assert.assertEquals(node.getTimesVisited() - (root ? 0 : 1), childVisits);
+        }
+
+        return nodes;
+    }
+
+    @Test
+    public void compactTreeFindsRoadWin() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.FIVE);
+        EngineTests.executeConsecutiveMoves(tak, "b1", "a1", "a2", "b2", "a3", "b3", "a4", "b4");
+
+        CompactMonteCarloEngine engine = new CompactMonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()),
+                3000, MonteCarloEngine.DEFAULT_EXPLORATION, 100_000, new Random(1));
+        engine.solve(tak, 0, 0);
+
+        Assert.assertEquals(3000, engine.getPlayoutCount());
+        Assert.assertEquals("a5", engine.pollMoves().get(0).one.toString());
+        Assert.assertEquals(1.0, engine.pollValuation(), 0);
+        Assert.assertEquals(MoveFactory.allPossibleMovesList(tak).size(), engine.pollMoves().size());
+    }
+
+    @Test
+    public void compactTreeStructure() throws Tak.TakException, InterruptedException {
+        Tak tak = new Tak(Tak.GameType.SIX);
+        EngineTests.executeConsecutiveMoves(tak, "a1", "f6", "c3", "d4");
+
+        CompactMonteCarloEngine engine = new CompactMonteCarloEngine(new ModelRolloutPolicy(new ExperimentalHeuristic1()),
+                2000, MonteCarloEngine.DEFAULT_EXPLORATION, 20_000, new Random(3));
+        engine.solve(tak, 0, 0);
+
+        CompactGameTree tree = engine.getTree();
+        Assert.assertTrue(tree.size() <= 20_000);
+        Assert.assertEquals(2000, tree.getVisits(CompactGameTree.ROOT));
+
+        // replaying the moves from the root gives the children of every expanded node
+        int checked = 0;
+        for (int node = 0; node < tree.size() && checked < 50; node++) {
+            if (!tree.isExpanded(node)) {
+                continue;
+            }
+
+            Tak position = new Tak(tak);
+            List<Integer> line = new ArrayList<>();
+            for (int n = node; n != CompactGameTree.ROOT; n = tree.getParent(n)) {
+                line.add(0, tree.getMove(n));
+            }
+
+            for (int code : line) {
+                position.safeExecuteMove(MoveFactory.decodeMove(code));
+            }
+
+            List<Move> moves = MoveFactory.allPossibleMovesList(position);
+            Assert.assertEquals(moves.size(), tree.getChildCount(node));
+
+            int childVisits = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int child = tree.getFirstChild(node) + i;
+                Assert.assertEquals(node, tree.getParent(child));
+                Assert.assertEquals(MoveFactory.encodeMove(moves.get(i)), tree.getMove(child));
+                childVisits += tree.getVisits(child);
+            }
+
+            Assert.assertEquals(tree.getVisits(node) - (node == CompactGameTree.ROOT ? 0 : 1), childVisits);
+            checked++;
+        }
+    }
+}
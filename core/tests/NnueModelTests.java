@@ -0,0 +1,118 @@
+import base.Tak;
+import engine.models.NnueModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class NnueModelTests {
+
+    private static final int GAMES = 10;
+
+    @Test
+    public void incrementalMatchesFromScratch() {
+        Random random = new Random(47);
+
+        for (Tak.GameType type : Tak.GameType.values()) {
+            long seed = random.nextLong();
+            NnueModel model = randomNetwork(new Random(seed), type.getSize(), 32);
+            NnueModel scratch = randomNetwork(new Random(seed), type.getSize(), 32);
+
+            for (int game = 0; game < GAMES; game++) {
+                Tak tak = new Tak(type);
+                List<Tak.Undo> undos = new ArrayList<>();
+
+                while (!tak.isGameOver()) {
+                    // the same network evaluates every copy from scratch
+                    Assert.assertEquals(scratch.evaluate(new Tak(tak)), model.evaluate(tak), 0);
+
+                    if (!undos.isEmpty() && random.nextInt(4) == 0) {
+                        tak.undoMove(undos.remove(undos.size() - 1));
+                    } else {
+                        undos.add(tak.executeMove(MakeUnmakeTests.randomMove(tak, random)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countsFlats() {
+        int size = 5;
+        int inputs = NnueModel.inputs(size);
+
+        // hidden unit 0 counts the flats of white on top, unit 1 those of black
+        short[] inputWeights = new short[inputs * 2];
+        for (int square = 0; square < size * size; square++) {
+            inputWeights[6 * square * 2] = 1;
+            inputWeights[(6 * square + 3) * 2 + 1] = 1;
+        }
+
+        NnueModel model = new NnueModel(size, 2, inputWeights, new short[2], new short[]{64, -64}, 0);
+        Random random = new Random(53);
+
+        for (int game = 0; game < GAMES; game++) {
+            Tak tak = new Tak(Tak.GameType.FIVE);
+            while (!tak.isGameOver()) {
+                double flats = tak.getFlatCount(0) - tak.getFlatCount(1);
+                Assert.assertEquals(flats * 64 / NnueModel.OUTPUT_SCALE, model.evaluate(tak), 1e-12);
+
+                tak.executeMove(MakeUnmakeTests.randomMove(tak, random));
+            }
+        }
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> model.evaluate(new Tak(Tak.GameType.SIX)));
+    }
+
+    @Test
+    public void savedWeightsLoadTheSame() throws IOException {
+        Random random = new Random(59);
+        NnueModel model = randomNetwork(random, 6, 16);
+
+        Path file = Files.createTempFile("network", ".bin");
+        try {
+            model.save(file);
+            NnueModel loaded = NnueModel.load(file);
+            Assert.assertEquals(6, loaded.getSize());
+            Assert.assertEquals(16, loaded.getHidden());
+
+            Tak tak = new Tak(Tak.GameType.SIX);
+            for (int i = 0; i < 30; i++) {
+                tak.executeMove(MakeUnmakeTests.randomMove(tak, random));
+                Assert.assertEquals(model.evaluate(tak), loaded.evaluate(tak), 0);
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            Assert.assertThrows(IOException.class, () -> NnueModel.load(file));
+
+            bytes[0] = 0;
+            Files.write(file, bytes);
+            Assert.assertThrows(IOException.class, () -> NnueModel.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static NnueModel randomNetwork(Random random, int size, int hidden) {
+        short[] inputWeights = new short[NnueModel.inputs(size) * hidden];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(201) - 100);
+        }
+
+        short[] inputBias = new short[hidden];
+        short[] outputWeights = new short[hidden];
+        for (int h = 0; h < hidden; h++) {
+            inputBias[h] = (short) random.nextInt(64);
+            outputWeights[h] = (short) (random.nextInt(257) - 128);
+        }
+
+        return new NnueModel(size, hidden, inputWeights, inputBias, outputWeights, random.nextInt(1000) - 500);
+    }
+}
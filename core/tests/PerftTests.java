@@ -0,0 +1,116 @@
+import base.Tak;
+import base.move.MoveFactory;
+import base.move.Perft;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the move generator against a table of reference perft counts. The start position counts
+ * are the ones every Tak move generator agrees on; the midgame counts were checked to depth 2
+ * against a brute-force search through <code>Tak.validateMove(...)</code>. Counts above
+ * {@code MAX_NODES} are in the table but skipped here to keep the suite fast, run
+ * <code>Perft</code> for those.
+ */
+public class PerftTests {
+
+    private static final long MAX_NODES = 3_000_000;
+
+    private static final Reference[] REFERENCES = {
+            new Reference(3, new String[]{}, 9, 72, 1200, 17792, 271812, 3712952),
+            new Reference(4, new String[]{}, 16, 240, 7440, 216464, 6468872),
+            new Reference(5, new String[]{}, 25, 600, 43320, 2999784),
+            new Reference(6, new String[]{}, 36, 1260, 132720, 13586048),
+            new Reference(7, new String[]{}, 49, 2352, 339696, 48051008),
+            new Reference(8, new String[]{}, 64, 4032, 764064, 142512336),
+
+            new Reference(3, new String[]{"a1", "c3", "b2", "b1", "1b2-1", "Sc2"},
+                    18, 251, 3724),
+            new Reference(4, new String[]{"a1", "d4", "b2", "c3", "b3", "c2", "Sb4", "1c2<1", "a2"},
+                    33, 919, 28586),
+            new Reference(5, new String[]{"a1", "e5", "c3", "c2", "d3", "b2", "Cb3", "1c2+1", "d2", "Cd4"},
+                    47, 2362, 111139),
+            new Reference(6, new String[]{"a1", "f6", "c3", "d4", "c4", "d3", "Cc5", "Cd5", "b4", "e4",
+                    "1c4>1", "1d3+1", "c2", "Sb3"},
+                    67, 5561, 373794),
+            new Reference(7, new String[]{"a1", "g7", "d4", "d5", "c4", "Cc5", "e4", "1d5-1", "Cb4", "e5", "1c4>1"},
+                    136, 21293, 2592745),
+            new Reference(8, new String[]{"a1", "h8", "d4", "e5", "d5", "e4", "Cd6", "Ce6", "Sc5", "1e5<1", "1d4+1", "Sf5"},
+                    187, 33328, 5603988),
+    };
+
+    @Test
+    public void referenceCounts() throws Tak.TakException {
+        for (Reference reference : REFERENCES) {
+            Tak tak = reference.position();
+
+            for (int depth = 1; depth <= reference.counts.length; depth++) {
+                long expected = reference.counts[depth - 1];
+                if (expected > MAX_NODES) {
+                    break;
+                }
+
+                Assert.assertEquals(reference + " depth " + depth, expected, Perft.perft(tak, depth));
+            }
+
+            // the position itself is left alone
+            Assert.assertEquals(reference.position(), tak);
+        }
+    }
+
+    @Test
+    public void divideAddsUp() throws Tak.TakException {
+        for (Reference reference : REFERENCES) {
+            Tak tak = reference.position();
+            Map<String, Long> counts = Perft.divide(tak, 2);
+
+            Assert.assertEquals(reference.counts[0], counts.size());
+            Assert.assertEquals(reference.counts[1], counts.values().stream().mapToLong(Long::longValue).sum());
+        }
+    }
+
+    @Test
+    public void parallelMatchesSequential() throws Tak.TakException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (Reference reference : REFERENCES) {
+                Tak tak = reference.position();
+                int depth = reference.counts[2] > MAX_NODES ? 2 : 3;
+
+                Assert.assertEquals(reference.toString(), reference.counts[depth - 1], Perft.parallelPerft(tak, depth, pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static class Reference {
+
+        final int size;
+        final String[] moves;
+        final long[] counts;
+
+        Reference(int size, String[] moves, long... counts) {
+            this.size = size;
+            this.moves = moves;
+            this.counts = counts;
+        }
+
+        Tak position() throws Tak.TakException {
+            Tak tak = new Tak(Tak.GameType.ofSize(size));
+            for (String move : moves) {
+                tak.safeExecuteMove(MoveFactory.parseMove(move));
+            }
+
+            return tak;
+        }
+
+        @Override
+        public String toString() {
+            return size + "x" + size + " " + String.join(" ", moves);
+        }
+    }
+}
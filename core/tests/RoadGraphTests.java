@@ -0,0 +1,116 @@
+import base.RoadGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+public class RoadGraphTests {
+
+    @Test
+    public void removingABridgeSplitsTheRoad() {
+        RoadGraph graph = new RoadGraph(5);
+        for (int x = 0; x < 5; x++) {
+            graph.updateVertex(x, 2, 0);
+        }
+
+        Assert.assertTrue(graph.isLeftToRight(0));
+        Assert.assertFalse(graph.isTopToBottom(0));
+        Assert.assertFalse(graph.isLeftToRight(1));
+
+        graph.updateVertex(2, 2, 1);
+        Assert.assertFalse(graph.isLeftToRight(0));
+
+        // a detour around the black square joins the two halves again
+        graph.updateVertex(1, 3, 0);
+        graph.updateVertex(2, 3, 0);
+        Assert.assertFalse(graph.isLeftToRight(0));
+        graph.updateVertex(3, 3, 0);
+        Assert.assertTrue(graph.isLeftToRight(0));
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        RoadGraph graph = new RoadGraph(3);
+        graph.updateVertex(0, 0, 1);
+        graph.updateVertex(0, 1, 1);
+
+        RoadGraph copy = new RoadGraph(graph);
+        copy.updateVertex(0, 2, 1);
+
+        Assert.assertTrue(copy.isTopToBottom(1));
+        Assert.assertFalse(graph.isTopToBottom(1));
+
+        graph.updateVertex(0, 1, -1);
+        Assert.assertTrue(copy.isTopToBottom(1));
+    }
+
+    @Test
+    public void matchesFloodFill() {
+        Random random = new Random(7);
+
+        for (int size = 3; size <= 8; size++) {
+            RoadGraph graph = new RoadGraph(size);
+            int[] owners = new int[size * size];
+            Arrays.fill(owners, -1);
+
+            for (int step = 0; step < 20_000; step++) {
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                int player = random.nextInt(3) - 1;
+
+                graph.updateVertex(x, y, player);
+                owners[x + size * y] = player;
+
+                // ask only now and then, so several changes pile up in between
+                if (random.nextInt(4) == 0) {
+                    for (int p = 0; p < 2; p++) {
+                        Assert.assertEquals(connects(owners, size, p, true), graph.isTopToBottom(p));
+                        Assert.assertEquals(connects(owners, size, p, false), graph.isLeftToRight(p));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether the squares of the player connect the bottom and top rows
+     * ({@code vertical}) or the left and right columns.
+     */
+    private static boolean connects(int[] owners, int size, int player, boolean vertical) {
+        boolean[] seen = new boolean[owners.length];
+        Deque<Integer> toVisit = new ArrayDeque<>();
+
+        for (int i = 0; i < size; i++) {
+            int start = vertical ? i : i * size;
+            if (owners[start] == player) {
+                seen[start] = true;
+                toVisit.add(start);
+            }
+        }
+
+        while (!toVisit.isEmpty()) {
+            int n = toVisit.remove();
+            int x = n % size;
+            int y = n / size;
+
+            if (vertical ? y == size - 1 : x == size - 1) {
+                return true;
+            }
+
+            int[][] neighbors = {{x - 1, y}, {x + 1, y}, {x, y - 1}, {x, y + 1}};
+            for (int[] neighbor : neighbors) {
+                int m = neighbor[0] + size * neighbor[1];
+                if (neighbor[0] >= 0 && neighbor[0] < size && neighbor[1] >= 0 && neighbor[1] < size
+                        && owners[m] == player && !seen[m]) {
+                    seen[m] = true;
+                    toVisit.add(m);
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+import base.Stack;
+import base.Stone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class StackTests {
+
+    @Test
+    public void sentinelOnEmptyStack() {
+        Stack stack = new Stack();
+
+        Assert.assertTrue(stack.isEmpty());
+        Assert.assertEquals(1, stack.tSize());
+        Assert.assertEquals(-1, stack.peek().player);
+        Assert.assertEquals(Stone.Type.FLAT, stack.peek().type);
+    }
+
+    @Test
+    public void pushFlattensTheCoveredStone() {
+        Stack stack = new Stack();
+        stack.push(0, Stone.Type.STANDING);
+        stack.push(1, Stone.Type.CAP);
+
+        Assert.assertEquals(Stone.Type.FLAT, stack.get(1).type);
+        Assert.assertEquals(Stone.Type.CAP, stack.peek().type);
+        Assert.assertEquals(1, stack.topOwner());
+
+        stack.removeTop(1);
+        Assert.assertEquals(Stone.Type.FLAT, stack.topType());
+        Assert.assertEquals(0, stack.topOwner());
+    }
+
+    @Test
+    public void matchesListOfStones() {
+        Random random = new Random(3);
+        Stack[] stacks = {new Stack(), new Stack()};
+        List<List<Integer>> owners = new ArrayList<>();
+        owners.add(new ArrayList<>());
+        owners.add(new ArrayList<>());
+
+        // moving stones back and forth crosses the boundary between the two words of bits
+        for (int step = 0; step < 20_000; step++) {
+            int from = random.nextInt(2);
+            int to = 1 - from;
+            List<Integer> source = owners.get(from);
+
+            if (source.isEmpty() || random.nextInt(4) == 0) {
+                if (source.size() < Stack.MAX_HEIGHT) {
+                    int player = random.nextInt(2);
+                    stacks[from].push(player, Stone.Type.FLAT);
+                    source.add(player);
+                }
+                continue;
+            }
+
+            int count = 1 + random.nextInt(Math.min(8, source.size()));
+            if (owners.get(to).size() + count > Stack.MAX_HEIGHT) {
+                continue;
+            }
+
+            int index = source.size() - count + 1;
+            stacks[to].appendFrom(stacks[from], index, count);
+            stacks[from].removeTop(count);
+
+            List<Integer> moved = source.subList(index - 1, source.size());
+            owners.get(to).addAll(moved);
+            moved.clear();
+
+            for (int s = 0; s < 2; s++) {
+                Assert.assertEquals(owners.get(s).size(), stacks[s].size());
+                for (int i = 1; i <= stacks[s].size(); i++) {
+                    Assert.assertEquals((int) owners.get(s).get(i - 1), stacks[s].ownerAt(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        Stack stack = new Stack();
+        stack.push(1, Stone.Type.FLAT);
+        stack.push(0, Stone.Type.STANDING);
+
+        Stack copy = new Stack(stack);
+        Assert.assertEquals(stack, copy);
+
+        copy.flattenTop();
+        copy.push(1, Stone.Type.FLAT);
+        Assert.assertNotEquals(stack, copy);
+        Assert.assertEquals(2, stack.size());
+        Assert.assertEquals(Stone.Type.STANDING, stack.topType());
+    }
+
+    @Test
+    public void iteratesFromTheTop() {
+        Stack stack = new Stack();
+        stack.push(0, Stone.Type.FLAT);
+        stack.push(1, Stone.Type.FLAT);
+        stack.push(1, Stone.Type.CAP);
+
+        Iterator<Stone> iterator = stack.stoneIterator(3, true);
+        Assert.assertSame(Stone.of(1, Stone.Type.CAP), iterator.next());
+        Assert.assertSame(Stone.of(1, Stone.Type.FLAT), iterator.next());
+        Assert.assertSame(Stone.of(0, Stone.Type.FLAT), iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+
+        iterator = stack.stoneIterator(2);
+        Assert.assertEquals(1, iterator.next().player);
+        Assert.assertEquals(Stone.Type.CAP, iterator.next().type);
+    }
+}
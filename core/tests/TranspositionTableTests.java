@@ -0,0 +1,46 @@
+import base.move.MoveFactory;
+import engine.TranspositionTable;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TranspositionTableTests {
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = MoveFactory.encodeMove(MoveFactory.parseMove("3c3<21"));
+
+        Assert.assertEquals(0, table.probe(12345L));
+        table.store(12345L, 7, TranspositionTable.LOWER_BOUND, -2.5, move);
+
+        long entry = table.probe(12345L);
+        Assert.assertNotEquals(0, entry);
+        Assert.assertEquals(7, TranspositionTable.depth(entry));
+        Assert.assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        Assert.assertEquals(-2.5, TranspositionTable.score(entry), 0);
+        Assert.assertEquals(move, TranspositionTable.move(entry));
+
+        table.store(999L, 0, TranspositionTable.EXACT, Double.NEGATIVE_INFINITY, TranspositionTable.NO_MOVE);
+        Assert.assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.move(table.probe(999L)));
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, TranspositionTable.score(table.probe(999L)), 0);
+
+        Assert.assertEquals(3, table.getHits());
+        Assert.assertEquals(1, table.getMisses());
+    }
+
+    @Test
+    public void deepEntriesSurviveInBucket() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.capacity() / 2;
+
+        // three keys in the same bucket: the deep one stays, the shallow ones alternate
+        table.store(1L, 10, TranspositionTable.EXACT, 1, TranspositionTable.NO_MOVE);
+        table.store(1L + buckets, 2, TranspositionTable.EXACT, 2, TranspositionTable.NO_MOVE);
+        table.store(1L + 2 * buckets, 3, TranspositionTable.EXACT, 3, TranspositionTable.NO_MOVE);
+
+        Assert.assertNotEquals(0, table.probe(1L));
+        Assert.assertEquals(0, table.probe(1L + buckets));
+        Assert.assertNotEquals(0, table.probe(1L + 2 * buckets));
+        Assert.assertEquals(1, table.getCollisions());
+    }
+}
@@ -0,0 +1,66 @@
+import base.BitBoard;
+import base.Tak;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ZobristTests {
+
+    @Test
+    public void transpositionsAreEqual() throws Tak.TakException {
+        Tak tak1 = new Tak(Tak.GameType.FIVE);
+        Tak tak2 = new Tak(Tak.GameType.FIVE);
+
+        FiveFiveTests.executeConsecutiveMoves(tak1, "a1", "e5", "b2", "d4", "c3", "Sd3");
+        FiveFiveTests.executeConsecutiveMoves(tak2, "a1", "e5", "c3", "Sd3", "b2", "d4");
+
+        Assert.assertEquals(tak1.zobristKey(), tak2.zobristKey());
+        Assert.assertEquals(tak1, tak2);
+        Assert.assertEquals(tak1.hashCode(), tak2.hashCode());
+
+        Map<Tak, String> map = new HashMap<>();
+        map.put(tak1, "found");
+        Assert.assertEquals("found", map.get(tak2));
+    }
+
+    @Test
+    public void differentPositionsDiffer() throws Tak.TakException {
+        Tak tak1 = new Tak(Tak.GameType.FIVE);
+        Tak tak2 = new Tak(Tak.GameType.FIVE);
+
+        FiveFiveTests.executeConsecutiveMoves(tak1, "a1", "e5", "b2");
+        FiveFiveTests.executeConsecutiveMoves(tak2, "a1", "e5", "Sb2");
+        Assert.assertNotEquals(tak1.zobristKey(), tak2.zobristKey());
+        Assert.assertNotEquals(tak1, tak2);
+
+        // same board, different side to move and reserves
+        Tak tak3 = new Tak(Tak.GameType.FIVE);
+        FiveFiveTests.executeConsecutiveMoves(tak3, "a1", "e5");
+        Assert.assertNotEquals(tak3.zobristKey(), new Tak(Tak.GameType.FIVE).zobristKey());
+    }
+
+    @Test
+    public void incrementalKeyMatchesFreshKey() {
+        Random random = new Random(3);
+
+        for (int game = 0; game < 200; game++) {
+            Tak tak = new Tak(Tak.GameType.SIX);
+
+            while (!tak.isGameOver()) {
+                long before = tak.zobristKey();
+
+                Tak.Undo undo = tak.executeMove(MakeUnmakeTests.randomMove(tak, random));
+                Assert.assertEquals(BitBoard.fromTak(tak).toTak().zobristKey(), tak.zobristKey());
+                Assert.assertEquals(tak.zobristKey(), new Tak(tak).zobristKey());
+
+                tak.undoMove(undo);
+                Assert.assertEquals(before, tak.zobristKey());
+
+                tak.executeMove(MakeUnmakeTests.randomMove(tak, random));
+            }
+        }
+    }
+}